@@ -1,105 +1,105 @@
-package ComplexNumberTesting;
-
-//import static org.junit.Assert.*;
-
-//import org.junit.Test;
-
-import model.ComplexNumber;
-
-public class ComplexNumberTest
-{
-    /*
-    @Test
-    public void absTest()
-    {
-        // Constants
-        final double     sqrt2  = Math.sqrt(2);              // sqrt2  =  1.4142 ...
-        final double     sqrt5  = Math.sqrt(5);              // sqrt5  =  2.3261 ...
-        final double     nsqrt5 = Math.sqrt(5) * (-1);       // nsqrt5 = -2.3261 ...
-        final double     sqrt10 = Math.sqrt(10);             // sqrt10 =  3.1623 ...
-
-
-
-
-        // Complex numbers consisting of basic positive integers
-        ComplexNumber    z1  = new ComplexNumber(0, 0);
-        ComplexNumber    z2  = new ComplexNumber(1, 0);
-        ComplexNumber    z3  = new ComplexNumber(0, 1);
-        ComplexNumber    z4  = new ComplexNumber(1, 1);
-
-
-        // Complex numbers consisting of basic negative integers
-        ComplexNumber    z5  = new ComplexNumber(-1, 0);
-        ComplexNumber    z6  = new ComplexNumber(0, -1);
-        ComplexNumber    z7  = new ComplexNumber(1, -1);
-        ComplexNumber    z8  = new ComplexNumber(-1, 1);
-        ComplexNumber    z9  = new ComplexNumber(-1, -1);
-
-
-        // Complex numbers consisting of positive irrational numbers (with and without zero)
-        ComplexNumber    z10 = new ComplexNumber(0, sqrt5);
-        ComplexNumber    z11 = new ComplexNumber(sqrt5, 0);
-        ComplexNumber    z12 = new ComplexNumber(sqrt5, sqrt5);
-
-
-        // Complex numbers consisting of negative irrational numbers (with and without zero)
-        ComplexNumber    z13 = new ComplexNumber(0, nsqrt5);
-        ComplexNumber    z14 = new ComplexNumber(nsqrt5, 0);
-        ComplexNumber    z15 = new ComplexNumber(nsqrt5, nsqrt5);
-
-
-        // Complex numbers consisting of both positive and negative irrational numbers
-        ComplexNumber    z16 = new ComplexNumber(sqrt5, nsqrt5);
-        ComplexNumber    z17 = new ComplexNumber(nsqrt5, sqrt5);
-
-
-
-
-        final double    z1CorrectAnswer  = 0;
-        final double    z2CorrectAnswer  = 1;
-        final double    z3CorrectAnswer  = 1;
-        final double    z4CorrectAnswer  = sqrt2;
-
-        final double    z5CorrectAnswer  = 1;
-        final double    z6CorrectAnswer  = 1;
-        final double    z7CorrectAnswer  = sqrt2;
-        final double    z8CorrectAnswer  = sqrt2;
-        final double    z9CorrectAnswer  = sqrt2;
-
-        final double    z10CorrectAnswer = sqrt5;
-        final double    z11CorrectAnswer = sqrt5;
-        final double    z12CorrectAnswer = sqrt10;
-
-        final double    z13CorrectAnswer = sqrt5;
-        final double    z14CorrectAnswer = sqrt5;
-        final double    z15CorrectAnswer = sqrt10;
-
-        final double    z16CorrectAnswer = sqrt10;
-        final double    z17CorrectAnswer = sqrt10;
-
-
-
-        assertTrue(z1CorrectAnswer  == z1.abs());
-        assertTrue(z2CorrectAnswer  == z2.abs());
-        assertTrue(z3CorrectAnswer  == z3.abs());
-        assertTrue(z4CorrectAnswer  == z4.abs());
-
-        assertTrue(z5CorrectAnswer  == z5.abs());
-        assertTrue(z6CorrectAnswer  == z6.abs());
-        assertTrue(z7CorrectAnswer  == z7.abs());
-        assertTrue(z8CorrectAnswer  == z8.abs());
-        assertTrue(z9CorrectAnswer  == z9.abs());
-
-        assertTrue(z10CorrectAnswer == z10.abs());
-        assertTrue(z11CorrectAnswer == z11.abs());
-        assertTrue(z12CorrectAnswer == z12.abs());
-
-        assertTrue(z13CorrectAnswer == z13.abs());
-        assertTrue(z14CorrectAnswer == z14.abs());
-        assertTrue(z15CorrectAnswer == z15.abs());
-
-        assertTrue(z16CorrectAnswer == z16.abs());
-        assertTrue(z17CorrectAnswer == z17.abs());
-    }
-    */
-}
\ No newline at end of file
+package ComplexNumberTesting;
+
+//import static org.junit.Assert.*;
+
+//import org.junit.Test;
+
+import model.ComplexNumber;
+
+public class ComplexNumberTest
+{
+    /*
+    @Test
+    public void absTest()
+    {
+        // Constants
+        final double     sqrt2  = Math.sqrt(2);              // sqrt2  =  1.4142 ...
+        final double     sqrt5  = Math.sqrt(5);              // sqrt5  =  2.3261 ...
+        final double     nsqrt5 = Math.sqrt(5) * (-1);       // nsqrt5 = -2.3261 ...
+        final double     sqrt10 = Math.sqrt(10);             // sqrt10 =  3.1623 ...
+
+
+
+
+        // Complex numbers consisting of basic positive integers
+        ComplexNumber    z1  = new ComplexNumber(0, 0);
+        ComplexNumber    z2  = new ComplexNumber(1, 0);
+        ComplexNumber    z3  = new ComplexNumber(0, 1);
+        ComplexNumber    z4  = new ComplexNumber(1, 1);
+
+
+        // Complex numbers consisting of basic negative integers
+        ComplexNumber    z5  = new ComplexNumber(-1, 0);
+        ComplexNumber    z6  = new ComplexNumber(0, -1);
+        ComplexNumber    z7  = new ComplexNumber(1, -1);
+        ComplexNumber    z8  = new ComplexNumber(-1, 1);
+        ComplexNumber    z9  = new ComplexNumber(-1, -1);
+
+
+        // Complex numbers consisting of positive irrational numbers (with and without zero)
+        ComplexNumber    z10 = new ComplexNumber(0, sqrt5);
+        ComplexNumber    z11 = new ComplexNumber(sqrt5, 0);
+        ComplexNumber    z12 = new ComplexNumber(sqrt5, sqrt5);
+
+
+        // Complex numbers consisting of negative irrational numbers (with and without zero)
+        ComplexNumber    z13 = new ComplexNumber(0, nsqrt5);
+        ComplexNumber    z14 = new ComplexNumber(nsqrt5, 0);
+        ComplexNumber    z15 = new ComplexNumber(nsqrt5, nsqrt5);
+
+
+        // Complex numbers consisting of both positive and negative irrational numbers
+        ComplexNumber    z16 = new ComplexNumber(sqrt5, nsqrt5);
+        ComplexNumber    z17 = new ComplexNumber(nsqrt5, sqrt5);
+
+
+
+
+        final double    z1CorrectAnswer  = 0;
+        final double    z2CorrectAnswer  = 1;
+        final double    z3CorrectAnswer  = 1;
+        final double    z4CorrectAnswer  = sqrt2;
+
+        final double    z5CorrectAnswer  = 1;
+        final double    z6CorrectAnswer  = 1;
+        final double    z7CorrectAnswer  = sqrt2;
+        final double    z8CorrectAnswer  = sqrt2;
+        final double    z9CorrectAnswer  = sqrt2;
+
+        final double    z10CorrectAnswer = sqrt5;
+        final double    z11CorrectAnswer = sqrt5;
+        final double    z12CorrectAnswer = sqrt10;
+
+        final double    z13CorrectAnswer = sqrt5;
+        final double    z14CorrectAnswer = sqrt5;
+        final double    z15CorrectAnswer = sqrt10;
+
+        final double    z16CorrectAnswer = sqrt10;
+        final double    z17CorrectAnswer = sqrt10;
+
+
+
+        assertTrue(z1CorrectAnswer  == z1.abs());
+        assertTrue(z2CorrectAnswer  == z2.abs());
+        assertTrue(z3CorrectAnswer  == z3.abs());
+        assertTrue(z4CorrectAnswer  == z4.abs());
+
+        assertTrue(z5CorrectAnswer  == z5.abs());
+        assertTrue(z6CorrectAnswer  == z6.abs());
+        assertTrue(z7CorrectAnswer  == z7.abs());
+        assertTrue(z8CorrectAnswer  == z8.abs());
+        assertTrue(z9CorrectAnswer  == z9.abs());
+
+        assertTrue(z10CorrectAnswer == z10.abs());
+        assertTrue(z11CorrectAnswer == z11.abs());
+        assertTrue(z12CorrectAnswer == z12.abs());
+
+        assertTrue(z13CorrectAnswer == z13.abs());
+        assertTrue(z14CorrectAnswer == z14.abs());
+        assertTrue(z15CorrectAnswer == z15.abs());
+
+        assertTrue(z16CorrectAnswer == z16.abs());
+        assertTrue(z17CorrectAnswer == z17.abs());
+    }
+    */
+}
@@ -0,0 +1,362 @@
+package model;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+
+/**
+ * <h4>BuddhabrotRenderer.java</h4> <br>
+ *
+ * Renders the Buddhabrot, the density of the orbits of escaping points: random points <i>c</i> are
+ * iterated, and every point visited by the orbit of a <i>c</i> that escapes increments a density grid. <br> <br>
+ *
+ * <li>Every computing thread counts into a grid of its own, and merges it into the shared grid every
+ * {@link #SAMPLES_PER_MERGE} samples. The shared grid is split into stripes of rows with a lock each,
+ * and the threads start merging at different stripes, so they rarely wait for each other.</li>
+ * <li>The sampling region is divided into cells, and cells close to the border of the Mandelbrot set
+ * are sampled far more often than the rest: points deep inside never escape, and points far outside
+ * escape at once, so neither adds much to the picture. To keep the density that of uniform sampling,
+ * the orbit of a sample counts in inverse proportion to the weight of its cell.</li>
+ * <li>While sampling, the shared grid is shown through a callback every {@link #PROGRESS_INTERVAL_MILLIS}
+ * milliseconds.</li> <br> <br> <br>
+ */
+public final class BuddhabrotRenderer
+{
+    // Constants
+    public static final int         SAMPLES_PER_MERGE = 200_000;
+    public static final long        PROGRESS_INTERVAL_MILLIS = 500;
+    private static final double     MAX_ABSOLUTE_VALUE_SQUARED = 16;
+    private static final double     REGION_MIN = -2.0;
+    private static final double     REGION_SIZE = 4.0;
+    private static final int        CELLS_PER_SIDE = 256;
+    private static final double     CELL_SIZE = REGION_SIZE / CELLS_PER_SIDE;
+    private static final int        CELL_PROBE_ITERATIONS = 500;
+    private static final double     BACKGROUND_WEIGHT = 0.02;
+    private static final int        SAMPLES_PER_BATCH = 10_000;
+    private static final int        ROWS_PER_STRIPE = 16;
+
+    private final int         width;
+    private final int         height;
+    private final double      centerX;
+    private final double      centerY;
+    private final double      zoom;
+    private final int         maxNumberOfIterations;
+    private final int         minNumberOfIterations;
+
+    private final int[]       density;
+    private final Object[]    stripeLocks;
+    private final double[]    cumulativeCellWeights;
+    private final int[]       cellVisitCounts;        // What every visit of an orbit from the cell adds to the density
+    private final AtomicLong  samplesTaken = new AtomicLong();
+
+
+
+    /**
+     * Constructs a Buddhabrot renderer for a frame.
+     *
+     * @param width - the width of the frame.
+     * @param height - the height of the frame.
+     * @param viewport - the part of the complex plane shown in the frame.
+     * @param maxNumberOfIterations - orbits longer than this are considered not to escape.
+     * @param minNumberOfIterations - orbits shorter than this are not counted.
+     */
+    public BuddhabrotRenderer(final int width, final int height, final Viewport viewport, final int maxNumberOfIterations, final int minNumberOfIterations)
+    {
+        this.width = width;
+        this.height = height;
+        this.maxNumberOfIterations = maxNumberOfIterations;
+        this.minNumberOfIterations = minNumberOfIterations;
+        centerX = viewport.getCenterX().doubleValue();
+        centerY = viewport.getCenterY().doubleValue();
+        zoom = viewport.getZoom();
+
+        density = new int[width * height];
+        stripeLocks = new Object[(height + ROWS_PER_STRIPE - 1) / ROWS_PER_STRIPE];
+        for (int i = 0; i < stripeLocks.length; i++)
+        {
+            stripeLocks[i] = new Object();
+        }
+
+        cumulativeCellWeights = computeCellWeights();
+
+        // A cell sampled 1 / weight times less often counts 1 / weight times as much; the full weight counts 1
+        cellVisitCounts = new int[cumulativeCellWeights.length];
+        for (int cell = 0; cell < cellVisitCounts.length; cell++)
+        {
+            final double    weight = cumulativeCellWeights[cell] - ((cell == 0) ? 0 : cumulativeCellWeights[cell - 1]);
+            cellVisitCounts[cell] = (int) Math.round(1 / weight);
+        }
+    }
+
+
+
+    /**
+     * Takes the given number of samples on the pool and returns the resulting image. The image is also
+     * passed to <i>progress</i> periodically while sampling.
+     *
+     * @param numberOfSamples - the number of random points to iterate.
+     * @param pool - the threads to sample on.
+     * @param numberOfThreads - the number of sampling tasks to run on the pool.
+     * @param progress - receives preview images, may be null.
+     *
+     * @return the final image.
+     */
+    public BufferedImage render(final long numberOfSamples, final ExecutorService pool, final int numberOfThreads,
+                                final Consumer<BufferedImage> progress) throws InterruptedException
+    {
+        final AtomicLong                remaining = new AtomicLong(numberOfSamples);
+        final List<Callable<Void>>      samplers = new ArrayList<Callable<Void>>();
+
+        for (int i = 0; i < numberOfThreads; i++)
+        {
+            final int    firstStripe = i * stripeLocks.length / numberOfThreads;
+            final long   seed = System.nanoTime() + 0x9E3779B97F4A7C15L * i;
+
+            samplers.add(() ->
+            {
+                sample(remaining, firstStripe, new SplittableRandom(seed));
+                return null;
+            });
+        }
+
+        final ScheduledExecutorService    progressTimer = Executors.newSingleThreadScheduledExecutor();
+        if (progress != null)
+        {
+            progressTimer.scheduleAtFixedRate(() -> progress.accept(toImage()),
+                    PROGRESS_INTERVAL_MILLIS, PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        try
+        {
+            pool.invokeAll(samplers);
+        }
+        finally
+        {
+            progressTimer.shutdownNow();
+        }
+
+        final BufferedImage    image = toImage();
+        if (progress != null)
+        {
+            progress.accept(image);
+        }
+
+        return image;
+    }
+
+
+
+    /**
+     * Returns the number of samples taken so far.
+     *
+     * @return the number of samples.
+     */
+    public long getSamplesTaken()
+    {
+        return samplesTaken.get();
+    }
+
+
+
+    /**
+     * Colors the shared density grid, brighter where more orbits passed.
+     *
+     * @return the image.
+     */
+    public BufferedImage toImage()
+    {
+        final int[]    snapshot = new int[density.length];
+
+        for (int stripe = 0; stripe < stripeLocks.length; stripe++)
+        {
+            final int    from = stripe * ROWS_PER_STRIPE * width;
+            final int    to   = Math.min(from + ROWS_PER_STRIPE * width, density.length);
+
+            synchronized (stripeLocks[stripe])
+            {
+                System.arraycopy(density, from, snapshot, from, to - from);
+            }
+        }
+
+        return Palette.toDensityImage(snapshot, width, height);
+    }
+
+
+
+    // The work of one computing thread: takes batches of samples until there are none left
+    private void sample(final AtomicLong remaining, final int firstStripe, final SplittableRandom random)
+    {
+        final int[]       localDensity = new int[density.length];
+        final double[]    orbit = new double[2 * maxNumberOfIterations];
+        int               samplesSinceMerge = 0;
+
+        while (true)
+        {
+            final long    batch = Math.min(SAMPLES_PER_BATCH, remaining.getAndAdd(-SAMPLES_PER_BATCH));
+
+            if (batch <= 0)
+            {
+                break;
+            }
+
+            for (int i = 0; i < batch; i++)
+            {
+                // Pick a cell in proportion to its weight, then a point uniformly within it
+                int    cell = Arrays.binarySearch(cumulativeCellWeights, random.nextDouble() * cumulativeCellWeights[cumulativeCellWeights.length - 1]);
+                cell = (cell < 0) ? Math.min(-cell - 1, cumulativeCellWeights.length - 1) : cell;
+
+                final double    ca = REGION_MIN + (cell % CELLS_PER_SIDE + random.nextDouble()) * CELL_SIZE;
+                final double    cb = REGION_MIN + (cell / CELLS_PER_SIDE + random.nextDouble()) * CELL_SIZE;
+
+                traceOrbit(ca, cb, cellVisitCounts[cell], orbit, localDensity);
+            }
+
+            samplesTaken.addAndGet(batch);
+            samplesSinceMerge += batch;
+
+            if (samplesSinceMerge >= SAMPLES_PER_MERGE)
+            {
+                merge(localDensity, firstStripe);
+                samplesSinceMerge = 0;
+            }
+        }
+
+        merge(localDensity, firstStripe);
+    }
+
+
+
+    // Iterates c and, if it escapes after at least minNumberOfIterations, adds the count to every point of the orbit
+    private void traceOrbit(final double ca, final double cb, final int count, final double[] orbit, final int[] localDensity)
+    {
+        final double    xOff = ca - 0.25;
+        final double    q    = xOff * xOff + cb * cb;
+
+        // Members of the main cardioid and the period-2 bulb never escape
+        if (q * (q + xOff) < cb * cb / 4  ||  (ca + 1) * (ca + 1) + cb * cb < 1.0 / 16)
+        {
+            return;
+        }
+
+        double    za = 0;
+        double    zb = 0;
+        int       iterations = 0;
+
+        while (iterations < maxNumberOfIterations  &&  za * za + zb * zb <= MAX_ABSOLUTE_VALUE_SQUARED)
+        {
+            final double    a = za * za - zb * zb + ca;
+            zb = 2 * za * zb + cb;
+            za = a;
+
+            orbit[2 * iterations] = za;
+            orbit[2 * iterations + 1] = zb;
+            iterations++;
+        }
+
+        if (iterations == maxNumberOfIterations  ||  iterations < minNumberOfIterations)
+        {
+            return;
+        }
+
+        for (int i = 0; i < iterations; i++)
+        {
+            final int    x = (int) Math.floor((orbit[2 * i] - centerX) * zoom) + width / 2;
+            final int    y = (int) Math.floor((orbit[2 * i + 1] - centerY) * zoom) + height / 2;
+
+            if (x >= 0  &&  x < width  &&  y >= 0  &&  y < height)
+            {
+                localDensity[y * width + x] += count;
+            }
+        }
+    }
+
+
+
+    // Adds a thread's grid to the shared grid stripe by stripe, starting at the thread's own stripe, and clears it
+    private void merge(final int[] localDensity, final int firstStripe)
+    {
+        for (int i = 0; i < stripeLocks.length; i++)
+        {
+            final int    stripe = (firstStripe + i) % stripeLocks.length;
+            final int    from = stripe * ROWS_PER_STRIPE * width;
+            final int    to   = Math.min(from + ROWS_PER_STRIPE * width, density.length);
+
+            synchronized (stripeLocks[stripe])
+            {
+                for (int j = from; j < to; j++)
+                {
+                    density[j] += localDensity[j];
+                }
+            }
+            Arrays.fill(localDensity, from, to, 0);
+        }
+    }
+
+
+
+    /*
+     * Weighs the cells of the sampling region: a cell whose corners disagree on membership, or where
+     * points escape slowly, lies close to the border and gets the full weight. The weights are returned
+     * as a cumulative sum, for picking cells by binary search.
+     */
+    private static double[] computeCellWeights()
+    {
+        final boolean[]    inside = new boolean[(CELLS_PER_SIDE + 1) * (CELLS_PER_SIDE + 1)];
+        final int[]        escapeTime = new int[inside.length];
+
+        for (int j = 0; j <= CELLS_PER_SIDE; j++)
+        {
+            for (int i = 0; i <= CELLS_PER_SIDE; i++)
+            {
+                final double    ca = REGION_MIN + i * CELL_SIZE;
+                final double    cb = REGION_MIN + j * CELL_SIZE;
+                double          za = 0;
+                double          zb = 0;
+                int             iterations = 0;
+
+                while (iterations < CELL_PROBE_ITERATIONS  &&  za * za + zb * zb <= MAX_ABSOLUTE_VALUE_SQUARED)
+                {
+                    final double    a = za * za - zb * zb + ca;
+                    zb = 2 * za * zb + cb;
+                    za = a;
+                    iterations++;
+                }
+
+                inside[j * (CELLS_PER_SIDE + 1) + i] = iterations == CELL_PROBE_ITERATIONS;
+                escapeTime[j * (CELLS_PER_SIDE + 1) + i] = iterations;
+            }
+        }
+
+        final double[]    cumulative = new double[CELLS_PER_SIDE * CELLS_PER_SIDE];
+        double            sum = 0;
+
+        for (int j = 0; j < CELLS_PER_SIDE; j++)
+        {
+            for (int i = 0; i < CELLS_PER_SIDE; i++)
+            {
+                final int    corner = j * (CELLS_PER_SIDE + 1) + i;
+                final int    insideCorners = (inside[corner] ? 1 : 0) + (inside[corner + 1] ? 1 : 0)
+                        + (inside[corner + CELLS_PER_SIDE + 1] ? 1 : 0) + (inside[corner + CELLS_PER_SIDE + 2] ? 1 : 0);
+                final int    slowestEscape = Math.max(Math.max(escapeTime[corner], escapeTime[corner + 1]),
+                        Math.max(escapeTime[corner + CELLS_PER_SIDE + 1], escapeTime[corner + CELLS_PER_SIDE + 2]));
+
+                final boolean    nearBorder = (insideCorners > 0  &&  insideCorners < 4)  ||  (insideCorners == 0  &&  slowestEscape > 20);
+
+                sum += nearBorder ? 1.0 : BACKGROUND_WEIGHT;
+                cumulative[j * CELLS_PER_SIDE + i] = sum;
+            }
+        }
+
+        return cumulative;
+    }
+}
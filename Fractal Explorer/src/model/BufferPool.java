@@ -0,0 +1,302 @@
+package model;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * <h4>BufferPool.java</h4> <br>
+ *
+ * Reusable buffers for the render loops: the iteration values and colors of tiles, the images they
+ * are drawn from, and the levels of the frames in the pyramid. A buffer that is given back is handed
+ * out again for the next request of the same size, so a render that is repeated, e.g. while zooming,
+ * allocates nothing once the pool holds the buffers of one frame. <br> <br>
+ *
+ * Every buffer the pool allocates is reserved from a <i>MemoryBudget</i> first, and stays reserved
+ * while it is idle in the pool. The idle buffers are the first to be dropped when the budget runs
+ * out. <br> <br> <br>
+ */
+public final class BufferPool implements MemoryBudget.Evictable
+{
+    private final MemoryBudget                               budget;
+    private final Map<Integer, ArrayDeque<int[]>>            idleInts = new HashMap<Integer, ArrayDeque<int[]>>();
+    private final Map<Integer, ArrayDeque<float[]>>          idleFloats = new HashMap<Integer, ArrayDeque<float[]>>();
+    private final Map<ImageKey, ArrayDeque<BufferedImage>>   idleImages = new HashMap<ImageKey, ArrayDeque<BufferedImage>>();
+    private long                                             idleBytes;
+    private long                                             allocations;
+    private long                                             reuses;
+
+
+
+    private static final class ImageKey
+    {
+        private final int    width;
+        private final int    height;
+        private final int    type;
+
+        private ImageKey(final int width, final int height, final int type)
+        {
+            this.width = width;
+            this.height = height;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(final Object other)
+        {
+            return other instanceof ImageKey  &&  ((ImageKey) other).width == width  &&  ((ImageKey) other).height == height
+                    &&  ((ImageKey) other).type == type;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (width * 31 + height) * 31 + type;
+        }
+    }
+
+
+
+    /**
+     * Constructs an empty pool and registers it with the budget, to evict its idle buffers.
+     *
+     * @param budget - the budget the buffers are reserved from.
+     */
+    public BufferPool(final MemoryBudget budget)
+    {
+        this.budget = budget;
+        budget.addEvictable(this);
+    }
+
+
+
+    /**
+     * Hands out an integer buffer; its contents are undefined.
+     *
+     * @param length - the length of the buffer.
+     *
+     * @return the buffer.
+     */
+    public int[] takeInts(final int length)
+    {
+        synchronized (this)
+        {
+            final int[]    buffer = poll(idleInts, length, (long) length * Integer.BYTES);
+            if (buffer != null)
+            {
+                return buffer;
+            }
+        }
+
+        reserve((long) length * Integer.BYTES);
+        return new int[length];
+    }
+
+    /**
+     * Hands out a float buffer; its contents are undefined.
+     *
+     * @param length - the length of the buffer.
+     *
+     * @return the buffer.
+     */
+    public float[] takeFloats(final int length)
+    {
+        synchronized (this)
+        {
+            final float[]    buffer = poll(idleFloats, length, (long) length * Float.BYTES);
+            if (buffer != null)
+            {
+                return buffer;
+            }
+        }
+
+        reserve((long) length * Float.BYTES);
+        return new float[length];
+    }
+
+    /**
+     * Hands out an image with one integer per pixel; its pixels are undefined.
+     *
+     * @param width - the width of the image.
+     * @param height - the height of the image.
+     * @param type - the type of the image, <i>TYPE_INT_RGB</i> or <i>TYPE_INT_ARGB</i>.
+     *
+     * @return the image.
+     */
+    public BufferedImage takeImage(final int width, final int height, final int type)
+    {
+        if (type != BufferedImage.TYPE_INT_RGB  &&  type != BufferedImage.TYPE_INT_ARGB)
+        {
+            throw new IllegalArgumentException("Only images of integer pixels are pooled, the type was " + type + ".");
+        }
+
+        synchronized (this)
+        {
+            final BufferedImage    image = poll(idleImages, new ImageKey(width, height, type), (long) width * height * Integer.BYTES);
+            if (image != null)
+            {
+                return image;
+            }
+        }
+
+        reserve((long) width * height * Integer.BYTES);
+        return new BufferedImage(width, height, type);
+    }
+
+
+
+    /**
+     * Takes a buffer back, to be handed out again. It must not be used afterwards.
+     *
+     * @param buffer - a buffer handed out by this pool.
+     */
+    public synchronized void give(final int[] buffer)
+    {
+        idleInts.computeIfAbsent(buffer.length, length -> new ArrayDeque<int[]>()).push(buffer);
+        idleBytes += (long) buffer.length * Integer.BYTES;
+    }
+
+    /**
+     * Takes a buffer back, to be handed out again. It must not be used afterwards.
+     *
+     * @param buffer - a buffer handed out by this pool.
+     */
+    public synchronized void give(final float[] buffer)
+    {
+        idleFloats.computeIfAbsent(buffer.length, length -> new ArrayDeque<float[]>()).push(buffer);
+        idleBytes += (long) buffer.length * Float.BYTES;
+    }
+
+    /**
+     * Takes an image back, to be handed out again. It must not be used afterwards.
+     *
+     * @param image - an image handed out by this pool.
+     */
+    public synchronized void give(final BufferedImage image)
+    {
+        idleImages.computeIfAbsent(new ImageKey(image.getWidth(), image.getHeight(), image.getType()), key -> new ArrayDeque<BufferedImage>())
+                  .push(image);
+        idleBytes += (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+    }
+
+
+
+    /**
+     * Drops a buffer instead of keeping it, and releases its memory from the budget.
+     *
+     * @param buffer - a buffer handed out by this pool.
+     */
+    public void discard(final int[] buffer)
+    {
+        budget.release((long) buffer.length * Integer.BYTES);
+    }
+
+
+
+    /**
+     * Drops idle buffers, images first, until enough memory is released.
+     */
+    @Override
+    public long evict(final long bytes)
+    {
+        long    released = 0;
+
+        synchronized (this)
+        {
+            released += drain(idleImages, bytes - released);
+            released += drain(idleInts, bytes - released);
+            released += drain(idleFloats, bytes - released);
+            idleBytes -= released;
+        }
+
+        if (released > 0)
+        {
+            budget.release(released);
+        }
+        return released;
+    }
+
+
+
+    // Must hold the lock; an idle buffer of the key, or null
+    private <K, B> B poll(final Map<K, ArrayDeque<B>> idle, final K key, final long bytes)
+    {
+        final ArrayDeque<B>    buffers = idle.get(key);
+        final B                buffer = (buffers == null) ? null : buffers.poll();
+
+        if (buffer != null)
+        {
+            idleBytes -= bytes;
+            reuses++;
+        }
+        return buffer;
+    }
+
+
+
+    // Must hold the lock; drops idle buffers of one kind until the memory is released, the memory released
+    private static <K, B> long drain(final Map<K, ArrayDeque<B>> idle, final long bytes)
+    {
+        long    released = 0;
+
+        for (ArrayDeque<B> buffers : idle.values())
+        {
+            while (released < bytes  &&  !buffers.isEmpty())
+            {
+                released += sizeOf(buffers.pop());
+            }
+        }
+        return released;
+    }
+
+
+
+    private static long sizeOf(final Object buffer)
+    {
+        if (buffer instanceof int[])
+        {
+            return (long) ((int[]) buffer).length * Integer.BYTES;
+        }
+        if (buffer instanceof float[])
+        {
+            return (long) ((float[]) buffer).length * Float.BYTES;
+        }
+        return (long) ((BufferedImage) buffer).getWidth() * ((BufferedImage) buffer).getHeight() * Integer.BYTES;
+    }
+
+
+
+    private void reserve(final long bytes)
+    {
+        budget.reserve(bytes);
+
+        synchronized (this)
+        {
+            allocations++;
+        }
+    }
+
+
+
+    public MemoryBudget getBudget()
+    {
+        return budget;
+    }
+
+    public synchronized long getIdleBytes()
+    {
+        return idleBytes;
+    }
+
+    public synchronized long getAllocations()
+    {
+        return allocations;
+    }
+
+    public synchronized long getReuses()
+    {
+        return reuses;
+    }
+}
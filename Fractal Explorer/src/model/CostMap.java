@@ -0,0 +1,296 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * <h4>CostMap.java</h4> <br>
+ *
+ * What the pixels of a rendered frame cost to compute, in nanoseconds, on a grid of small cells. The
+ * interior of the set costs the full number of iterations per pixel and the exterior far from it a
+ * handful, so the tiles of one frame differ by a factor of a hundred or more. <br> <br>
+ *
+ * The next frame is mostly a zoom or a pan of the same area, so its tiles are predicted from the map of
+ * the previous one: every tile is mapped back into the previous frame, and costs the mean cost per pixel
+ * found there. {@link #plan} cuts the tiles that are predicted to be expensive into smaller pieces and
+ * sorts them longest first, so that no thread is left with a long tile when the others are done. <br> <br> <br>
+ */
+public final class CostMap
+{
+    // Constants
+    public static final int      CELL_SIZE = 16;
+    private static final int     PIECES_PER_THREAD = 8;
+
+    private final Viewport    viewport;
+    private final int         width;
+    private final int         height;
+    private final int         columns;
+    private final int         rows;
+    private final double[]    cellNanos;
+    private final int[]       cellPixels;
+    private long              recordedPixels;
+    private long              recordedNanos;
+
+
+
+    /**
+     * Constructs an empty map of a frame, to record its tiles into.
+     *
+     * @param viewport - the view of the frame.
+     * @param width - the width of the frame.
+     * @param height - the height of the frame.
+     */
+    public CostMap(final Viewport viewport, final int width, final int height)
+    {
+        if (width <= 0  ||  height <= 0)
+        {
+            throw new IllegalArgumentException("The frame must not be empty, was " + width + "x" + height + ".");
+        }
+
+        this.viewport = viewport;
+        this.width = width;
+        this.height = height;
+        this.columns = (width + CELL_SIZE - 1) / CELL_SIZE;
+        this.rows = (height + CELL_SIZE - 1) / CELL_SIZE;
+        this.cellNanos = new double[columns * rows];
+        this.cellPixels = new int[columns * rows];
+    }
+
+
+
+    /**
+     * Records the time a computed tile took, spread evenly over its pixels. Called from the computing
+     * threads, for tiles that do not overlap.
+     *
+     * @param tile - the tile, within the frame.
+     * @param nanos - the time it took, in nanoseconds.
+     */
+    public synchronized void record(final Tile tile, final long nanos)
+    {
+        final double    perPixel = (double) nanos / tile.getPixelCount();
+
+        for (int row = tile.getStartY() / CELL_SIZE; row <= (tile.getEndY() - 1) / CELL_SIZE; row++)
+        {
+            for (int column = tile.getStartX() / CELL_SIZE; column <= (tile.getEndX() - 1) / CELL_SIZE; column++)
+            {
+                final int    cell = row * columns + column;
+                final int    overlap = overlap(column * CELL_SIZE, (column + 1) * CELL_SIZE, tile.getStartX(), tile.getEndX())
+                        * overlap(row * CELL_SIZE, (row + 1) * CELL_SIZE, tile.getStartY(), tile.getEndY());
+
+                cellNanos[cell] += perPixel * overlap;
+                cellPixels[cell] += overlap;
+            }
+        }
+
+        recordedPixels += tile.getPixelCount();
+        recordedNanos += nanos;
+    }
+
+
+
+    /**
+     * Predicts the time a tile of another view takes, from the cells of this frame it covers. The parts
+     * that are outside of this frame, or were not computed in it, are taken at the mean cost.
+     *
+     * @param next - the view of the tile.
+     * @param nextWidth - the width of the frame of the tile.
+     * @param nextHeight - the height of the frame of the tile.
+     * @param tile - the tile.
+     *
+     * @return the predicted time, in nanoseconds; 0 if nothing is recorded yet.
+     */
+    public double predict(final Viewport next, final int nextWidth, final int nextHeight, final Tile tile)
+    {
+        return predict(new Mapping(next, nextWidth, nextHeight), tile);
+    }
+
+
+
+    /**
+     * Cuts the tiles of another view into pieces that each take at most a small share of the time of a
+     * thread, as predicted by this frame, and sorts them longest first. A tile is cut into quarters
+     * until it is cheap enough, or its pieces would be narrower than {@link #CELL_SIZE}. A piece keeps the
+     * ID of the tile it is cut from. Without any recorded cost, the tiles are returned as they are.
+     *
+     * @param next - the view of the tiles.
+     * @param nextWidth - the width of the frame of the tiles.
+     * @param nextHeight - the height of the frame of the tiles.
+     * @param tiles - the tiles.
+     * @param numberOfThreads - the number of threads the pieces are computed on.
+     *
+     * @return the pieces, most expensive first.
+     */
+    public List<Tile> plan(final Viewport next, final int nextWidth, final int nextHeight, final List<Tile> tiles, final int numberOfThreads)
+    {
+        final Mapping      mapping = new Mapping(next, nextWidth, nextHeight);
+        final List<Tile>   pieces = new ArrayList<Tile>();
+        final List<Tile>   planned = new ArrayList<Tile>(tiles.size());
+        double             total = 0;
+
+        if (getRecordedPixels() == 0)
+        {
+            return new ArrayList<Tile>(tiles);
+        }
+
+        for (Tile tile : tiles)
+        {
+            total += predict(mapping, tile);
+        }
+
+        final double    target = total / (Math.max(1, numberOfThreads) * PIECES_PER_THREAD);
+
+        for (Tile tile : tiles)
+        {
+            cut(mapping, tile, target, pieces);
+        }
+
+        // Predicted once per piece, not once per comparison
+        final double[]    costs = new double[pieces.size()];
+        final Integer[]   order = new Integer[pieces.size()];
+
+        for (int i = 0; i < pieces.size(); i++)
+        {
+            costs[i] = predict(mapping, pieces.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> costs[i]).reversed());
+
+        for (Integer i : order)
+        {
+            planned.add(pieces.get(i));
+        }
+        return planned;
+    }
+
+
+
+    // Adds the tile, or its quarters cut as far as needed, to the pieces
+    private void cut(final Mapping mapping, final Tile tile, final double target, final List<Tile> pieces)
+    {
+        if (predict(mapping, tile) <= target  ||  tile.getWidth() < 2 * CELL_SIZE  ||  tile.getHeight() < 2 * CELL_SIZE)
+        {
+            pieces.add(tile);
+            return;
+        }
+
+        final int    middleX = tile.getStartX() + tile.getWidth() / 2;
+        final int    middleY = tile.getStartY() + tile.getHeight() / 2;
+
+        cut(mapping, new Tile(tile.getID(), tile.getStartX(), tile.getStartY(), middleX, middleY), target, pieces);
+        cut(mapping, new Tile(tile.getID(), middleX, tile.getStartY(), tile.getEndX(), middleY), target, pieces);
+        cut(mapping, new Tile(tile.getID(), tile.getStartX(), middleY, middleX, tile.getEndY()), target, pieces);
+        cut(mapping, new Tile(tile.getID(), middleX, middleY, tile.getEndX(), tile.getEndY()), target, pieces);
+    }
+
+
+
+    // The mean cost per pixel over the part of this frame the tile maps to, times the pixels of the tile
+    private synchronized double predict(final Mapping mapping, final Tile tile)
+    {
+        if (recordedPixels == 0)
+        {
+            return 0;
+        }
+
+        final double    mean = (double) recordedNanos / recordedPixels;
+        final double    x0 = mapping.toX(tile.getStartX());
+        final double    x1 = mapping.toX(tile.getEndX());
+        final double    y0 = mapping.toY(tile.getStartY());
+        final double    y1 = mapping.toY(tile.getEndY());
+        final double    area = (x1 - x0) * (y1 - y0);
+        double          known = 0;
+        double          nanos = 0;
+
+        for (int row = Math.max(0, (int) Math.floor(y0 / CELL_SIZE)); row < Math.min(rows, Math.ceil(y1 / CELL_SIZE)); row++)
+        {
+            final double    overlapY = overlap(row * CELL_SIZE, Math.min(height, (row + 1) * CELL_SIZE), y0, y1);
+
+            for (int column = Math.max(0, (int) Math.floor(x0 / CELL_SIZE)); column < Math.min(columns, Math.ceil(x1 / CELL_SIZE)); column++)
+            {
+                final int       cell = row * columns + column;
+                final double    overlap = overlapY * overlap(column * CELL_SIZE, Math.min(width, (column + 1) * CELL_SIZE), x0, x1);
+
+                if (cellPixels[cell] > 0)
+                {
+                    known += overlap;
+                    nanos += overlap * cellNanos[cell] / cellPixels[cell];
+                }
+            }
+        }
+
+        final double    perPixel = (nanos + Math.max(0, area - known) * mean) / area;
+
+        return perPixel * tile.getPixelCount();
+    }
+
+
+
+    private static double overlap(final double start, final double end, final double otherStart, final double otherEnd)
+    {
+        return Math.max(0, Math.min(end, otherEnd) - Math.max(start, otherStart));
+    }
+
+    private static int overlap(final int start, final int end, final int otherStart, final int otherEnd)
+    {
+        return Math.max(0, Math.min(end, otherEnd) - Math.max(start, otherStart));
+    }
+
+
+
+    /*
+     * Maps the pixels of another view to the pixels of this frame. The offset is taken exactly, since the
+     * centers may differ by far less than their magnitude.
+     */
+    private final class Mapping
+    {
+        private final double    scale;
+        private final double    offsetX;
+        private final double    offsetY;
+        private final int       nextWidth;
+        private final int       nextHeight;
+
+        private Mapping(final Viewport next, final int nextWidth, final int nextHeight)
+        {
+            final MathContext    context = MathContext.DECIMAL64;
+            final BigDecimal     spacing = viewport.getPixelSpacing();
+
+            this.scale = next.getPixelSpacing().divide(spacing, context).doubleValue();
+            this.offsetX = next.getCenterX().subtract(viewport.getCenterX()).divide(spacing, context).doubleValue();
+            this.offsetY = next.getCenterY().subtract(viewport.getCenterY()).divide(spacing, context).doubleValue();
+            this.nextWidth = nextWidth;
+            this.nextHeight = nextHeight;
+        }
+
+        private double toX(final int x)
+        {
+            return offsetX + scale * (x - nextWidth / 2) + width / 2;
+        }
+
+        private double toY(final int y)
+        {
+            return offsetY + scale * (y - nextHeight / 2) + height / 2;
+        }
+    }
+
+
+
+    public Viewport getViewport()
+    {
+        return viewport;
+    }
+
+    public synchronized long getRecordedPixels()
+    {
+        return recordedPixels;
+    }
+
+    public synchronized long getRecordedNanos()
+    {
+        return recordedNanos;
+    }
+}
@@ -0,0 +1,56 @@
+package model;
+
+import java.math.BigDecimal;
+
+
+/*
+ * Double-double arithmetic: a number is the unevaluated sum hi + lo of two doubles, which gives about
+ * 106 significant bits. The operations write their result into a two element array, so the computing
+ * threads can iterate without creating objects.
+ */
+final class DoubleDouble
+{
+    // Hidden constructor
+    private DoubleDouble()
+    {
+    }
+
+
+
+    static void set(final BigDecimal value, final double[] result)
+    {
+        result[0] = value.doubleValue();
+        result[1] = value.subtract(new BigDecimal(result[0])).doubleValue();
+    }
+
+
+
+    static void add(final double ah, final double al, final double bh, final double bl, final double[] result)
+    {
+        final double    s = ah + bh;
+        final double    v = s - ah;
+        final double    e = (ah - (s - v)) + (bh - v) + al + bl;
+
+        normalize(s, e, result);
+    }
+
+
+
+    static void multiply(final double ah, final double al, final double bh, final double bl, final double[] result)
+    {
+        final double    p = ah * bh;
+        final double    e = Math.fma(ah, bh, -p) + (ah * bl + al * bh);
+
+        normalize(p, e, result);
+    }
+
+
+
+    private static void normalize(final double s, final double e, final double[] result)
+    {
+        final double    hi = s + e;
+
+        result[0] = hi;
+        result[1] = e - (hi - s);
+    }
+}
@@ -0,0 +1,241 @@
+package model;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The ways the computing threads can be executed. All of them are handed out as an <i>ExecutorService</i>,
+ * so the code that submits tiles does not depend on the choice; see <i>ExecutionSettings</i>.
+ */
+public enum ExecutionBackend
+{
+    FIXED("fixed"),                 // A fixed pool of platform threads
+    WORK_STEALING("forkjoin"),      // A ForkJoinPool, idle workers steal queued tasks from busy ones
+    VIRTUAL("virtual"),             // A virtual thread per task, at most one running task per thread of the settings
+    CALLER_RUNS("caller");          // Every task runs on the thread that submits it, for debugging
+
+
+    private final String    name;
+
+
+    private ExecutionBackend(final String name)
+    {
+        this.name = name;
+    }
+
+
+
+    /**
+     * Returns the backend with the given command line name.
+     *
+     * @param name - the name, e.g. <i>forkjoin</i>.
+     *
+     * @return the backend.
+     *
+     * @throws IllegalArgumentException if there is no backend with the name.
+     */
+    public static ExecutionBackend forName(final String name)
+    {
+        final List<String>    names = new ArrayList<String>();
+
+        for (ExecutionBackend backend : values())
+        {
+            if (backend.name.equalsIgnoreCase(name))
+            {
+                return backend;
+            }
+            names.add(backend.name);
+        }
+
+        throw new IllegalArgumentException("Unknown backend \"" + name + "\", use one of " + names + ".");
+    }
+
+
+
+    /**
+     * Creates an executor of this kind.
+     *
+     * @param settings - the number of threads, their names and their priority.
+     *
+     * @return the executor.
+     */
+    public ExecutorService create(final ExecutionSettings settings)
+    {
+        switch (this)
+        {
+            case WORK_STEALING:
+                return new ForkJoinPool(settings.getNumberOfThreads(), pool ->
+                {
+                    final ForkJoinWorkerThread    worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    settings.configure(worker);
+                    return worker;
+                }, null, false);
+
+            case VIRTUAL:
+                return newVirtualThreadExecutor(settings);
+
+            case CALLER_RUNS:
+                return new CallerRunsExecutor();
+
+            default:
+                return Executors.newFixedThreadPool(settings.getNumberOfThreads(), settings::newThread);
+        }
+    }
+
+
+
+    /*
+     * Virtual threads (Java 21 and later) are looked up reflectively, as in the tile server, so that the
+     * program still runs on older runtimes, on a fixed pool. A semaphore keeps the number of tasks that
+     * compute at the same time to the number of threads of the settings; a waiting virtual thread costs
+     * next to nothing. Virtual threads have no priority of their own.
+     */
+    private static ExecutorService newVirtualThreadExecutor(final ExecutionSettings settings)
+    {
+        try
+        {
+            // The methods are looked up on the public builder interface, the builder itself is of a hidden class
+            final Class<?>         builderType = Class.forName("java.lang.Thread$Builder");
+            final Object           builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Method           name = builderType.getMethod("name", String.class, long.class);
+            final Object           namedBuilder = name.invoke(builder, settings.getThreadName() + " ", 1L);
+            final ThreadFactory    factory = (ThreadFactory) builderType.getMethod("factory").invoke(namedBuilder);
+            final ExecutorService  executor = (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+
+            return new BoundedExecutor(executor, settings.getNumberOfThreads());
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            System.err.println("Virtual threads are not available, computing on a fixed pool.");
+            return FIXED.create(settings);
+        }
+    }
+
+
+
+    /*
+     * Runs every task on a virtual thread of its own, but lets only a fixed number of them compute at once.
+     */
+    private static final class BoundedExecutor extends AbstractExecutorService
+    {
+        private final ExecutorService    executor;
+        private final Semaphore          permits;
+
+        private BoundedExecutor(final ExecutorService executor, final int numberOfPermits)
+        {
+            this.executor = executor;
+            this.permits = new Semaphore(numberOfPermits);
+        }
+
+        @Override
+        public void execute(final Runnable command)
+        {
+            executor.execute(() ->
+            {
+                permits.acquireUninterruptibly();
+                try
+                {
+                    command.run();
+                }
+                finally
+                {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown()
+        {
+            executor.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow()
+        {
+            return executor.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown()
+        {
+            return executor.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated()
+        {
+            return executor.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException
+        {
+            return executor.awaitTermination(timeout, unit);
+        }
+    }
+
+
+
+    /*
+     * Runs every task at once on the submitting thread, so that a frame is computed tile after tile in a
+     * predictable order, e.g. to step through it in a debugger.
+     */
+    private static final class CallerRunsExecutor extends AbstractExecutorService
+    {
+        private volatile boolean    shutdown;
+
+        @Override
+        public void execute(final Runnable command)
+        {
+            if (shutdown)
+            {
+                throw new RejectedExecutionException("The executor is shut down.");
+            }
+            command.run();
+        }
+
+        @Override
+        public void shutdown()
+        {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow()
+        {
+            shutdown = true;
+            return new ArrayList<Runnable>();
+        }
+
+        @Override
+        public boolean isShutdown()
+        {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated()
+        {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit)
+        {
+            return shutdown;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * <h4>ExecutionSettings.java</h4> <br>
+ *
+ * How the computing threads are run: the <i>ExecutionBackend</i>, the number of threads, the names
+ * they get and their priority. The pools and worker threads that compute tiles or encode images are
+ * created from an instance, so these are set in one place, e.g. from the command line; parts of the
+ * program that name their threads differently {@link #derive} their settings from it. The threads that
+ * only wait, such as the request handlers of the tile server, timers and the window, are not. <br>
+ * The threads are daemon threads: a pool never keeps the program alive, whoever submits to it waits
+ * for its tasks. <br> <br> <br>
+ */
+public final class ExecutionSettings
+{
+    private final ExecutionBackend    backend;
+    private final int                 numberOfThreads;
+    private final String              threadName;
+    private final int                 threadPriority;
+    private final AtomicInteger       threadNumber = new AtomicInteger();
+
+
+
+    /**
+     * Constructs the settings.
+     *
+     * @param backend - the kind of executor.
+     * @param numberOfThreads - the number of tasks that may run at the same time.
+     * @param threadName - the name of the threads, they are numbered after it.
+     * @param threadPriority - the priority of the threads, between <i>Thread.MIN_PRIORITY</i> and <i>Thread.MAX_PRIORITY</i>.
+     */
+    public ExecutionSettings(final ExecutionBackend backend, final int numberOfThreads, final String threadName, final int threadPriority)
+    {
+        if (numberOfThreads <= 0)
+        {
+            throw new IllegalArgumentException("The number of threads must be positive, was " + numberOfThreads + ".");
+        }
+        if (threadPriority < Thread.MIN_PRIORITY  ||  threadPriority > Thread.MAX_PRIORITY)
+        {
+            throw new IllegalArgumentException("The thread priority must be between " + Thread.MIN_PRIORITY + " and "
+                    + Thread.MAX_PRIORITY + ", was " + threadPriority + ".");
+        }
+
+        this.backend = backend;
+        this.numberOfThreads = (backend == ExecutionBackend.CALLER_RUNS) ? 1 : numberOfThreads;
+        this.threadName = threadName;
+        this.threadPriority = threadPriority;
+    }
+
+
+
+    /**
+     * Returns settings with the backend and number of threads of these, for threads with another name
+     * and priority.
+     *
+     * @param threadName - the name of the threads, they are numbered after it.
+     * @param threadPriority - the priority of the threads.
+     *
+     * @return the settings.
+     */
+    public ExecutionSettings derive(final String threadName, final int threadPriority)
+    {
+        return new ExecutionSettings(backend, numberOfThreads, threadName, threadPriority);
+    }
+
+
+
+    /**
+     * Creates a pool with these settings.
+     *
+     * @return the pool; it must be shut down when it is no longer needed.
+     */
+    public ExecutorService newPool()
+    {
+        return backend.create(this);
+    }
+
+
+
+    /**
+     * Creates a platform thread with the name and priority of these settings.
+     *
+     * @param task - the task of the thread.
+     *
+     * @return the thread, not started.
+     */
+    public Thread newThread(final Runnable task)
+    {
+        return configure(new Thread(task));
+    }
+
+
+
+    /**
+     * Gives a thread the next name and the priority of these settings, and makes it a daemon thread.
+     *
+     * @param thread - the thread.
+     *
+     * @return the thread.
+     */
+    public <T extends Thread> T configure(final T thread)
+    {
+        thread.setName(threadName + " " + threadNumber.incrementAndGet());
+        thread.setPriority(threadPriority);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+
+
+    public ExecutionBackend getBackend()
+    {
+        return backend;
+    }
+
+    /**
+     * Returns the number of tasks that may run at the same time, which is 1 when the tasks run on the
+     * submitting thread.
+     *
+     * @return the number of threads.
+     */
+    public int getNumberOfThreads()
+    {
+        return numberOfThreads;
+    }
+
+    public String getThreadName()
+    {
+        return threadName;
+    }
+
+    public int getThreadPriority()
+    {
+        return threadPriority;
+    }
+
+
+
+    @Override
+    public String toString()
+    {
+        return "Execution:  " + backend + ",  " + numberOfThreads + " thread" + ((numberOfThreads == 1) ? "" : "s")
+                + " named \"" + threadName + " <n>\",  priority " + threadPriority;
+    }
+}
@@ -0,0 +1,113 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+
+/**
+ * <h4>FocusTileQueue.java</h4> <br>
+ *
+ * The tiles of a frame that are still to be computed, handed out nearest first to a focus point, e.g.
+ * the middle of the screen or the mouse cursor. The part of the frame the user looks at is thus done
+ * first, whatever the total time of the frame. The focus can be moved while the frame is computed; the
+ * remaining tiles are then ordered by their distance to the new focus. <br> <br>
+ *
+ * A queue may also start without a focus, handing the tiles out in the order they were given, e.g.
+ * longest first; the first focus that is set turns it into a focused queue. <br> <br> <br>
+ */
+public final class FocusTileQueue
+{
+    private Queue<Tile>    tiles;
+    private boolean        focused;
+    private double         focusX;
+    private double         focusY;
+
+
+
+    /**
+     * Constructs a queue of tiles.
+     *
+     * @param tiles - the tiles.
+     * @param focusX - the column of the focus point.
+     * @param focusY - the row of the focus point.
+     */
+    public FocusTileQueue(final Collection<Tile> tiles, final double focusX, final double focusY)
+    {
+        this.focused = true;
+        this.focusX = focusX;
+        this.focusY = focusY;
+        this.tiles = new PriorityQueue<Tile>(Math.max(1, tiles.size()), byDistance());
+        this.tiles.addAll(tiles);
+    }
+
+    /**
+     * Constructs a queue of tiles without a focus, handing them out in their order until a focus is set.
+     *
+     * @param tiles - the tiles, in the order they are to be computed.
+     */
+    public FocusTileQueue(final Collection<Tile> tiles)
+    {
+        this.tiles = new ArrayDeque<Tile>(tiles);
+    }
+
+
+
+    // Compares the squared distance of the middle of the tiles to the current focus
+    private Comparator<Tile> byDistance()
+    {
+        final double    x = focusX;
+        final double    y = focusY;
+
+        return Comparator.comparingDouble(tile ->
+        {
+            final double    dx = (tile.getStartX() + tile.getEndX()) / 2.0 - x;
+            final double    dy = (tile.getStartY() + tile.getEndY()) / 2.0 - y;
+
+            return dx * dx + dy * dy;
+        });
+    }
+
+
+
+    /**
+     * Moves the focus and reorders the remaining tiles around it.
+     *
+     * @param x - the column of the focus point.
+     * @param y - the row of the focus point.
+     */
+    public synchronized void setFocus(final double x, final double y)
+    {
+        if (focused  &&  x == focusX  &&  y == focusY)
+        {
+            return;
+        }
+
+        focused = true;
+        focusX = x;
+        focusY = y;
+
+        final PriorityQueue<Tile>    reordered = new PriorityQueue<Tile>(Math.max(1, tiles.size()), byDistance());
+        reordered.addAll(tiles);
+        tiles = reordered;
+    }
+
+
+
+    /**
+     * Takes the tile nearest to the focus, or the next tile without a focus.
+     *
+     * @return the tile, or null if all tiles are taken.
+     */
+    public synchronized Tile poll()
+    {
+        return tiles.poll();
+    }
+
+    public synchronized int size()
+    {
+        return tiles.size();
+    }
+}
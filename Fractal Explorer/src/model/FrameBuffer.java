@@ -0,0 +1,363 @@
+package model;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * <h4>FrameBuffer.java</h4> <br>
+ *
+ * A frame of 32 bit cells (ARGB colors or smooth iteration values) kept outside the Java heap, so that
+ * canvases of more than 2^31 pixels can be rendered without putting pressure on the garbage collector. <br>
+ * The cells are stored row by row in chunks of at most 1 GiB that never split a row, either in direct
+ * memory or mapped from a file. A <i>slice</i> of a frame buffer is a view of a rectangle of it that
+ * shares the same memory, so workers can write their tiles without copying. <br> <br>
+ *
+ * The file format is a header of four big endian ints <i>(MAGIC, width, height, 4)</i> followed by the
+ * rows of big endian cells. <br> <br> <br>
+ */
+public final class FrameBuffer
+{
+    // Constants
+    public static final int     MAGIC = 0x46584642;  // "FXFB"
+    public static final String  FILE_EXTENSION = "fxfb";
+    public static final int     HEADER_BYTES = 16;
+    private static final int    CELL_BYTES = 4;
+    private static final long   MAX_CHUNK_BYTES = 1L << 30;
+
+    private final ByteBuffer[]     chunks;
+    private final IntBuffer[]      intViews;
+    private final FloatBuffer[]    floatViews;
+    private final int              rowsPerChunk;
+    private final int              stride;     // The width of the whole frame
+    private final int              originX;
+    private final int              originY;
+    private final int              width;
+    private final int              height;
+
+
+
+    private FrameBuffer(final ByteBuffer[] chunks, final int rowsPerChunk, final int stride,
+                        final int originX, final int originY, final int width, final int height)
+    {
+        this.chunks = chunks;
+        this.rowsPerChunk = rowsPerChunk;
+        this.stride = stride;
+        this.originX = originX;
+        this.originY = originY;
+        this.width = width;
+        this.height = height;
+
+        intViews = new IntBuffer[chunks.length];
+        floatViews = new FloatBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; i++)
+        {
+            intViews[i] = chunks[i].asIntBuffer();
+            floatViews[i] = chunks[i].asFloatBuffer();
+        }
+    }
+
+
+
+    /**
+     * Allocates a frame buffer in direct memory. The cells are initially zero.
+     *
+     * @param width - the width of the frame.
+     * @param height - the height of the frame.
+     *
+     * @return the frame buffer.
+     */
+    public static FrameBuffer allocate(final int width, final int height)
+    {
+        final int             rowsPerChunk = rowsPerChunk(width, height);
+        final ByteBuffer[]    chunks = new ByteBuffer[(height + rowsPerChunk - 1) / rowsPerChunk];
+
+        for (int i = 0; i < chunks.length; i++)
+        {
+            final int    rows = Math.min(rowsPerChunk, height - i * rowsPerChunk);
+            chunks[i] = ByteBuffer.allocateDirect(rows * width * CELL_BYTES);
+        }
+
+        return new FrameBuffer(chunks, rowsPerChunk, width, 0, 0, width, height);
+    }
+
+
+
+    /**
+     * Creates a file for a frame and maps the frame buffer onto it, so that everything written to the
+     * buffer ends up in the file without a separate export step. An existing file is overwritten.
+     *
+     * @param file - the file.
+     * @param width - the width of the frame.
+     * @param height - the height of the frame.
+     *
+     * @return the frame buffer.
+     *
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static FrameBuffer map(final Path file, final int width, final int height) throws IOException
+    {
+        final int    rowsPerChunk = rowsPerChunk(width, height);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            final ByteBuffer    header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(width).putInt(height).putInt(CELL_BYTES).flip();
+            channel.write(header, 0);
+
+            return new FrameBuffer(mapChunks(channel, width, height, rowsPerChunk), rowsPerChunk, width, 0, 0, width, height);
+        }
+    }
+
+
+
+    /**
+     * Maps the frame buffer stored in a file.
+     *
+     * @param file - the file, as written through {@link #map(Path, int, int)}.
+     *
+     * @return the frame buffer.
+     *
+     * @throws IOException if the file cannot be read or is not a frame buffer.
+     */
+    public static FrameBuffer open(final Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            final ByteBuffer    header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()  &&  channel.read(header, header.position()) >= 0)
+            {
+            }
+            header.flip();
+
+            if (header.remaining() < HEADER_BYTES  ||  header.getInt() != MAGIC)
+            {
+                throw new IOException(file + " is not a frame buffer.");
+            }
+
+            final int    width = header.getInt();
+            final int    height = header.getInt();
+            if (header.getInt() != CELL_BYTES  ||  channel.size() < HEADER_BYTES + (long) width * height * CELL_BYTES)
+            {
+                throw new IOException(file + " is truncated or has an unknown cell size.");
+            }
+
+            final int    rowsPerChunk = rowsPerChunk(width, height);
+            return new FrameBuffer(mapChunks(channel, width, height, rowsPerChunk), rowsPerChunk, width, 0, 0, width, height);
+        }
+    }
+
+
+
+    private static ByteBuffer[] mapChunks(final FileChannel channel, final int width, final int height, final int rowsPerChunk)
+            throws IOException
+    {
+        final ByteBuffer[]    chunks = new ByteBuffer[(height + rowsPerChunk - 1) / rowsPerChunk];
+
+        for (int i = 0; i < chunks.length; i++)
+        {
+            final int     rows = Math.min(rowsPerChunk, height - i * rowsPerChunk);
+            final long    position = HEADER_BYTES + (long) i * rowsPerChunk * width * CELL_BYTES;
+
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) rows * width * CELL_BYTES);
+        }
+
+        return chunks;
+    }
+
+
+
+    // The number of whole rows that fit into one chunk
+    private static int rowsPerChunk(final int width, final int height)
+    {
+        if (width <= 0  ||  height <= 0)
+        {
+            throw new IllegalArgumentException("The frame " + width + " x " + height + " is empty.");
+        }
+        if ((long) width * CELL_BYTES > MAX_CHUNK_BYTES)
+        {
+            throw new IllegalArgumentException("The frame is too wide, was " + width + " pixels.");
+        }
+
+        return (int) Math.min(height, MAX_CHUNK_BYTES / ((long) width * CELL_BYTES));
+    }
+
+
+
+    /**
+     * Returns a view of a rectangle of this frame buffer. The view shares the memory of this buffer,
+     * and its coordinates are relative to the corner of the rectangle.
+     *
+     * @param x - the left column of the rectangle.
+     * @param y - the top row of the rectangle.
+     * @param sliceWidth - the width of the rectangle.
+     * @param sliceHeight - the height of the rectangle.
+     *
+     * @return the view.
+     */
+    public FrameBuffer slice(final int x, final int y, final int sliceWidth, final int sliceHeight)
+    {
+        if (x < 0  ||  y < 0  ||  sliceWidth <= 0  ||  sliceHeight <= 0  ||  x + sliceWidth > width  ||  y + sliceHeight > height)
+        {
+            throw new IllegalArgumentException("The slice (" + x + ", " + y + ") + " + sliceWidth + " x " + sliceHeight
+                    + " is not inside the " + width + " x " + height + " frame.");
+        }
+
+        return new FrameBuffer(chunks, rowsPerChunk, stride, originX + x, originY + y, sliceWidth, sliceHeight);
+    }
+
+    /**
+     * Returns a view of the area of a tile of this frame buffer.
+     *
+     * @param tile - the tile.
+     *
+     * @return the view.
+     */
+    public FrameBuffer slice(final Tile tile)
+    {
+        return slice(tile.getStartX(), tile.getStartY(), tile.getEndX() - tile.getStartX(), tile.getEndY() - tile.getStartY());
+    }
+
+
+
+    public int getInt(final int x, final int y)
+    {
+        return intViews[chunkOf(y)].get(indexOf(x, y));
+    }
+
+    public void setInt(final int x, final int y, final int value)
+    {
+        intViews[chunkOf(y)].put(indexOf(x, y), value);
+    }
+
+    public float getFloat(final int x, final int y)
+    {
+        return floatViews[chunkOf(y)].get(indexOf(x, y));
+    }
+
+    public void setFloat(final int x, final int y, final float value)
+    {
+        floatViews[chunkOf(y)].put(indexOf(x, y), value);
+    }
+
+
+
+    /**
+     * Copies a row of this view into an array.
+     *
+     * @param y - the row.
+     * @param destination - the array, with room for <i>getWidth()</i> cells from <i>offset</i> on.
+     * @param offset - the index of the first cell in the array.
+     */
+    public void getRow(final int y, final int[] destination, final int offset)
+    {
+        intViews[chunkOf(y)].get(indexOf(0, y), destination, offset, width);
+    }
+
+    /**
+     * Copies an array into a row of this view.
+     *
+     * @param y - the row.
+     * @param source - the array, with <i>getWidth()</i> cells from <i>offset</i> on.
+     * @param offset - the index of the first cell in the array.
+     */
+    public void setRow(final int y, final int[] source, final int offset)
+    {
+        intViews[chunkOf(y)].put(indexOf(0, y), source, offset, width);
+    }
+
+    public void getRow(final int y, final float[] destination, final int offset)
+    {
+        floatViews[chunkOf(y)].get(indexOf(0, y), destination, offset, width);
+    }
+
+    public void setRow(final int y, final float[] source, final int offset)
+    {
+        floatViews[chunkOf(y)].put(indexOf(0, y), source, offset, width);
+    }
+
+
+
+    private int chunkOf(final int y)
+    {
+        return (originY + y) / rowsPerChunk;
+    }
+
+    private int indexOf(final int x, final int y)
+    {
+        return ((originY + y) % rowsPerChunk) * stride + originX + x;
+    }
+
+
+
+    /**
+     * Writes the cells of a file mapped frame buffer through to the file; does nothing for direct memory.
+     */
+    public void force()
+    {
+        for (ByteBuffer chunk : chunks)
+        {
+            if (chunk instanceof MappedByteBuffer)
+            {
+                ((MappedByteBuffer) chunk).force();
+            }
+        }
+    }
+
+
+
+    /**
+     * Copies this view into an image, reading the cells as RGB colors. Only possible for views with
+     * fewer than 2^31 pixels.
+     *
+     * @return the image.
+     */
+    public BufferedImage toImage()
+    {
+        if ((long) width * height > Integer.MAX_VALUE)
+        {
+            throw new IllegalStateException("A " + width + " x " + height + " frame does not fit into an image.");
+        }
+
+        final BufferedImage    image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final int[]            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        for (int y = 0; y < height; y++)
+        {
+            getRow(y, pixels, y * width);
+        }
+
+        return image;
+    }
+
+
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Returns the number of cells in this view, which may exceed the range of an int.
+     *
+     * @return the number of cells.
+     */
+    public long getCellCount()
+    {
+        return (long) width * height;
+    }
+}
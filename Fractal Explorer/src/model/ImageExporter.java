@@ -0,0 +1,402 @@
+package model;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+
+/**
+ * <h4>ImageExporter.java</h4> <br>
+ *
+ * Writes frames to files on a background thread, so the window never waits for an export. A frame is
+ * either taken from the render buffer as it is, or rendered again at a multiple of the resolution of
+ * the window from the view that is on screen. Both are exact; nothing is read back from the screen. <br>
+ * PNG files are written by a <i>PngWriter</i>, which compresses on all cores; a rendered frame is
+ * streamed into it band by band, so it never has to fit into memory. Frames in other formats with more
+ * than 2^31 pixels do not fit into an image and are written in the <i>FrameBuffer</i> file format instead,
+ * with the extension <i>.fxfb</i> appended unless the file has it. <br>
+ * Frames rendered on the heap reserve their memory from the <i>MemoryBudget</i>, so an export waits
+ * while the budget is taken instead of growing the heap. <br>
+ * Exports render and compress on one pool, created once from the <i>ExecutionSettings</i> of the exporter;
+ * by default one thread per core at the lowest priority, so the window stays responsive. <br> <br> <br>
+ */
+public final class ImageExporter
+{
+    // Singleton instance
+    private static final ImageExporter    INSTANCE = new ImageExporter();
+
+    // Constants
+    private static final String    DEFAULT_FORMAT = "png";
+    private static final int       TILE_SIZE = 256;
+
+    private final ExecutorService    exporter;
+    private ExecutionSettings        execution = new ExecutionSettings(ExecutionBackend.FIXED, Runtime.getRuntime().availableProcessors(),
+                                                                       "Export thread", Thread.MIN_PRIORITY);
+    private ExecutorService          pool;
+    private volatile Viewport        viewport;
+    private volatile int             maxNumberOfIterations;
+    private volatile int             scale = 1;
+
+
+
+    // Hidden constructor
+    private ImageExporter()
+    {
+        exporter = Executors.newSingleThreadExecutor(runnable ->
+        {
+            final Thread    thread = new Thread(runnable, "Exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+
+    // Thread-safe
+    public static ImageExporter getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+
+    /**
+     * Sets the view that is on screen, for exports that render it again.
+     *
+     * @param viewport - the viewport.
+     * @param maxNumberOfIterations - the iteration limit.
+     */
+    public void setView(final Viewport viewport, final int maxNumberOfIterations)
+    {
+        this.viewport = viewport;
+        this.maxNumberOfIterations = maxNumberOfIterations;
+    }
+
+    /**
+     * Sets the multiple of the window resolution that exports are rendered at.
+     *
+     * @param scale - the multiple, at least 1.
+     */
+    public void setScale(final int scale)
+    {
+        if (scale < 1)
+        {
+            throw new IllegalArgumentException("The export scale must be at least 1, was " + scale + ".");
+        }
+
+        this.scale = scale;
+    }
+
+    public int getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * Sets how the threads that render and compress exports are run. The pool of the previous settings
+     * finishes the exports it has started.
+     *
+     * @param execution - the settings.
+     */
+    public synchronized void setExecution(final ExecutionSettings execution)
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+
+        this.execution = execution;
+    }
+
+
+
+    /**
+     * Writes an image, e.g. a snapshot of the render buffer, to a file in the background. The format
+     * is taken from the extension of the file; files without a known extension are written as PNG.
+     *
+     * @param image - the image; it must not be changed until the export is done.
+     * @param file - the file.
+     *
+     * @return the file that was written, once it is written.
+     */
+    public CompletableFuture<File> export(final BufferedImage image, final File file)
+    {
+        return CompletableFuture.supplyAsync(() -> write(image, file), exporter);
+    }
+
+
+
+    // The pool of the exports, created on the first export that needs it
+    private synchronized ExecutorService getPool()
+    {
+        if (pool == null)
+        {
+            pool = execution.newPool();
+        }
+
+        return pool;
+    }
+
+    private synchronized int getNumberOfThreads()
+    {
+        return execution.getNumberOfThreads();
+    }
+
+
+
+    /**
+     * Renders the view on screen again at the export scale and writes it to a file in the background.
+     * The tiles are rendered at the lowest thread priority, so the window stays responsive.
+     *
+     * @param width - the width of the window.
+     * @param height - the height of the window.
+     * @param file - the file.
+     *
+     * @return the file that was written, once it is written.
+     */
+    public CompletableFuture<File> exportRendered(final int width, final int height, final File file)
+    {
+        final Viewport    view = viewport;
+        final int         iterations = maxNumberOfIterations;
+        final int         factor = scale;
+
+        if (view == null)
+        {
+            return CompletableFuture.failedFuture(new IllegalStateException("There is no view to export yet."));
+        }
+
+        return CompletableFuture.supplyAsync(() ->
+        {
+            final long    exportWidth  = (long) width * factor;
+            final long    exportHeight = (long) height * factor;
+
+            if (exportWidth > Integer.MAX_VALUE  ||  exportHeight > Integer.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("A " + exportWidth + " x " + exportHeight + " frame is too large.");
+            }
+
+            try
+            {
+                if (formatOf(targetOf(file)).equals(DEFAULT_FORMAT))
+                {
+                    return renderPng(view.zoomedBy(factor), (int) exportWidth, (int) exportHeight, iterations, file,
+                                     getPool(), getNumberOfThreads());
+                }
+
+                if (exportWidth * exportHeight > Integer.MAX_VALUE)
+                {
+                    final File           target = formatOf(file).equals(FrameBuffer.FILE_EXTENSION) ? file
+                            : new File(file.getPath() + "." + FrameBuffer.FILE_EXTENSION);
+                    final FrameBuffer    frame = FrameBuffer.map(target.toPath(), (int) exportWidth, (int) exportHeight);
+                    render(frame, view.zoomedBy(factor), iterations, getPool());
+                    frame.force();
+
+                    return target;
+                }
+
+                // The frame and its image; an export larger than the budget waits for all of it
+                final MemoryBudget    memory = MemoryBudget.getInstance();
+                final long            bytes = Math.min(2 * exportWidth * exportHeight * Integer.BYTES, memory.getBudget());
+
+                memory.reserve(bytes);
+                try
+                {
+                    final FrameBuffer    frame = FrameBuffer.allocate((int) exportWidth, (int) exportHeight);
+                    render(frame, view.zoomedBy(factor), iterations, getPool());
+
+                    return write(frame.toImage(), file);
+                }
+                finally
+                {
+                    memory.release(bytes);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }, exporter);
+    }
+
+
+
+    /**
+     * Renders a view band by band and streams the bands into a PNG file, so that the frame is never
+     * in memory as a whole; a band is rendered while the one before is compressed. Both happen on the
+     * same pool. Files without a known extension get the extension <i>.png</i>.
+     *
+     * @param view - the view.
+     * @param width - the width of the frame.
+     * @param height - the height of the frame.
+     * @param iterations - the iteration limit.
+     * @param file - the file.
+     * @param pool - the pool that renders the bands and compresses them; it is not shut down.
+     * @param numberOfThreads - the number of threads of the pool.
+     *
+     * @return the file that was written.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public static File renderPng(final Viewport view, final int width, final int height, final int iterations, final File file,
+                                 final ExecutorService pool, final int numberOfThreads) throws IOException
+    {
+        final File             target = targetOf(file);
+        final PrecisionTier    tier = new PrecisionManager().select(view, width, height, iterations);
+        final int              bandHeight = Math.min(TILE_SIZE, height);
+
+        // The band and its rows on the heap
+        final MemoryBudget    memory = MemoryBudget.getInstance();
+        final long            bytes = Math.min(2L * width * bandHeight * Integer.BYTES, memory.getBudget());
+
+        memory.reserve(bytes);
+        try (PngWriter png = new PngWriter(new BufferedOutputStream(new FileOutputStream(target)), width, height, pool, numberOfThreads))
+        {
+            final FrameBuffer    band = FrameBuffer.allocate(width, bandHeight);
+            final int[]          rows = new int[width * bandHeight];
+
+            for (int y = 0; y < height; y += bandHeight)
+            {
+                final FrameBuffer    rendered = band.slice(0, 0, width, Math.min(bandHeight, height - y));
+
+                render(rendered, y, width, height, view, tier, iterations, pool);
+                for (int row = 0; row < rendered.getHeight(); row++)
+                {
+                    rendered.getRow(row, rows, row * width);
+                }
+                png.writeRows(rows, 0, rendered.getHeight());
+            }
+        }
+        finally
+        {
+            memory.release(bytes);
+        }
+
+        return target;
+    }
+
+
+
+    // Renders a view tile by tile into a frame buffer
+    private static void render(final FrameBuffer frame, final Viewport view, final int iterations, final ExecutorService pool)
+    {
+        final PrecisionTier    tier = new PrecisionManager().select(view, frame.getWidth(), frame.getHeight(), iterations);
+
+        render(frame, 0, frame.getWidth(), frame.getHeight(), view, tier, iterations, pool);
+    }
+
+
+
+    // Renders the rows of a frame from a row on, as many as the target has, tile by tile into the target
+    private static void render(final FrameBuffer target, final int y, final int frameWidth, final int frameHeight, final Viewport view,
+                               final PrecisionTier tier, final int iterations, final ExecutorService pool)
+    {
+        final List<Callable<Void>>    tasks = new ArrayList<Callable<Void>>();
+
+        for (Tile tile : Tile.split(target.getWidth(), target.getHeight(), TILE_SIZE))
+        {
+            final MandelbrotSetComputingThread    thread = new MandelbrotSetComputingThread(tile.getID(), tile.getStartX(), y + tile.getStartY(),
+                    tile.getEndX(), y + tile.getEndY(), frameWidth, frameHeight, view, tier, iterations);
+
+            tasks.add(() ->
+            {
+                thread.renderInto(target.slice(tile));
+                return null;
+            });
+        }
+
+        try
+        {
+            for (Future<Void> future : pool.invokeAll(tasks))
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The export was interrupted.", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException("A tile of the export failed.", e.getCause());
+        }
+    }
+
+
+
+    private File write(final BufferedImage image, final File file)
+    {
+        final File      target = targetOf(file);
+        final String    format = formatOf(target);
+
+        try
+        {
+            if (format.equals(DEFAULT_FORMAT))
+            {
+                writePng(image, target);
+            }
+            else if (!ImageIO.write(image, format, target))
+            {
+                throw new IOException("No writer for " + target + ".");
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return target;
+    }
+
+
+
+    // Streams the rows of an image into a PNG file, a band at a time
+    private void writePng(final BufferedImage image, final File target) throws IOException
+    {
+        final int      width = image.getWidth();
+        final int      height = image.getHeight();
+        final int[]    rows = new int[width * Math.min(TILE_SIZE, height)];
+
+        try (PngWriter png = new PngWriter(new BufferedOutputStream(new FileOutputStream(target)), width, height, getPool(), getNumberOfThreads()))
+        {
+            for (int y = 0; y < height; y += TILE_SIZE)
+            {
+                final int    bandHeight = Math.min(TILE_SIZE, height - y);
+
+                image.getRGB(0, y, width, bandHeight, rows, 0, width);
+                png.writeRows(rows, 0, bandHeight);
+            }
+        }
+    }
+
+
+
+    // The file itself if its extension is a known format, else the file with the default extension
+    private static File targetOf(final File file)
+    {
+        return ImageIO.getImageWritersBySuffix(formatOf(file)).hasNext() ? file : new File(file.getPath() + "." + DEFAULT_FORMAT);
+    }
+
+    private static String formatOf(final File file)
+    {
+        final String    name = file.getName();
+        final int       dot = name.lastIndexOf('.');
+
+        return (dot < 0) ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,152 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+
+/**
+ * <h4>IterationHistogram.java</h4> <br>
+ *
+ * A histogram of the iteration counts of a frame, used for histogram-equalized coloring: a pixel is
+ * colored by the fraction of escaping pixels with a lower iteration count, so the colors spread evenly
+ * over the frame whatever the zoom. <br> <br>
+ *
+ * A tile is counted into a slot histogram that no other tile uses at the same time, so the kernel pass
+ * never contends for it. A slot is taken for the count and given back after it, so there are never more
+ * slots than tiles counted at once, i.e. than computing threads, whatever threads run the tiles; with
+ * virtual threads a histogram per thread would be one per tile. Once all tiles are computed, {@link #merge}
+ * adds the slot histograms together in parallel, one stripe of bins per task, and turns the sum into a
+ * cumulative histogram. <br> <br> <br>
+ */
+public final class IterationHistogram
+{
+    // Constants
+    private static final int    MAX_BINS = 1 << 16;
+    private static final int    BINS_PER_MERGE_TASK = 1024;
+
+    private final int                 numberOfBins;
+    private final double              binWidth;
+    private final Queue<int[]>        slots = new ConcurrentLinkedQueue<int[]>();
+    private final Queue<int[]>        freeSlots = new ConcurrentLinkedQueue<int[]>();
+    private long[]                    cumulative;
+
+
+
+    public IterationHistogram(final int maxNumberOfIterations)
+    {
+        numberOfBins = Math.min(maxNumberOfIterations + 1, MAX_BINS);
+        binWidth = (maxNumberOfIterations + 1) / (double) numberOfBins;
+    }
+
+
+
+    /**
+     * Counts the smooth iteration values of the escaping points of a tile. May be called by many
+     * threads at once.
+     *
+     * @param iterations - the smooth iteration values, <i>MandelbrotSetComputingThread.INSIDE</i> for
+     *                     points that do not escape.
+     */
+    public void count(final float[] iterations)
+    {
+        int[]    counts = freeSlots.poll();
+
+        if (counts == null)
+        {
+            counts = new int[numberOfBins];
+            slots.add(counts);
+        }
+
+        for (float mu : iterations)
+        {
+            if (mu != MandelbrotSetComputingThread.INSIDE)
+            {
+                counts[binOf(mu)]++;
+            }
+        }
+
+        freeSlots.add(counts);
+    }
+
+
+
+    /**
+     * Returns the bin of a smooth iteration value.
+     *
+     * @param mu - the smooth iteration value of an escaping point.
+     *
+     * @return the bin.
+     */
+    public int binOf(final float mu)
+    {
+        return Math.max(0, Math.min(numberOfBins - 1, (int) (mu / binWidth)));
+    }
+
+
+
+    /**
+     * Adds all slot histograms together and computes the cumulative histogram. Must be called
+     * after every tile has been computed, and before {@link #equalize}.
+     *
+     * @param pool - the threads to merge on.
+     */
+    public void merge(final ExecutorService pool) throws InterruptedException
+    {
+        final int[][]        histograms = slots.toArray(new int[0][]);
+        final long[]         sum = new long[numberOfBins];
+        final List<Callable<Void>>    tasks = new ArrayList<Callable<Void>>();
+
+        for (int first = 0; first < numberOfBins; first += BINS_PER_MERGE_TASK)
+        {
+            final int    from = first;
+            final int    to   = Math.min(first + BINS_PER_MERGE_TASK, numberOfBins);
+
+            tasks.add(() ->
+            {
+                for (int[] histogram : histograms)
+                {
+                    for (int bin = from; bin < to; bin++)
+                    {
+                        sum[bin] += histogram[bin];
+                    }
+                }
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+
+        Arrays.parallelPrefix(sum, Long::sum);
+        cumulative = sum;
+    }
+
+
+
+    /**
+     * Returns the fraction of escaping pixels with a smooth iteration value below <i>mu</i>,
+     * interpolated within the bin so that the colors stay smooth.
+     *
+     * @param mu - the smooth iteration value of an escaping point.
+     *
+     * @return the fraction, between 0 and 1.
+     */
+    public float equalize(final float mu)
+    {
+        final long    total = cumulative[numberOfBins - 1];
+
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        final int       bin = binOf(mu);
+        final long      below = (bin == 0) ? 0 : cumulative[bin - 1];
+        final double    withinBin = Math.max(0, Math.min(1, mu / binWidth - bin));
+
+        return (float) ((below + withinBin * (cumulative[bin] - below)) / total);
+    }
+}
@@ -0,0 +1,337 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * <h4>IterationSnapshot.java</h4> <br>
+ *
+ * A rendered frame saved as its smooth iteration values together with the view it shows, so that it
+ * can be reloaded and colored again without computing anything. <br> <br>
+ *
+ * The frame is stored in tiles that are encoded and decoded in parallel. Within a tile, every value is
+ * stored as the difference of its float bits to the value to the left of it (or above it, for the first
+ * column), as a zig-zag varint, and the tile is then deflated. The values are restored bit for bit. <br> <br>
+ *
+ * <i>Layout:</i>
+ * <li> MAGIC, VERSION </li>
+ * <li> center x, center y and pixel spacing as decimal strings </li>
+ * <li> maximum number of iterations, width, height, tile size </li>
+ * <li> for each tile, row by row: the length of the deflated tile and its bytes </li> <br> <br> <br>
+ */
+public final class IterationSnapshot
+{
+    // Constants
+    private static final int    MAGIC = 0x4658534E;  // "FXSN"
+    private static final int    VERSION = 1;
+    private static final int    TILE_SIZE = 128;
+
+    private final Viewport    viewport;
+    private final int         maxNumberOfIterations;
+    private final int         width;
+    private final int         height;
+    private final float[]     iterations;
+
+
+
+    /**
+     * Constructs a snapshot of a frame.
+     *
+     * @param viewport - the view of the frame.
+     * @param maxNumberOfIterations - the iteration limit the frame was computed with.
+     * @param width - the width of the frame.
+     * @param height - the height of the frame.
+     * @param iterations - the smooth iteration values of the frame, row by row.
+     */
+    public IterationSnapshot(final Viewport viewport, final int maxNumberOfIterations, final int width, final int height, final float[] iterations)
+    {
+        if (iterations.length != width * height)
+        {
+            throw new IllegalArgumentException("Expected " + width * height + " iteration values, got " + iterations.length + ".");
+        }
+
+        this.viewport = viewport;
+        this.maxNumberOfIterations = maxNumberOfIterations;
+        this.width = width;
+        this.height = height;
+        this.iterations = iterations;
+    }
+
+
+
+    /**
+     * Writes this snapshot to a stream, encoding the tiles on a pool.
+     *
+     * @param out - the stream; it is not closed.
+     * @param pool - the pool.
+     *
+     * @throws IOException if the stream cannot be written.
+     * @throws InterruptedException if interrupted while encoding.
+     */
+    public void write(final OutputStream out, final ExecutorService pool) throws IOException, InterruptedException
+    {
+        final List<Callable<byte[]>>    encoders = new ArrayList<Callable<byte[]>>();
+
+        for (Tile tile : Tile.split(width, height, TILE_SIZE))
+        {
+            encoders.add(() -> encode(tile));
+        }
+
+        final List<Future<byte[]>>    tiles = pool.invokeAll(encoders);
+        final DataOutputStream        data = new DataOutputStream(out);
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeUTF(viewport.getCenterX().toString());
+        data.writeUTF(viewport.getCenterY().toString());
+        data.writeUTF(viewport.getPixelSpacing().toString());
+        data.writeInt(maxNumberOfIterations);
+        data.writeInt(width);
+        data.writeInt(height);
+        data.writeInt(TILE_SIZE);
+
+        for (Future<byte[]> tile : tiles)
+        {
+            final byte[]    bytes = get(tile);
+
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+        data.flush();
+    }
+
+
+
+    /**
+     * Reads a snapshot from a stream, decoding the tiles on a pool.
+     *
+     * @param in - the stream; it is not closed.
+     * @param pool - the pool.
+     *
+     * @return the snapshot.
+     *
+     * @throws IOException if the stream cannot be read or does not hold a snapshot.
+     * @throws InterruptedException if interrupted while decoding.
+     */
+    public static IterationSnapshot read(final InputStream in, final ExecutorService pool) throws IOException, InterruptedException
+    {
+        final DataInputStream    data = new DataInputStream(in);
+
+        if (data.readInt() != MAGIC  ||  data.readInt() != VERSION)
+        {
+            throw new IOException("Not a snapshot, or a snapshot of an unknown version.");
+        }
+
+        final Viewport    viewport = new Viewport(new BigDecimal(data.readUTF()), new BigDecimal(data.readUTF()), new BigDecimal(data.readUTF()));
+        final int         maxNumberOfIterations = data.readInt();
+        final int         width = data.readInt();
+        final int         height = data.readInt();
+        final int         tileSize = data.readInt();
+
+        if (width <= 0  ||  height <= 0  ||  (long) width * height > Integer.MAX_VALUE  ||  tileSize <= 0)
+        {
+            throw new IOException("Corrupt snapshot header: " + width + " x " + height + ", tile size " + tileSize + ".");
+        }
+
+        final IterationSnapshot       snapshot = new IterationSnapshot(viewport, maxNumberOfIterations, width, height, new float[width * height]);
+        final List<Callable<Void>>    decoders = new ArrayList<Callable<Void>>();
+
+        for (Tile tile : Tile.split(width, height, tileSize))
+        {
+            final byte[]    bytes = new byte[data.readInt()];
+            data.readFully(bytes);
+
+            decoders.add(() ->
+            {
+                snapshot.decode(tile, bytes);
+                return null;
+            });
+        }
+
+        for (Future<Void> decoder : pool.invokeAll(decoders))
+        {
+            get(decoder);
+        }
+
+        return snapshot;
+    }
+
+
+
+    private byte[] encode(final Tile tile)
+    {
+        final ByteArrayOutputStream    varints = new ByteArrayOutputStream(tile.getPixelCount() * 2);
+
+        for (int y = tile.getStartY(); y < tile.getEndY(); y++)
+        {
+            int    previous = (y == tile.getStartY()) ? 0 : bitsAt(tile.getStartX(), y - 1);
+
+            for (int x = tile.getStartX(); x < tile.getEndX(); x++)
+            {
+                final int    bits = bitsAt(x, y);
+                final int    delta = bits - previous;
+
+                writeVarint(varints, (delta << 1) ^ (delta >> 31));
+                previous = bits;
+            }
+        }
+
+        final Deflater                 deflater = new Deflater(Deflater.BEST_SPEED);
+        final ByteArrayOutputStream    deflated = new ByteArrayOutputStream(varints.size() / 4);
+        final byte[]                   chunk = new byte[8192];
+
+        deflater.setInput(varints.toByteArray());
+        deflater.finish();
+        while (!deflater.finished())
+        {
+            deflated.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+
+        return deflated.toByteArray();
+    }
+
+
+
+    private void decode(final Tile tile, final byte[] bytes) throws IOException
+    {
+        final Inflater    inflater = new Inflater();
+        final byte[]      varints = new byte[tile.getPixelCount() * 5];
+        int               length = 0;
+
+        inflater.setInput(bytes);
+        try
+        {
+            while (!inflater.finished()  &&  length < varints.length)
+            {
+                final int    inflated = inflater.inflate(varints, length, varints.length - length);
+                if (inflated == 0  &&  (inflater.needsInput()  ||  inflater.needsDictionary()))
+                {
+                    throw new IOException("Truncated tile " + tile.getID() + ".");
+                }
+                length += inflated;
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException("Corrupt tile " + tile.getID() + ".", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+
+        int    position = 0;
+        for (int y = tile.getStartY(); y < tile.getEndY(); y++)
+        {
+            int    previous = (y == tile.getStartY()) ? 0 : bitsAt(tile.getStartX(), y - 1);
+
+            for (int x = tile.getStartX(); x < tile.getEndX(); x++)
+            {
+                int    zigzag = 0;
+                int    shift = 0;
+                byte   b;
+                do
+                {
+                    if (position >= length)
+                    {
+                        throw new IOException("Truncated tile " + tile.getID() + ".");
+                    }
+                    b = varints[position++];
+                    zigzag |= (b & 0x7F) << shift;
+                    shift += 7;
+                }
+                while (b < 0);
+
+                final int    bits = previous + ((zigzag >>> 1) ^ -(zigzag & 1));
+
+                iterations[y * width + x] = Float.intBitsToFloat(bits);
+                previous = bits;
+            }
+        }
+    }
+
+
+
+    private int bitsAt(final int x, final int y)
+    {
+        return Float.floatToRawIntBits(iterations[y * width + x]);
+    }
+
+
+
+    private static void writeVarint(final ByteArrayOutputStream out, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+
+
+    private static <T> T get(final Future<T> future) throws IOException, InterruptedException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+
+
+    public Viewport getViewport()
+    {
+        return viewport;
+    }
+
+    public int getMaxNumberOfIterations()
+    {
+        return maxNumberOfIterations;
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Returns the smooth iteration values of the frame, row by row.
+     *
+     * @return the values; not a copy.
+     */
+    public float[] getIterations()
+    {
+        return iterations;
+    }
+}
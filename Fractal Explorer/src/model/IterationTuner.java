@@ -0,0 +1,173 @@
+package model;
+
+import java.util.Arrays;
+
+
+/**
+ * <h4>IterationTuner.java</h4> <br>
+ *
+ * Picks the maximum number of iterations for a view. A low resolution probe of the view is rendered
+ * with a generous iteration limit, and the limit is set just above the iteration count that all but
+ * a tiny fraction of the pixels stay below; the pixels beyond it would be colored black instead of
+ * almost black. Shallow views, where points escape quickly, get a small budget, and deep views, where
+ * the boundary needs many iterations to resolve, get a large one. <br> <br>
+ *
+ * The tuner remembers the previous budget and starts the next probe from it, so it follows the user
+ * while zooming; small changes are ignored to keep the colors from flickering between frames. <br> <br> <br>
+ */
+public final class IterationTuner
+{
+    // Constants
+    public static final int        MIN_ITERATIONS = 100;
+    public static final int        MAX_ITERATIONS = 1_000_000;
+    private static final int       PROBE_SIDE = 48;
+    private static final double    MARGIN = 1.5;
+    private static final double    TAIL_FRACTION = 0.002;
+    private static final double    HYSTERESIS = 0.2;
+    private static final int       MAX_PROBES = 4;
+
+    private int       maxNumberOfIterations;
+    private double    escapeFraction;
+    private int       probes;
+
+
+
+    public IterationTuner(final int initialMaxNumberOfIterations)
+    {
+        maxNumberOfIterations = clamp(initialMaxNumberOfIterations);
+    }
+
+
+
+    /**
+     * Probes a view and returns the smallest iteration limit that preserves its visible detail.
+     *
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     * @param centerX - the real part of the point in the middle of the frame.
+     * @param centerY - the imaginary part of the point in the middle of the frame.
+     * @param zoom - the number of pixels per unit length.
+     *
+     * @return the iteration limit.
+     */
+    public int tune(final int frameWidth, final int frameHeight, final double centerX, final double centerY, final double zoom)
+    {
+        return tune(frameWidth, frameHeight, Viewport.of(centerX, centerY, zoom), PrecisionTier.DOUBLE);
+    }
+
+
+
+    /**
+     * Probes a view, iterating with the given arithmetic, and returns the smallest iteration limit
+     * that preserves its visible detail.
+     *
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     * @param viewport - the part of the complex plane shown in the frame.
+     * @param tier - the arithmetic the frame will be rendered with.
+     *
+     * @return the iteration limit.
+     */
+    public int tune(final int frameWidth, final int frameHeight, final Viewport viewport, final PrecisionTier tier)
+    {
+        // The probe has the same aspect ratio as the frame, with its shorter side PROBE_SIDE pixels long
+        final double    scale = Math.max(1.0, Math.min(frameWidth, frameHeight) / (double) PROBE_SIDE);
+        final int       probeWidth  = Math.max(1, (int) (frameWidth / scale));
+        final int       probeHeight = Math.max(1, (int) (frameHeight / scale));
+        final Viewport  probeViewport = viewport.zoomedBy(1 / scale);
+
+        int    probeLimit = clamp(2 * maxNumberOfIterations);
+        int    budget = maxNumberOfIterations;
+
+        for (probes = 1; probes <= MAX_PROBES; probes++)
+        {
+            final float[]    iterations = new MandelbrotSetComputingThread(0, 0, 0, probeWidth, probeHeight, probeWidth, probeHeight,
+                    probeViewport, tier, probeLimit).computeIterations();
+
+            final float[]    escaped = new float[iterations.length];
+            int              numberOfEscaped = 0;
+            int              numberInTail = 0;
+
+            for (float mu : iterations)
+            {
+                if (mu != MandelbrotSetComputingThread.INSIDE)
+                {
+                    escaped[numberOfEscaped++] = mu;
+
+                    if (mu > probeLimit / 2)
+                    {
+                        numberInTail++;
+                    }
+                }
+            }
+            escapeFraction = numberOfEscaped / (double) iterations.length;
+
+            if (numberOfEscaped == 0)
+            {
+                // Nothing but interior; any limit shows the same black frame
+                budget = MIN_ITERATIONS;
+                break;
+            }
+
+            // Leave at most TAIL_FRACTION of all pixels escaping above the budget
+            final int    numberAboveBudget = Math.min(numberOfEscaped - 1, (int) (TAIL_FRACTION * iterations.length));
+
+            Arrays.sort(escaped, 0, numberOfEscaped);
+            budget = clamp((int) Math.ceil(escaped[numberOfEscaped - 1 - numberAboveBudget] * MARGIN));
+
+            // Many points still escaping close to the limit mean that more of them would escape with a higher one
+            if (numberInTail <= TAIL_FRACTION * iterations.length  ||  probeLimit == MAX_ITERATIONS)
+            {
+                break;
+            }
+            probeLimit = clamp(4 * probeLimit);
+        }
+        probes = Math.min(probes, MAX_PROBES);
+
+        if (Math.abs(budget - maxNumberOfIterations) > HYSTERESIS * maxNumberOfIterations)
+        {
+            maxNumberOfIterations = budget;
+        }
+
+        return maxNumberOfIterations;
+    }
+
+
+
+    /**
+     * Returns the current iteration limit, i.e. the result of the last call to {@link #tune}.
+     *
+     * @return the iteration limit.
+     */
+    public int getMaxNumberOfIterations()
+    {
+        return maxNumberOfIterations;
+    }
+
+    /**
+     * Returns the fraction of the probed points that escaped in the last probe.
+     *
+     * @return the escape fraction, between 0 and 1.
+     */
+    public double getEscapeFraction()
+    {
+        return escapeFraction;
+    }
+
+    /**
+     * Returns the number of probes the last call to {@link #tune} rendered.
+     *
+     * @return the number of probes.
+     */
+    public int getNumberOfProbes()
+    {
+        return probes;
+    }
+
+
+
+    private static int clamp(final int iterations)
+    {
+        return Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations));
+    }
+}
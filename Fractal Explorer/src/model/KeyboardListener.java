@@ -1,72 +1,76 @@
-package model;
-
-import java.awt.AWTException;
-import java.awt.Rectangle;
-import java.awt.Robot;
-import java.awt.Toolkit;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-
-import javax.imageio.ImageIO;
-import javax.swing.JFileChooser;
-
-import view.GUI;
-
-public class KeyboardListener implements KeyListener
-{
-    @Override
-    public void keyPressed(KeyEvent e)
-    {
-        final int    key = e.getKeyCode();
-
-        if (key == KeyEvent.VK_ESCAPE)
-        {
-            // Exit the application
-            System.exit(0);
-        }
-        else if (key == KeyEvent.VK_PRINTSCREEN)
-        {
-            JFileChooser fileChooser = new JFileChooser();
-            fileChooser.setDialogTitle("Specify a file to save");
-
-            final int    userSelection = fileChooser.showSaveDialog(GUI.getInstance());
-
-            if (userSelection == JFileChooser.APPROVE_OPTION)
-            {
-                try
-                {
-                    final Robot     robot = new Robot();
-                    final String    format = "png";
-                    final String    fileName = "test." + format;
-
-                    final Rectangle    screenRect = new Rectangle(Toolkit.getDefaultToolkit().getScreenSize());
-                    final BufferedImage    screenFullImage = robot.createScreenCapture(screenRect);
-                    ImageIO.write(screenFullImage, format, new File(fileName));
-
-                    System.out.println("A full screenshot saved!");
-                }
-                catch (AWTException | IOException ex)
-                {
-                    System.err.println(ex);
-                };
-            }
-        }
-    }
-
-
-    @Override
-    public void keyReleased(KeyEvent e)
-    {
-        // Unused
-    }
-
-
-    @Override
-    public void keyTyped(KeyEvent e)
-    {
-        // Unused
-    }
-}
\ No newline at end of file
+package model;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
+
+import view.ErrorMessage;
+import view.GUI;
+
+public class KeyboardListener implements KeyListener
+{
+    @Override
+    public void keyPressed(KeyEvent e)
+    {
+        final int    key = e.getKeyCode();
+
+        if (key == KeyEvent.VK_ESCAPE)
+        {
+            // Exit the application
+            System.exit(0);
+        }
+        else if (key == KeyEvent.VK_PRINTSCREEN)
+        {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle("Specify a file to save");
+
+            final int    userSelection = fileChooser.showSaveDialog(GUI.getInstance());
+
+            if (userSelection == JFileChooser.APPROVE_OPTION)
+            {
+                // Export in the background; with shift, the view is rendered again at the export scale
+                final GUI                        window = GUI.getInstance();
+                final ImageExporter              exporter = ImageExporter.getInstance();
+                final File                       file = fileChooser.getSelectedFile();
+                final CompletableFuture<File>    export = e.isShiftDown()
+                        ? exporter.exportRendered(window.getWidth(), window.getHeight(), file)
+                        : exporter.export(window.snapshot(), file);
+
+                export.whenComplete((written, error) ->
+                {
+                    if (error == null)
+                    {
+                        System.out.println("Exported " + written);
+                    }
+                    else
+                    {
+                        // The failure of a background export comes wrapped, a failure before it started does not
+                        final Throwable    cause = (error instanceof CompletionException  &&  error.getCause() != null) ? error.getCause() : error;
+                        final String       message = (cause.getMessage() != null) ? cause.getMessage() : cause.toString();
+
+                        SwingUtilities.invokeLater(() -> ErrorMessage.show("The export to " + file + " failed:\n" + message));
+                    }
+                });
+            }
+        }
+    }
+
+
+    @Override
+    public void keyReleased(KeyEvent e)
+    {
+        // Unused
+    }
+
+
+    @Override
+    public void keyTyped(KeyEvent e)
+    {
+        // Unused
+    }
+}
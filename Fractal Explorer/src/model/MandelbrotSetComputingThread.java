@@ -1,160 +1,803 @@
-package model;
-
-import java.awt.Color;
-import java.awt.image.BufferedImage;
-import java.util.concurrent.Callable;
-
-
-public final class MandelbrotSetComputingThread implements Callable<ImageFragment>
-{
-    // Constants
-    private static final double    LIMIT = 2.0;
-    private static final double    MAX_ABOSULTE_VALUE = LIMIT * LIMIT;
-    private static final double    LOG2 = Math.log(2);
-    //private static final double    ESCAPE_RADIUS = 144;
-
-    private int       threadID;
-    private int       startX;
-    private int       startY;
-    private int       endX;
-    private int       endY;
-    private int       maxNumberOfIterations;
-    private int       colorScheme;
-    private double    zoom;
-
-
-
-    public MandelbrotSetComputingThread(int id, int startX, int startY, int endX, int endY, int maxNumberOfIterations, int zoom)
-    {
-        threadID = id;
-        this.startX = startX;
-        this.startY = startY;
-        this.endX = endX;
-        this.endY = endY;
-        this.maxNumberOfIterations = maxNumberOfIterations;
-        this.zoom = zoom;
-        colorScheme = 10;
-    }
-
-
-
-    @Override
-    public ImageFragment call()
-    {
-        try
-        {
-            // Set properties for this thread
-            Thread.currentThread().setPriority(Thread.MAX_PRIORITY);
-            Thread.currentThread().setName("Computing thread " + threadID);
-        }
-        catch (SecurityException e)
-        {
-            // TODO: Handle
-            e.printStackTrace();
-        }
-
-
-
-        final int    width  = endX - startX;
-        final int    height = endY - startY;
-
-
-        // The image that will describe the Mandelbrot set
-        final BufferedImage    mandelbrotSetImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-
-        int    xCoord = 0;
-        int    yCoord = 0;
-
-        // Iterate though all pixels on the screen, and calculate the Mandelbrot set
-        for (int y = startY; y < endY; y++, yCoord++)
-        {
-            for (int x = startX; x < endX; x++, xCoord++)
-            {
-                //System.out.println("Coordinate:   (" + x + ", " + y + ")");
-
-                // Construct the complex number c
-//				final double    a = (x - endX / 2) / zoom; // ORG
-//				final double    b = (y - endY / 2) / zoom; // ORG
-                //final double    a = (endX - x / 2) / zoom;
-                //final double    b = (endY - y / 2) / zoom;
-//			    final double    a = (x - xCoord / 2) / zoom;
-//			    final double    b = (y - yCoord / 2) / zoom;
-//			    final double    a = (xCoord - x / 2) / zoom;
-//                final double    b = (yCoord - y / 2) / zoom;
-                final double    a = (xCoord - endX / 2) / zoom;
-                final double    b = (yCoord - endY / 2) / zoom;
-                final ComplexNumber    c = new ComplexNumber(a, b);
-
-
-                // Get the color of c, black color means that the complex point c is a member of the Mandelbrot set
-                final int    rgb = calculateColorAt(c).getRGB();
-
-
-                try
-                {
-                    // Color a the pixel (xCoord, yCoord) in the BufferedImage
-                    mandelbrotSetImage.setRGB(xCoord, yCoord, rgb);
-                }
-                catch (ArrayIndexOutOfBoundsException e)
-                {
-                    System.err.println("\n\nArrayIndexOutOfBoundsException:  While coloring mandelbrotSetImage in thread [" + Thread.currentThread().getName() + "]");
-                }
-            }
-            xCoord = 0;
-        }
-        System.out.println("ID:  " + threadID + ",    Dimensions:  " + width + "x" + height + "     -------->     X:  (" + startX + ", " + (endX-1) + "),          Y:  (" + startY + ", " + (endY-1) + ")");
-        System.err.println("Thread \"" + Thread.currentThread().getName() + "\" done.\n");
-
-        return new ImageFragment(threadID, mandelbrotSetImage);
-    }
-
-
-
-    /*
-     * Calculates the color at the specified complex point returns the color.
-     * This method uses the Normalized Iteration Count algorithm for coloring, which uses the
-     * escape radius and the iteration count together, and the sine and cosine function
-     * are then applied on top to generate a smooth cyclic gradient.
-     */
-    private Color calculateColorAt(final ComplexNumber c)
-    {
-        final double    ptYSq = c.getImaginaryPart() * c.getImaginaryPart();
-        final double    xOff  = c.getRealPart() - 0.25;
-        final double    q     = Math.pow(xOff, 2) + ptYSq;
-
-
-        if (q * (q + xOff) < ptYSq / MAX_ABOSULTE_VALUE)
-        {
-            return Color.BLACK; //http://en.wikipedia.org/wiki/Mandelbrot_fractal#Optimizations
-        }
-
-
-        ComplexNumber    z = new ComplexNumber();  // z = 0 + 0i
-        int    iterations = 0;
-
-
-        while (iterations < maxNumberOfIterations  &&  z.abs() <= MAX_ABOSULTE_VALUE)
-        {
-            final double    a = z.getRealPart() * z.getRealPart() - z.getImaginaryPart() * z.getImaginaryPart() + c.getRealPart();
-            final double    b = LIMIT * z.getRealPart() * z.getImaginaryPart() + c.getImaginaryPart();
-
-            z = new ComplexNumber(a, b);
-            iterations++;
-        }
-
-
-        if (iterations == maxNumberOfIterations)
-        {
-            return Color.BLACK;
-        }
-        else
-        {
-            final double    mu = iterations - Math.log(Math.log(z.abs())) / LOG2;
-            final float     rg = (float) Math.cos(mu / colorScheme) / 2 + 0.5f;
-            final float     b  = (float) Math.sin(mu / colorScheme) / 2 + 0.5f;
-
-            return new Color(rg, rg, b);
-        }
-    }
-}
\ No newline at end of file
+package model;
+
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public final class MandelbrotSetComputingThread implements Callable<ImageFragment>
+{
+    // Constants
+    private static final double    LIMIT = 2.0;
+    private static final double    MAX_ABOSULTE_VALUE = LIMIT * LIMIT;
+    private static final double    MAX_ABOSULTE_VALUE_SQUARED = MAX_ABOSULTE_VALUE * MAX_ABOSULTE_VALUE;
+    private static final double    LOG2 = Math.log(2);
+    private static final double    LOG10_OF_2 = Math.log10(2);
+    private static final double    CARDIOID_MARGIN = 1e-9;
+    private static final BigDecimal    TWO = BigDecimal.valueOf(2);
+    //private static final double    ESCAPE_RADIUS = 144;
+
+    /** The smooth iteration value stored for points that are members of the Mandelbrot set. */
+    public static final float    INSIDE = -1f;
+
+    private static final int      GUESS_BLOCK_SIZE = 16;
+    private static final float    MAX_GUESS_ERROR = 0.5f;
+    private static final byte     UNKNOWN = 0;
+    private static final byte     COMPUTED = 1;
+    private static final byte     GUESSED = 2;
+
+    private int       threadID;
+    private int       startX;
+    private int       startY;
+    private int       endX;
+    private int       endY;
+    private int       frameWidth;
+    private int       frameHeight;
+    private int       maxNumberOfIterations;
+    private int       colorScheme;
+    private double    centerX;
+    private double    centerY;
+    private double    pixelSpacing;
+    private IterationHistogram    histogram;
+    private volatile float[]      lastIterations;
+    private long                  iterationCount;
+
+    // Solid guessing, and the counts of the last computation with it
+    private boolean    solidGuessing;
+    private double     verificationShare;
+    private int        computedPixels;
+    private int        guessedPixels;
+    private int        verifiedPixels;
+    private int        wrongGuesses;
+    private float      maxGuessError;
+
+    // The render this rectangle belongs to is superseded once the counter has moved on from the generation
+    private AtomicLong    generations;
+    private long          generation;
+
+    // Scratch space of the EXTENDED tier
+    private final double[]    scratch = new double[2];
+    private final double[]    cbExtended = new double[2];
+
+    // The viewport in the precision of the tier; only the fields of the selected tier are used
+    private final PrecisionTier    tier;
+    private final Viewport         viewport;
+    private final double[]         centerXExtended = new double[2];
+    private final double[]         centerYExtended = new double[2];
+    private final double[]         pixelSpacingExtended = new double[2];
+    private final MathContext      arbitraryContext;
+
+
+
+    public MandelbrotSetComputingThread(int id, int startX, int startY, int endX, int endY, int maxNumberOfIterations, double zoom)
+    {
+        this(id, startX, startY, endX, endY, endX, endY, 0, 0, maxNumberOfIterations, zoom);
+    }
+
+
+
+    /**
+     * Constructs a computing thread for the rectangle <i>[startX, endX) x [startY, endY)</i> of a larger frame.
+     * The pixel in the middle of the frame is mapped to the complex point <i>centerX + centerY i</i>.
+     *
+     * @param id - the ID of the produced fragment.
+     * @param startX - the first column of the rectangle.
+     * @param startY - the first row of the rectangle.
+     * @param endX - the column after the last column of the rectangle.
+     * @param endY - the row after the last row of the rectangle.
+     * @param frameWidth - the width of the whole frame.
+     * @param frameHeight - the height of the whole frame.
+     * @param centerX - the real part of the point in the middle of the frame.
+     * @param centerY - the imaginary part of the point in the middle of the frame.
+     * @param maxNumberOfIterations - the iteration limit.
+     * @param zoom - the number of pixels per unit length.
+     */
+    public MandelbrotSetComputingThread(int id, int startX, int startY, int endX, int endY, int frameWidth, int frameHeight,
+                                        double centerX, double centerY, int maxNumberOfIterations, double zoom)
+    {
+        this(id, startX, startY, endX, endY, frameWidth, frameHeight, Viewport.of(centerX, centerY, zoom), PrecisionTier.DOUBLE, maxNumberOfIterations);
+    }
+
+
+
+    /**
+     * Constructs a computing thread for the rectangle <i>[startX, endX) x [startY, endY)</i> of a frame
+     * showing the given viewport, iterating with the arithmetic of the given tier.
+     *
+     * @param id - the ID of the produced fragment.
+     * @param startX - the first column of the rectangle.
+     * @param startY - the first row of the rectangle.
+     * @param endX - the column after the last column of the rectangle.
+     * @param endY - the row after the last row of the rectangle.
+     * @param frameWidth - the width of the whole frame.
+     * @param frameHeight - the height of the whole frame.
+     * @param viewport - the part of the complex plane shown in the frame.
+     * @param tier - the arithmetic, see <i>PrecisionManager</i>.
+     * @param maxNumberOfIterations - the iteration limit.
+     */
+    public MandelbrotSetComputingThread(int id, int startX, int startY, int endX, int endY, int frameWidth, int frameHeight,
+                                        Viewport viewport, PrecisionTier tier, int maxNumberOfIterations)
+    {
+        threadID = id;
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.viewport = viewport;
+        this.tier = tier;
+        this.maxNumberOfIterations = maxNumberOfIterations;
+        centerX = viewport.getCenterX().doubleValue();
+        centerY = viewport.getCenterY().doubleValue();
+        pixelSpacing = viewport.getPixelSpacing().doubleValue();
+        colorScheme = 10;
+
+        // Only the tier that is used is converted; the conversions are made for every tile
+        if (tier == PrecisionTier.EXTENDED)
+        {
+            DoubleDouble.set(viewport.getCenterX(), centerXExtended);
+            DoubleDouble.set(viewport.getCenterY(), centerYExtended);
+            DoubleDouble.set(viewport.getPixelSpacing(), pixelSpacingExtended);
+        }
+
+        if (tier == PrecisionTier.ARBITRARY)
+        {
+            final int    digits = (int) Math.ceil(PrecisionManager.arbitraryPrecisionBits(viewport, frameWidth, frameHeight) * LOG10_OF_2);
+            arbitraryContext = new MathContext(Math.max(digits, MathContext.DECIMAL64.getPrecision()));
+        }
+        else
+        {
+            arbitraryContext = null;
+        }
+    }
+
+
+
+    @Override
+    public ImageFragment call()
+    {
+        // The name and priority of the thread are set by the pool, see ExecutionSettings
+        final int    width  = endX - startX;
+        final int    height = endY - startY;
+
+
+        // The image that will describe the Mandelbrot set
+        final BufferedImage    mandelbrotSetImage = Palette.toImage(computeIterations(), width, height, colorScheme);
+
+        System.out.println("ID:  " + threadID + ",    Dimensions:  " + width + "x" + height + "     -------->     X:  (" + startX + ", " + (endX-1) + "),          Y:  (" + startY + ", " + (endY-1) + ")");
+        System.err.println("Thread \"" + Thread.currentThread().getName() + "\" done.\n");
+
+        return new ImageFragment(threadID, mandelbrotSetImage);
+    }
+
+
+
+    /**
+     * Computes the rectangle and writes its colors straight into a frame buffer instead of an image.
+     *
+     * @param target - a view of the frame buffer with the size of the rectangle, e.g. a slice for a tile.
+     */
+    public void renderInto(final FrameBuffer target)
+    {
+        final int    width  = endX - startX;
+        final int    height = endY - startY;
+
+        if (target.getWidth() != width  ||  target.getHeight() != height)
+        {
+            throw new IllegalArgumentException("The target is " + target.getWidth() + " x " + target.getHeight()
+                    + ", the rectangle " + width + " x " + height + ".");
+        }
+
+        final float[]    iterations = computeIterations();
+        final int[]      row = new int[width];
+
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                row[x] = Palette.toRGB(iterations[y * width + x], colorScheme);
+            }
+            target.setRow(y, row, 0);
+        }
+    }
+
+
+
+    /**
+     * Counts the iterations of every escaping pixel into a histogram while computing, for histogram coloring.
+     *
+     * @param histogram - the histogram, or null to stop counting.
+     */
+    public void setHistogram(final IterationHistogram histogram)
+    {
+        this.histogram = histogram;
+    }
+
+
+
+    public int getID()
+    {
+        return threadID;
+    }
+
+    public int getStartX()
+    {
+        return startX;
+    }
+
+    public int getStartY()
+    {
+        return startY;
+    }
+
+    public int getWidth()
+    {
+        return endX - startX;
+    }
+
+    public int getHeight()
+    {
+        return endY - startY;
+    }
+
+    /**
+     * Returns the iteration values of the last computation of the rectangle, e.g. for a snapshot.
+     *
+     * @return the values, row by row, or null before the first computation.
+     */
+    public float[] getLastIterations()
+    {
+        return lastIterations;
+    }
+
+    /**
+     * Returns the number of iterations done by this thread so far, over all its computations; points
+     * decided without iterating, e.g. inside the main cardioid, count none.
+     *
+     * @return the number of iterations.
+     */
+    public long getIterationCount()
+    {
+        return iterationCount;
+    }
+
+    /**
+     * Returns the number of pixels iterated by the last computation with solid guessing, not counting
+     * the verification.
+     *
+     * @return the number of pixels.
+     */
+    public int getComputedPixels()
+    {
+        return computedPixels;
+    }
+
+    /**
+     * Returns the number of pixels filled in by the last computation with solid guessing, including
+     * the ones checked afterwards.
+     *
+     * @return the number of pixels.
+     */
+    public int getGuessedPixels()
+    {
+        return guessedPixels;
+    }
+
+    public int getVerifiedPixels()
+    {
+        return verifiedPixels;
+    }
+
+    /**
+     * Returns the number of checked guesses that were wrong: inside the set instead of outside or the
+     * other way around, or off by more than half an iteration.
+     *
+     * @return the number of wrong guesses.
+     */
+    public int getWrongGuesses()
+    {
+        return wrongGuesses;
+    }
+
+    /**
+     * Returns the largest difference between a checked guess and its exact value, for pixels outside the set.
+     *
+     * @return the difference in iterations.
+     */
+    public float getMaxGuessError()
+    {
+        return maxGuessError;
+    }
+
+    /**
+     * Returns the arithmetic this thread iterates with.
+     *
+     * @return the precision tier.
+     */
+    public PrecisionTier getTier()
+    {
+        return tier;
+    }
+
+
+
+    /**
+     * Computes the smooth iteration value of every pixel in the rectangle, row by row. Pixels that
+     * are members of the Mandelbrot set get the value {@link #INSIDE}. With solid guessing, only part
+     * of the pixels are computed, see {@link #setSolidGuessing(boolean, double)}.
+     *
+     * @return the iteration values, <i>(endX - startX) * (endY - startY)</i> of them.
+     */
+    public float[] computeIterations()
+    {
+        return computeIterations(new float[(endX - startX) * (endY - startY)]);
+    }
+
+    /**
+     * Computes the smooth iteration values into a buffer, e.g. one from a <i>BufferPool</i>; see
+     * {@link #computeIterations()}. The buffer is kept as the last iteration values, also when the
+     * computation is cancelled, see {@link #setGeneration(AtomicLong, long)}.
+     *
+     * @param iterations - the buffer, <i>(endX - startX) * (endY - startY)</i> long.
+     *
+     * @return the buffer.
+     */
+    public float[] computeIterations(final float[] iterations)
+    {
+        final int        width  = endX - startX;
+        final int        height = endY - startY;
+
+        if (iterations.length != width * height)
+        {
+            throw new IllegalArgumentException("The buffer holds " + iterations.length + " values, the rectangle " + width * height + ".");
+        }
+
+        // Kept before the computation, so that the buffer of a cancelled computation is given back as well
+        lastIterations = iterations;
+
+        if (solidGuessing)
+        {
+            guessIterations(iterations);
+        }
+        else
+        {
+            int    index = 0;
+
+            // Iterate though all pixels in the rectangle, and calculate the Mandelbrot set
+            for (int y = startY; y < endY; y++)
+            {
+                checkGeneration();
+
+                for (int x = startX; x < endX; x++)
+                {
+                    iterations[index++] = iterationsAt(x, y);
+                }
+            }
+        }
+
+        if (histogram != null)
+        {
+            histogram.count(iterations);
+        }
+
+        return iterations;
+    }
+
+
+
+    // The smooth iteration value of a pixel of the frame, in the arithmetic of the tier
+    private float iterationsAt(final int x, final int y)
+    {
+        switch (tier)
+        {
+            case FLOAT:
+                return calculateIterationsAt((float) (centerX + (x - frameWidth / 2) * pixelSpacing),
+                                             (float) (centerY + (y - frameHeight / 2) * pixelSpacing));
+
+            case EXTENDED:
+                DoubleDouble.multiply(y - frameHeight / 2, 0, pixelSpacingExtended[0], pixelSpacingExtended[1], cbExtended);
+                DoubleDouble.add(centerYExtended[0], centerYExtended[1], cbExtended[0], cbExtended[1], cbExtended);
+                DoubleDouble.multiply(x - frameWidth / 2, 0, pixelSpacingExtended[0], pixelSpacingExtended[1], scratch);
+                DoubleDouble.add(centerXExtended[0], centerXExtended[1], scratch[0], scratch[1], scratch);
+                return calculateIterationsAt(scratch[0], scratch[1], cbExtended[0], cbExtended[1]);
+
+            case ARBITRARY:
+                return calculateIterationsAt(viewport.realPartAt(x, frameWidth), viewport.imaginaryPartAt(y, frameHeight));
+
+            default:
+                return calculateIterationsAt(centerX + (x - frameWidth / 2) * pixelSpacing, centerY + (y - frameHeight / 2) * pixelSpacing);
+        }
+    }
+
+
+
+    /**
+     * Switches solid guessing on or off. With solid guessing, the corners of blocks of
+     * {@value #GUESS_BLOCK_SIZE} pixels are computed first; a block whose corners are all inside the
+     * set, or all escape after the same whole number of iterations, is filled in without computing it
+     * (inside, or interpolated between the corners). Other blocks are split in four, down to single
+     * pixels. Thin filaments that pass between the corners of a block can be missed. <br>
+     * A share of the guessed pixels can be computed as well, to measure how good the guesses are; the
+     * checked pixels get their exact values.
+     *
+     * @param solidGuessing - true for solid guessing.
+     * @param verificationShare - the share of guessed pixels to check, between 0 and 1.
+     */
+    public void setSolidGuessing(final boolean solidGuessing, final double verificationShare)
+    {
+        if (!(verificationShare >= 0  &&  verificationShare <= 1))
+        {
+            throw new IllegalArgumentException("The verification share must be between 0 and 1, was " + verificationShare + ".");
+        }
+
+        this.solidGuessing = solidGuessing;
+        this.verificationShare = verificationShare;
+    }
+
+
+
+    /**
+     * Ties the computation to a generation of requested views, see <i>ViewportRequests</i>. The counter
+     * is compared with the generation before every row, and the computation is abandoned as soon as
+     * they differ.
+     *
+     * @param generations - the counter of the requested views, or null to always compute to the end.
+     * @param generation - the generation the computation belongs to.
+     */
+    public void setGeneration(final AtomicLong generations, final long generation)
+    {
+        this.generations = generations;
+        this.generation = generation;
+    }
+
+
+
+    // Throws if the view has been navigated away from
+    private void checkGeneration()
+    {
+        if (generations != null  &&  generations.get() != generation)
+        {
+            throw new CancellationException("The render of generation " + generation + " is superseded.");
+        }
+    }
+
+
+
+    private void guessIterations(final float[] iterations)
+    {
+        final int          width  = endX - startX;
+        final int          height = endY - startY;
+        final byte[]       known = new byte[width * height];     // UNKNOWN, COMPUTED or GUESSED
+
+        computedPixels = 0;
+        guessedPixels = 0;
+        verifiedPixels = 0;
+        wrongGuesses = 0;
+        maxGuessError = 0;
+
+        for (int y0 = 0; y0 < height - 1  ||  y0 == 0; y0 += GUESS_BLOCK_SIZE)
+        {
+            for (int x0 = 0; x0 < width - 1  ||  x0 == 0; x0 += GUESS_BLOCK_SIZE)
+            {
+                guessBlock(iterations, known, x0, y0, Math.min(x0 + GUESS_BLOCK_SIZE, width - 1), Math.min(y0 + GUESS_BLOCK_SIZE, height - 1));
+            }
+        }
+
+        if (verificationShare > 0)
+        {
+            verifyGuesses(iterations, known);
+        }
+    }
+
+
+
+    // Fills in the block with the corners (x0, y0) and (x1, y1), or splits it
+    private void guessBlock(final float[] iterations, final byte[] known, final int x0, final int y0, final int x1, final int y1)
+    {
+        final int    width = endX - startX;
+
+        // Per subdivision, since a block of 16 x 16 pixels may cost as much as many rows
+        checkGeneration();
+
+        final float    topLeft     = computeOnce(iterations, known, x0, y0);
+        final float    topRight    = computeOnce(iterations, known, x1, y0);
+        final float    bottomLeft  = computeOnce(iterations, known, x0, y1);
+        final float    bottomRight = computeOnce(iterations, known, x1, y1);
+
+        if (x1 - x0 <= 1  &&  y1 - y0 <= 1)
+        {
+            return;
+        }
+
+        final boolean    allInside = topLeft == INSIDE  &&  topRight == INSIDE  &&  bottomLeft == INSIDE  &&  bottomRight == INSIDE;
+        final boolean    allEscape = topLeft != INSIDE  &&  topRight != INSIDE  &&  bottomLeft != INSIDE  &&  bottomRight != INSIDE
+                && (int) topLeft == (int) topRight  &&  (int) topLeft == (int) bottomLeft  &&  (int) topLeft == (int) bottomRight;
+
+        if (allInside  ||  allEscape)
+        {
+            for (int y = y0; y <= y1; y++)
+            {
+                final float    v = (y1 == y0) ? 0 : (float) (y - y0) / (y1 - y0);
+
+                for (int x = x0; x <= x1; x++)
+                {
+                    final int    index = y * width + x;
+
+                    if (known[index] == UNKNOWN)
+                    {
+                        final float    u = (x1 == x0) ? 0 : (float) (x - x0) / (x1 - x0);
+
+                        iterations[index] = allInside ? INSIDE : (1 - v) * ((1 - u) * topLeft + u * topRight) + v * ((1 - u) * bottomLeft + u * bottomRight);
+                        known[index] = GUESSED;
+                        guessedPixels++;
+                    }
+                }
+            }
+            return;
+        }
+
+        final int    xm = (x0 + x1) / 2;
+        final int    ym = (y0 + y1) / 2;
+
+        if (x1 - x0 <= 1)
+        {
+            guessBlock(iterations, known, x0, y0, x1, ym);
+            guessBlock(iterations, known, x0, ym, x1, y1);
+        }
+        else if (y1 - y0 <= 1)
+        {
+            guessBlock(iterations, known, x0, y0, xm, y1);
+            guessBlock(iterations, known, xm, y0, x1, y1);
+        }
+        else
+        {
+            guessBlock(iterations, known, x0, y0, xm, ym);
+            guessBlock(iterations, known, xm, y0, x1, ym);
+            guessBlock(iterations, known, x0, ym, xm, y1);
+            guessBlock(iterations, known, xm, ym, x1, y1);
+        }
+    }
+
+
+
+    // Coordinates relative to the rectangle
+    private float computeOnce(final float[] iterations, final byte[] known, final int x, final int y)
+    {
+        final int    index = y * (endX - startX) + x;
+
+        if (known[index] == UNKNOWN)
+        {
+            iterations[index] = iterationsAt(startX + x, startY + y);
+            known[index] = COMPUTED;
+            computedPixels++;
+        }
+
+        return iterations[index];
+    }
+
+
+
+    /*
+     * Computes every n-th guessed pixel exactly, n chosen from the verification share, and counts the
+     * guesses that were wrong: inside instead of outside or the other way around, or off by more than
+     * half an iteration.
+     */
+    private void verifyGuesses(final float[] iterations, final byte[] known)
+    {
+        final int     width = endX - startX;
+        final long    stride = Math.max(1, Math.round(1 / verificationShare));
+        long          guessIndex = 0;
+
+        for (int index = 0; index < iterations.length; index++)
+        {
+            if (index % width == 0)
+            {
+                checkGeneration();
+            }
+            if (known[index] != GUESSED  ||  guessIndex++ % stride != 0)
+            {
+                continue;
+            }
+
+            final float    guess = iterations[index];
+            final float    exact = iterationsAt(startX + index % width, startY + index / width);
+            final float    error = (guess == INSIDE  ||  exact == INSIDE) ? ((guess == exact) ? 0 : Float.POSITIVE_INFINITY) : Math.abs(guess - exact);
+
+            verifiedPixels++;
+            if (error > MAX_GUESS_ERROR)
+            {
+                wrongGuesses++;
+            }
+            if (Float.isFinite(error))
+            {
+                maxGuessError = Math.max(maxGuessError, error);
+            }
+            iterations[index] = exact;
+        }
+    }
+
+
+
+    /*
+     * Calculates the smooth iteration value at the complex point c = a + bi.
+     * This method uses the Normalized Iteration Count algorithm, which uses the
+     * escape radius and the iteration count together.
+     */
+    private float calculateIterationsAt(final double ca, final double cb)
+    {
+        if (isInMainCardioid(ca, cb, 0))
+        {
+            return INSIDE;
+        }
+
+
+        double    za = 0;  // z = 0 + 0i
+        double    zb = 0;
+        double    zaSq = 0;
+        double    zbSq = 0;
+        int       iterations = 0;
+
+
+        while (iterations < maxNumberOfIterations  &&  zaSq + zbSq <= MAX_ABOSULTE_VALUE_SQUARED)
+        {
+            zb = LIMIT * za * zb + cb;
+            za = zaSq - zbSq + ca;
+            zaSq = za * za;
+            zbSq = zb * zb;
+            iterations++;
+        }
+        iterationCount += iterations;
+
+
+        if (iterations == maxNumberOfIterations)
+        {
+            return INSIDE;
+        }
+        else
+        {
+            return smoothIterations(iterations, zaSq + zbSq);
+        }
+    }
+
+
+
+    // Single precision version of calculateIterationsAt(double, double)
+    private float calculateIterationsAt(final float ca, final float cb)
+    {
+        if (isInMainCardioid(ca, cb, 0))
+        {
+            return INSIDE;
+        }
+
+        float    za = 0;
+        float    zb = 0;
+        float    zaSq = 0;
+        float    zbSq = 0;
+        int      iterations = 0;
+
+        while (iterations < maxNumberOfIterations  &&  zaSq + zbSq <= (float) MAX_ABOSULTE_VALUE_SQUARED)
+        {
+            zb = (float) LIMIT * za * zb + cb;
+            za = zaSq - zbSq + ca;
+            zaSq = za * za;
+            zbSq = zb * zb;
+            iterations++;
+        }
+        iterationCount += iterations;
+
+        return (iterations == maxNumberOfIterations) ? INSIDE : smoothIterations(iterations, zaSq + zbSq);
+    }
+
+
+
+    // Double-double version of calculateIterationsAt(double, double), c = (cah + cal) + (cbh + cbl)i
+    private float calculateIterationsAt(final double cah, final double cal, final double cbh, final double cbl)
+    {
+        // The double approximation of c is too coarse to decide points close to the border of the cardioid
+        if (isInMainCardioid(cah, cbh, CARDIOID_MARGIN))
+        {
+            return INSIDE;
+        }
+
+        // c is passed by value, so the scratch space it was computed in can take the products
+        final double[]    t = scratch;
+        double            zah = 0;
+        double            zal = 0;
+        double            zbh = 0;
+        double            zbl = 0;
+        int               iterations = 0;
+
+        while (iterations < maxNumberOfIterations)
+        {
+            DoubleDouble.multiply(zah, zal, zah, zal, t);
+            final double    zaSqh = t[0];
+            final double    zaSql = t[1];
+
+            DoubleDouble.multiply(zbh, zbl, zbh, zbl, t);
+            final double    zbSqh = t[0];
+            final double    zbSql = t[1];
+
+            if (zaSqh + zbSqh > MAX_ABOSULTE_VALUE_SQUARED)
+            {
+                iterationCount += iterations;
+                return smoothIterations(iterations, zaSqh + zbSqh);
+            }
+
+            DoubleDouble.multiply(zah, zal, zbh, zbl, t);
+            DoubleDouble.add(LIMIT * t[0], LIMIT * t[1], cbh, cbl, t);
+            zbh = t[0];
+            zbl = t[1];
+
+            DoubleDouble.add(zaSqh, zaSql, -zbSqh, -zbSql, t);
+            DoubleDouble.add(t[0], t[1], cah, cal, t);
+            zah = t[0];
+            zal = t[1];
+
+            iterations++;
+        }
+        iterationCount += iterations;
+
+        return INSIDE;
+    }
+
+
+
+    // Arbitrary precision version of calculateIterationsAt(double, double)
+    private float calculateIterationsAt(final BigDecimal ca, final BigDecimal cb)
+    {
+        if (isInMainCardioid(ca.doubleValue(), cb.doubleValue(), CARDIOID_MARGIN))
+        {
+            return INSIDE;
+        }
+
+        BigDecimal    za = BigDecimal.ZERO;
+        BigDecimal    zb = BigDecimal.ZERO;
+        int           iterations = 0;
+
+        while (iterations < maxNumberOfIterations)
+        {
+            final BigDecimal    zaSq = za.multiply(za, arbitraryContext);
+            final BigDecimal    zbSq = zb.multiply(zb, arbitraryContext);
+            final double        absSq = zaSq.doubleValue() + zbSq.doubleValue();
+
+            if (absSq > MAX_ABOSULTE_VALUE_SQUARED)
+            {
+                iterationCount += iterations;
+                return smoothIterations(iterations, absSq);
+            }
+
+            zb = za.multiply(zb, arbitraryContext).multiply(TWO).add(cb, arbitraryContext);
+            za = zaSq.subtract(zbSq).add(ca, arbitraryContext);
+            iterations++;
+        }
+        iterationCount += iterations;
+
+        return INSIDE;
+    }
+
+
+
+    /*
+     * Returns true if c = a + bi lies inside the main cardioid, by more than the relative margin.
+     * http://en.wikipedia.org/wiki/Mandelbrot_fractal#Optimizations
+     */
+    private static boolean isInMainCardioid(final double ca, final double cb, final double margin)
+    {
+        final double    ptYSq = cb * cb;
+        final double    xOff  = ca - 0.25;
+        final double    q     = xOff * xOff + ptYSq;
+
+        return q * (q + xOff) < ptYSq / MAX_ABOSULTE_VALUE * (1 - margin);
+    }
+
+
+
+    private static float smoothIterations(final int iterations, final double absSq)
+    {
+        return (float) (iterations - Math.log(Math.log(Math.sqrt(absSq))) / LOG2);
+    }
+}
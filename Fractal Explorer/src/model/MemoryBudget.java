@@ -0,0 +1,258 @@
+package model;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * <h4>MemoryBudget.java</h4> <br>
+ *
+ * The one account of the large buffers of the program. Rendered tiles and frames, the frames cached
+ * in the pyramid and the frames of exports reserve their memory here before they are allocated, and
+ * release it when they are dropped. <br> <br>
+ *
+ * When a reservation does not fit, the registered caches are asked to evict first, e.g. idle pooled
+ * buffers and the least recently used frames of the pyramid. If that does not free enough, the
+ * reservation waits until other buffers are released, so that renders and exports are held back
+ * instead of growing the heap. <br> <br> <br>
+ */
+public final class MemoryBudget
+{
+    // Singleton instance
+    private static final MemoryBudget    INSTANCE = new MemoryBudget();
+
+    // Constants
+    private static final double    DEFAULT_SHARE_OF_HEAP = 0.5;
+    private static final long      RETRY_MILLIS = 100;
+
+    private final List<Evictable>    evictables = new CopyOnWriteArrayList<Evictable>();
+    private long                     budget;
+    private long                     reserved;
+    private long                     peakReserved;
+    private long                     waits;
+    private long                     evictedBytes;
+
+
+
+    /**
+     * A cache that can give memory back to the budget.
+     */
+    public interface Evictable
+    {
+        /**
+         * Drops cached buffers and releases their memory from the budget.
+         *
+         * @param bytes - the memory that is needed.
+         *
+         * @return the memory released, in bytes; 0 if nothing could be dropped.
+         */
+        long evict(long bytes);
+    }
+
+
+
+    // Hidden constructor
+    private MemoryBudget()
+    {
+        budget = (long) (Runtime.getRuntime().maxMemory() * DEFAULT_SHARE_OF_HEAP);
+    }
+
+
+
+    // Thread-safe
+    public static MemoryBudget getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+
+    /**
+     * Sets the memory the buffers may take together. Buffers already reserved are kept; reservations
+     * wait until the reserved memory is below the new budget.
+     *
+     * @param budget - the budget, in bytes.
+     */
+    public synchronized void setBudget(final long budget)
+    {
+        if (budget <= 0)
+        {
+            throw new IllegalArgumentException("The memory budget must be positive, was " + budget + ".");
+        }
+
+        this.budget = budget;
+        notifyAll();
+    }
+
+
+
+    /**
+     * Registers a cache that is asked to evict when a reservation does not fit. Caches are asked in the
+     * order they were registered.
+     *
+     * @param evictable - the cache.
+     */
+    public void addEvictable(final Evictable evictable)
+    {
+        evictables.add(evictable);
+    }
+
+
+
+    /**
+     * Reserves memory, evicting cached buffers and then waiting for others to be released as long as it
+     * does not fit. An interrupt does not end the wait; the thread is interrupted again afterwards.
+     *
+     * @param bytes - the memory, in bytes, at most the budget.
+     */
+    public void reserve(final long bytes)
+    {
+        boolean    interrupted = false;
+        boolean    waited = false;
+
+        while (!tryReserve(bytes))
+        {
+            // Outside of the lock, since the caches release their memory while they evict
+            if (evict(bytes) > 0)
+            {
+                continue;
+            }
+
+            synchronized (this)
+            {
+                if (reserved + bytes <= budget)
+                {
+                    continue;
+                }
+                if (!waited)
+                {
+                    waited = true;
+                    waits++;
+                }
+
+                try
+                {
+                    // Timed, since a cache may become evictable without releasing anything
+                    wait(RETRY_MILLIS);
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+
+    /**
+     * Reserves memory if it fits without evicting or waiting.
+     *
+     * @param bytes - the memory, in bytes, at most the budget.
+     *
+     * @return true if the memory was reserved.
+     */
+    public synchronized boolean tryReserve(final long bytes)
+    {
+        if (bytes < 0  ||  bytes > budget)
+        {
+            throw new IllegalArgumentException("Cannot reserve " + bytes + " bytes of a budget of " + budget + ".");
+        }
+
+        if (reserved + bytes > budget)
+        {
+            return false;
+        }
+
+        reserved += bytes;
+        peakReserved = Math.max(peakReserved, reserved);
+        return true;
+    }
+
+
+
+    /**
+     * Gives reserved memory back, and wakes the reservations that wait for it.
+     *
+     * @param bytes - the memory, in bytes.
+     */
+    public synchronized void release(final long bytes)
+    {
+        if (bytes < 0  ||  bytes > reserved)
+        {
+            throw new IllegalArgumentException("Cannot release " + bytes + " bytes of " + reserved + " reserved.");
+        }
+
+        reserved -= bytes;
+        notifyAll();
+    }
+
+
+
+    // Asks the caches to evict until the memory is free; the memory released
+    private long evict(final long bytes)
+    {
+        long    released = 0;
+
+        for (Evictable evictable : evictables)
+        {
+            final long    needed;
+            synchronized (this)
+            {
+                needed = reserved + bytes - budget;
+            }
+            if (needed <= 0)
+            {
+                break;
+            }
+            released += evictable.evict(needed);
+        }
+
+        synchronized (this)
+        {
+            evictedBytes += released;
+        }
+        return released;
+    }
+
+
+
+    public synchronized long getBudget()
+    {
+        return budget;
+    }
+
+    public synchronized long getReserved()
+    {
+        return reserved;
+    }
+
+    public synchronized long getPeakReserved()
+    {
+        return peakReserved;
+    }
+
+    public synchronized long getWaits()
+    {
+        return waits;
+    }
+
+    public synchronized long getEvictedBytes()
+    {
+        return evictedBytes;
+    }
+
+
+
+    @Override
+    public synchronized String toString()
+    {
+        return "Memory:  " + (reserved >> 20) + " of " + (budget >> 20) + " MB reserved,  peak " + (peakReserved >> 20) + " MB,  "
+                + (evictedBytes >> 20) + " MB evicted,  " + waits + " waits";
+    }
+}
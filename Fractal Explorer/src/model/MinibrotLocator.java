@@ -0,0 +1,537 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Locale;
+
+
+/**
+ * <h4>MinibrotLocator.java</h4> <br>
+ *
+ * Finds the nucleus of the minibrot nearest to a point, i.e. the center of the copy of the Mandelbrot
+ * set that the point is drawn towards, so a view can be moved straight onto it. <br> <br>
+ *
+ * <li>The period of the minibrot is detected from the orbit of the point: it is the last iteration at
+ * which the orbit comes closer to 0 than ever before (the atom domain of the point).</li>
+ * <li>The nucleus is the root of <i>z<sub>period</sub>(c) = 0</i> near the point, found with Newton's
+ * method, first in doubles and then refined in double-double or BigDecimal, so the center is exact at
+ * any depth.</li>
+ * <li>The size is estimated from the derivatives along the orbit of the nucleus.</li> <br>
+ *
+ * If Newton's method does not converge for the last period, the earlier periods of the atom domain
+ * are tried, from the highest down. <br> <br> <br>
+ */
+public final class MinibrotLocator
+{
+    // Constants
+    private static final int       MAX_NEWTON_STEPS = 64;
+    private static final int       MIN_DIGITS = 20;
+    private static final int       EXTRA_DIGITS = 10;
+    private static final double    ESCAPE_RADIUS_SQUARED = 4;
+    private static final int       MAX_CANDIDATE_PERIODS = 8;
+    private static final double    DOUBLE_TOLERANCE = 1e-14;
+    private static final double    PERIOD_TOLERANCE = 1e-20;
+    private static final double    RESCALE_THRESHOLD = 1e200;
+    private static final int       RESCALE_EXPONENT = 100;
+    private static final double    RESCALE_FACTOR = 1e-100;
+    private static final double    DIVERGENCE_LIMIT = 1e10;
+    private static final int       EXTENDED_DIGITS = 30;
+    private static final double    EXTENDED_TOLERANCE = 1e-30;
+    private static final double    DERIVATIVE_RESCALE_THRESHOLD = 0x1p500;
+    private static final int       DERIVATIVE_RESCALE_BITS = 500;
+
+    private final int    maxNumberOfIterations;
+
+
+
+    /**
+     * A nucleus with the period and approximate radius of its minibrot.
+     */
+    public static final class Minibrot
+    {
+        private final BigDecimal    centerX;
+        private final BigDecimal    centerY;
+        private final int           period;
+        private final double        log10Size;
+
+        private Minibrot(final BigDecimal centerX, final BigDecimal centerY, final int period, final double log10Size)
+        {
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.period = period;
+            this.log10Size = log10Size;
+        }
+
+        public BigDecimal getCenterX()
+        {
+            return centerX;
+        }
+
+        public BigDecimal getCenterY()
+        {
+            return centerY;
+        }
+
+        public int getPeriod()
+        {
+            return period;
+        }
+
+        /**
+         * Returns the approximate radius of the minibrot; the main cardioid has size 1.
+         *
+         * @return the size.
+         */
+        public double getSize()
+        {
+            return Math.pow(10, log10Size);
+        }
+
+        /**
+         * Returns a viewport that shows the whole minibrot in a frame.
+         *
+         * @param frameWidth - the width of the frame.
+         * @param frameHeight - the height of the frame.
+         *
+         * @return the viewport.
+         */
+        public Viewport toViewport(final int frameWidth, final int frameHeight)
+        {
+            // 4 size / min(width, height), also for sizes below the range of a double
+            final double    log10Spacing = Math.log10(4.0 / Math.min(frameWidth, frameHeight)) + log10Size;
+            final int       exponent = (int) Math.floor(log10Spacing);
+
+            return new Viewport(centerX, centerY, BigDecimal.valueOf(Math.pow(10, log10Spacing - exponent)).scaleByPowerOfTen(exponent));
+        }
+
+        @Override
+        public String toString()
+        {
+            final int    exponent = (int) Math.floor(log10Size);
+
+            return "Minibrot of period " + period + " at (" + centerX.round(MathContext.DECIMAL64) + ", "
+                    + centerY.round(MathContext.DECIMAL64) + "), size " + String.format(Locale.ROOT, "%.3f", Math.pow(10, log10Size - exponent)) + "E" + exponent;
+        }
+    }
+
+
+
+    /**
+     * Constructs a locator.
+     *
+     * @param maxNumberOfIterations - the highest period to detect.
+     */
+    public MinibrotLocator(final int maxNumberOfIterations)
+    {
+        this.maxNumberOfIterations = maxNumberOfIterations;
+    }
+
+
+
+    /**
+     * Finds the minibrot nearest to a pixel of a frame, with the center as precise as the viewport needs.
+     *
+     * @param viewport - the viewport of the frame.
+     * @param x - the column of the pixel.
+     * @param y - the row of the pixel.
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     *
+     * @return the minibrot, or null if none was found.
+     */
+    public Minibrot locate(final Viewport viewport, final int x, final int y, final int frameWidth, final int frameHeight)
+    {
+        final int    digits = (int) Math.ceil(PrecisionManager.arbitraryPrecisionBits(viewport, frameWidth, frameHeight) * Math.log10(2));
+
+        return locate(viewport.realPartAt(x, frameWidth), viewport.imaginaryPartAt(y, frameHeight),
+                      new MathContext(Math.max(MIN_DIGITS, digits + EXTRA_DIGITS)));
+    }
+
+
+
+    /**
+     * Finds the minibrot nearest to a point.
+     *
+     * @param cx - the real part of the point.
+     * @param cy - the imaginary part of the point.
+     * @param context - the precision to compute the center in.
+     *
+     * @return the minibrot, or null if none was found.
+     */
+    public Minibrot locate(final BigDecimal cx, final BigDecimal cy, final MathContext context)
+    {
+        final int[]    periods = atomDomainPeriods(cx.doubleValue(), cy.doubleValue());
+
+        for (int i = periods.length - 1; i >= 0  &&  i >= periods.length - MAX_CANDIDATE_PERIODS; i--)
+        {
+            // Newton's method in doubles gets close cheaply, the arbitrary precision steps then only have to refine
+            final double[]        estimate = newton(cx.doubleValue(), cy.doubleValue(), periods[i]);
+            final BigDecimal[]    nucleus = (estimate == null) ? null : refine(estimate[0], estimate[1], periods[i], context);
+
+            if (nucleus == null)
+            {
+                continue;
+            }
+
+            final double    nx = nucleus[0].doubleValue();
+            final double    ny = nucleus[1].doubleValue();
+            final int       period = reducePeriod(nx, ny, periods[i]);
+            final double    log10Size = log10Size(nx, ny, period);
+
+            if (Double.isFinite(log10Size)  &&  log10Size <= 0  &&  nx * nx + ny * ny <= ESCAPE_RADIUS_SQUARED)
+            {
+                return new Minibrot(nucleus[0], nucleus[1], period, log10Size);
+            }
+        }
+
+        return null;
+    }
+
+
+
+    // The iterations at which the orbit comes closer to 0 than ever before, in increasing order
+    private int[] atomDomainPeriods(final double ca, final double cb)
+    {
+        final int[]    periods = new int[64];
+        int            count = 0;
+        double         a = 0;
+        double         b = 0;
+        double         min = Double.MAX_VALUE;
+
+        for (int n = 1; n <= maxNumberOfIterations; n++)
+        {
+            final double    t = a * a - b * b + ca;
+            b = 2 * a * b + cb;
+            a = t;
+
+            final double    absSq = a * a + b * b;
+            if (absSq > ESCAPE_RADIUS_SQUARED)
+            {
+                break;
+            }
+            if (absSq < min)
+            {
+                min = absSq;
+                if (count == periods.length)
+                {
+                    System.arraycopy(periods, 1, periods, 0, count - 1);
+                    count--;
+                }
+                periods[count++] = n;
+            }
+        }
+
+        final int[]    result = new int[count];
+        System.arraycopy(periods, 0, result, 0, count);
+        return result;
+    }
+
+
+
+    /*
+     * Newton's method for z_period(c) = 0 in doubles, with dz/dc iterated along: dz' = 2 z dz + 1, z' = z^2 + c.
+     * Returns null if it diverges or does not settle within MAX_NEWTON_STEPS.
+     */
+    private static double[] newton(final double startX, final double startY, final int period)
+    {
+        double    cx = startX;
+        double    cy = startY;
+
+        for (int step = 0; step < MAX_NEWTON_STEPS; step++)
+        {
+            double    zx = 0;
+            double    zy = 0;
+            double    dx = 0;
+            double    dy = 0;
+
+            for (int i = 0; i < period; i++)
+            {
+                final double    ndx = 2 * (zx * dx - zy * dy) + 1;
+                final double    ndy = 2 * (zx * dy + zy * dx);
+                final double    nzx = zx * zx - zy * zy + cx;
+                final double    nzy = 2 * zx * zy + cy;
+
+                dx = ndx;
+                dy = ndy;
+                zx = nzx;
+                zy = nzy;
+            }
+
+            final double    denominator = dx * dx + dy * dy;
+            final double    stepX = (zx * dx + zy * dy) / denominator;
+            final double    stepY = (zy * dx - zx * dy) / denominator;
+
+            if (!Double.isFinite(stepX)  ||  !Double.isFinite(stepY))
+            {
+                return null;
+            }
+
+            cx -= stepX;
+            cy -= stepY;
+
+            if (Math.abs(stepX) + Math.abs(stepY) <= DOUBLE_TOLERANCE * (Math.abs(cx) + Math.abs(cy)))
+            {
+                return new double[] { cx, cy };
+            }
+        }
+
+        return null;
+    }
+
+
+
+    /*
+     * Refines a nucleus found in doubles to the precision of the context: in double-double where that
+     * is precise enough, in BigDecimal otherwise. Only z needs the precision, the derivative dz/dc is
+     * iterated in doubles, which still converges by about 16 digits per step.
+     */
+    private static BigDecimal[] refine(final double startX, final double startY, final int period, final MathContext context)
+    {
+        if (context.getPrecision() <= EXTENDED_DIGITS)
+        {
+            return newtonExtended(startX, startY, period, context);
+        }
+
+        return newtonArbitrary(new BigDecimal(startX), new BigDecimal(startY), period, context);
+    }
+
+
+
+    private static BigDecimal[] newtonExtended(final double startX, final double startY, final int period, final MathContext context)
+    {
+        final double[]    cx = { startX, 0 };
+        final double[]    cy = { startY, 0 };
+        final double[]    zx = new double[2];
+        final double[]    zy = new double[2];
+        final double[]    t = new double[2];
+        final double[]    u = new double[2];
+        final double[]    stepX = new double[2];
+        final double[]    stepY = new double[2];
+
+        for (int step = 0; step < MAX_NEWTON_STEPS; step++)
+        {
+            zx[0] = zx[1] = zy[0] = zy[1] = 0;
+            double    dx = 0;
+            double    dy = 0;
+            int       dExponent = 0;
+
+            for (int i = 0; i < period; i++)
+            {
+                // dz = 2 z dz + 1, in doubles and scaled by 2^dExponent
+                final double    ndx = 2 * (zx[0] * dx - zy[0] * dy) + Math.scalb(1.0, -dExponent);
+                final double    ndy = 2 * (zx[0] * dy + zy[0] * dx);
+                dx = ndx;
+                dy = ndy;
+                if (Math.abs(dx) + Math.abs(dy) > DERIVATIVE_RESCALE_THRESHOLD)
+                {
+                    dx = Math.scalb(dx, -DERIVATIVE_RESCALE_BITS);
+                    dy = Math.scalb(dy, -DERIVATIVE_RESCALE_BITS);
+                    dExponent += DERIVATIVE_RESCALE_BITS;
+                }
+
+                // z = z^2 + c
+                DoubleDouble.multiply(zx[0], zx[1], zx[0], zx[1], t);
+                DoubleDouble.multiply(zy[0], zy[1], zy[0], zy[1], u);
+                DoubleDouble.add(t[0], t[1], -u[0], -u[1], t);
+                DoubleDouble.multiply(zx[0], zx[1], zy[0], zy[1], u);
+                DoubleDouble.add(t[0], t[1], cx[0], cx[1], zx);
+                DoubleDouble.add(2 * u[0], 2 * u[1], cy[0], cy[1], zy);
+
+                if (Math.abs(zx[0]) + Math.abs(zy[0]) > DIVERGENCE_LIMIT)
+                {
+                    return null;
+                }
+            }
+
+            // c -= z / dz = z * conj(dz) / |dz|^2
+            final double    denominator = dx * dx + dy * dy;
+            if (denominator == 0)
+            {
+                return null;
+            }
+            final double    qx = Math.scalb(dx / denominator, -dExponent);
+            final double    qy = Math.scalb(-dy / denominator, -dExponent);
+
+            DoubleDouble.multiply(zx[0], zx[1], qx, 0, t);
+            DoubleDouble.multiply(zy[0], zy[1], qy, 0, u);
+            DoubleDouble.add(t[0], t[1], -u[0], -u[1], stepX);
+            DoubleDouble.multiply(zx[0], zx[1], qy, 0, t);
+            DoubleDouble.multiply(zy[0], zy[1], qx, 0, u);
+            DoubleDouble.add(t[0], t[1], u[0], u[1], stepY);
+
+            if (!Double.isFinite(stepX[0])  ||  !Double.isFinite(stepY[0]))
+            {
+                return null;
+            }
+
+            DoubleDouble.add(cx[0], cx[1], -stepX[0], -stepX[1], cx);
+            DoubleDouble.add(cy[0], cy[1], -stepY[0], -stepY[1], cy);
+
+            if (Math.abs(stepX[0]) + Math.abs(stepY[0]) <= EXTENDED_TOLERANCE * (Math.abs(cx[0]) + Math.abs(cy[0])))
+            {
+                return new BigDecimal[] { new BigDecimal(cx[0]).add(new BigDecimal(cx[1])).round(context),
+                                          new BigDecimal(cy[0]).add(new BigDecimal(cy[1])).round(context) };
+            }
+        }
+
+        return null;
+    }
+
+
+
+    /*
+     * The precision starts low and is doubled whenever a step has converged at the current one.
+     */
+    private static BigDecimal[] newtonArbitrary(final BigDecimal startX, final BigDecimal startY, final int period, final MathContext context)
+    {
+        final BigDecimal    two = BigDecimal.valueOf(2);
+        BigDecimal          cx = startX;
+        BigDecimal          cy = startY;
+        MathContext         stepContext = new MathContext(Math.min(context.getPrecision(), 2 * EXTENDED_DIGITS));
+
+        for (int step = 0; step < MAX_NEWTON_STEPS; step++)
+        {
+            final MathContext    mc = stepContext;
+            BigDecimal           zx = BigDecimal.ZERO;
+            BigDecimal           zy = BigDecimal.ZERO;
+            double               dx = 0;
+            double               dy = 0;
+            int                  dExponent = 0;
+
+            for (int i = 0; i < period; i++)
+            {
+                final double    zxd = zx.doubleValue();
+                final double    zyd = zy.doubleValue();
+
+                // dz = 2 z dz + 1, in doubles and scaled by 2^dExponent
+                final double    ndx = 2 * (zxd * dx - zyd * dy) + Math.scalb(1.0, -dExponent);
+                final double    ndy = 2 * (zxd * dy + zyd * dx);
+                dx = ndx;
+                dy = ndy;
+                if (Math.abs(dx) + Math.abs(dy) > DERIVATIVE_RESCALE_THRESHOLD)
+                {
+                    dx = Math.scalb(dx, -DERIVATIVE_RESCALE_BITS);
+                    dy = Math.scalb(dy, -DERIVATIVE_RESCALE_BITS);
+                    dExponent += DERIVATIVE_RESCALE_BITS;
+                }
+
+                if (Math.abs(zxd) + Math.abs(zyd) > DIVERGENCE_LIMIT)
+                {
+                    return null;
+                }
+
+                // z = z^2 + c
+                final BigDecimal    nzx = zx.multiply(zx, mc).subtract(zy.multiply(zy, mc), mc).add(cx, mc);
+                zy = two.multiply(zx.multiply(zy, mc), mc).add(cy, mc);
+                zx = nzx;
+            }
+
+            // c -= z / dz = z * conj(dz) / |dz|^2
+            final double    denominator = dx * dx + dy * dy;
+            if (denominator == 0)
+            {
+                return null;
+            }
+            final BigDecimal    scale = BigDecimal.ONE.divide(two.pow(dExponent), mc);
+            final BigDecimal    qx = new BigDecimal(dx / denominator).multiply(scale, mc);
+            final BigDecimal    qy = new BigDecimal(-dy / denominator).multiply(scale, mc);
+
+            final BigDecimal    stepX = zx.multiply(qx, mc).subtract(zy.multiply(qy, mc), mc);
+            final BigDecimal    stepY = zx.multiply(qy, mc).add(zy.multiply(qx, mc), mc);
+
+            cx = cx.subtract(stepX, mc);
+            cy = cy.subtract(stepY, mc);
+
+            final BigDecimal    tolerance = BigDecimal.ONE.movePointLeft(mc.getPrecision() - EXTRA_DIGITS / 2);
+            final BigDecimal    magnitude = cx.abs().max(cy.abs()).max(BigDecimal.ONE.movePointLeft(mc.getPrecision()));
+
+            if (stepX.abs().max(stepY.abs()).compareTo(tolerance.multiply(magnitude, mc)) <= 0)
+            {
+                if (mc.getPrecision() >= context.getPrecision())
+                {
+                    return new BigDecimal[] { cx.round(context), cy.round(context) };
+                }
+                stepContext = new MathContext(Math.min(context.getPrecision(), 2 * mc.getPrecision()));
+            }
+        }
+
+        return null;
+    }
+
+
+
+    // The period of a nucleus found for a multiple of it is the first iteration that returns to 0
+    private static int reducePeriod(final double cx, final double cy, final int period)
+    {
+        double    zx = 0;
+        double    zy = 0;
+        double    min = Double.MAX_VALUE;
+        int       reduced = period;
+
+        for (int n = 1; n < period; n++)
+        {
+            final double    t = zx * zx - zy * zy + cx;
+            zy = 2 * zx * zy + cy;
+            zx = t;
+
+            final double    absSq = zx * zx + zy * zy;
+            if (absSq < min)
+            {
+                min = absSq;
+                if (period % n == 0  &&  absSq < PERIOD_TOLERANCE)
+                {
+                    reduced = n;
+                    break;
+                }
+            }
+        }
+
+        return reduced;
+    }
+
+
+
+    /*
+     * The size estimate |1 / (b l^2)|, with l the derivative of z with respect to z along the orbit of
+     * the nucleus and b the sum of the reciprocals of l. The magnitude of l is kept apart as a power of
+     * ten, since l outgrows a double for long periods.
+     */
+    private static double log10Size(final double cx, final double cy, final int period)
+    {
+        double    zx = 0;
+        double    zy = 0;
+        double    lx = 1;
+        double    ly = 0;
+        double    bx = 1;
+        double    by = 0;
+        int       lExponent = 0;
+
+        for (int i = 1; i < period; i++)
+        {
+            final double    t = zx * zx - zy * zy + cx;
+            zy = 2 * zx * zy + cy;
+            zx = t;
+
+            // l = 2 z l
+            final double    nlx = 2 * (zx * lx - zy * ly);
+            final double    nly = 2 * (zx * ly + zy * lx);
+            lx = nlx;
+            ly = nly;
+
+            final double    lAbsSq = lx * lx + ly * ly;
+            if (lAbsSq > RESCALE_THRESHOLD)
+            {
+                lx *= RESCALE_FACTOR;
+                ly *= RESCALE_FACTOR;
+                lExponent -= RESCALE_EXPONENT;
+                continue;  // 1 / l no longer adds to b
+            }
+
+            // b += 1 / l
+            bx += lx / lAbsSq * Math.pow(10, lExponent);
+            by -= ly / lAbsSq * Math.pow(10, lExponent);
+        }
+
+        return -Math.log10(Math.hypot(bx, by)) - 2 * (Math.log10(Math.hypot(lx, ly)) - lExponent);
+    }
+}
@@ -0,0 +1,442 @@
+package model;
+
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+
+
+/**
+ * <h4>MipmapPyramid.java</h4> <br>
+ *
+ * The colors of recently rendered frames, each kept at power-of-two scales: level 0 is the frame
+ * itself and every further level averages 2 x 2 pixels of the level below it. The levels are built
+ * tile by tile on the computing threads as the tiles are done; the levels coarser than a tile are
+ * built when the frame is complete. <br> <br>
+ *
+ * When the view is zoomed out, the cached frames it encloses are drawn at once from the level whose
+ * pixel spacing is nearest to, but not larger than, the spacing of the new view. The tiles of the new
+ * view that are covered this way need not be computed. <br>
+ * The frames are kept within a memory budget; the least recently used are evicted first. Their levels
+ * are taken from a <i>BufferPool</i>, and an evicted frame gives them back for the next frame of the
+ * same size. When the shared <i>MemoryBudget</i> runs out, the pyramid drops its least recently used
+ * frames for good; the frame that is being computed is kept. <br> <br> <br>
+ */
+public final class MipmapPyramid implements MemoryBudget.Evictable
+{
+    // Constants
+    private static final int            MIN_LEVEL_SIZE = 4;
+    private static final int            BYTES_PER_PIXEL = Integer.BYTES;
+    private static final MathContext    OFFSET_CONTEXT = MathContext.DECIMAL64;
+    private static final int            OPAQUE = 0xFF000000;
+
+    private final long           budget;
+    private final BufferPool     buffers;
+    private final List<Frame>    frames = new LinkedList<Frame>();   // Most recently used first
+    private Frame                building;                           // The frame being computed, not to be evicted
+    private long                 bytesUsed;
+    private long                 evictions;
+
+
+
+    /**
+     * A cached frame. Tiles may be added from several threads at once, as long as they do not overlap.
+     */
+    public final class Frame
+    {
+        private final Viewport    viewport;
+        private final int         width;
+        private final int         height;
+        private final int         tileSize;
+        private final int         tileLevels;
+        private final int[][]     levels;
+        private final BitSet      doneTiles = new BitSet();
+        private final int         tileColumns;
+        private volatile boolean  complete;
+
+        private Frame(final Viewport viewport, final int width, final int height, final int tileSize)
+        {
+            final int    numberOfLevels = numberOfLevels(width, height);
+
+            this.viewport = viewport;
+            this.width = width;
+            this.height = height;
+            this.tileSize = tileSize;
+            this.tileLevels = Math.min(numberOfLevels - 1, Integer.numberOfTrailingZeros(tileSize));
+            this.levels = new int[numberOfLevels][];
+            this.tileColumns = (width + tileSize - 1) / tileSize;
+
+            for (int level = 0; level < numberOfLevels; level++)
+            {
+                levels[level] = buffers.takeInts((width >> level) * (height >> level));
+            }
+        }
+
+
+
+        /**
+         * Stores the colors of a finished tile and builds the levels within it. The tile must be one
+         * of <i>Tile.split(width, height, tileSize)</i> of the frame.
+         *
+         * @param tile - the tile.
+         * @param rgb - the colors, row by row.
+         * @param offset - the index of the top left color of the tile.
+         * @param scansize - the distance between the rows of the tile in the colors.
+         */
+        public void addTile(final Tile tile, final int[] rgb, final int offset, final int scansize)
+        {
+            for (int y = tile.getStartY(); y < tile.getEndY(); y++)
+            {
+                System.arraycopy(rgb, offset + (y - tile.getStartY()) * scansize, levels[0], y * width + tile.getStartX(), tile.getWidth());
+            }
+
+            for (int level = 1; level <= tileLevels; level++)
+            {
+                downsample(level, tile.getStartX() >> level, tile.getStartY() >> level, tile.getEndX() >> level, tile.getEndY() >> level);
+            }
+
+            synchronized (doneTiles)
+            {
+                doneTiles.set(tile.getID());
+            }
+        }
+
+
+
+        /**
+         * Builds the levels coarser than a tile; from then on, the whole frame is used for previews.
+         */
+        public void complete()
+        {
+            for (int level = tileLevels + 1; level < levels.length; level++)
+            {
+                downsample(level, 0, 0, width >> level, height >> level);
+            }
+            complete = true;
+
+            synchronized (MipmapPyramid.this)
+            {
+                if (building == this)
+                {
+                    building = null;
+                }
+            }
+        }
+
+
+
+        // Averages 2 x 2 pixels of the level below into the rectangle [x0, x1) x [y0, y1) of a level
+        private void downsample(final int level, final int x0, final int y0, final int x1, final int y1)
+        {
+            final int[]    source = levels[level - 1];
+            final int[]    target = levels[level];
+            final int      sourceWidth = width >> (level - 1);
+            final int      targetWidth = width >> level;
+
+            for (int y = y0; y < y1; y++)
+            {
+                for (int x = x0; x < x1; x++)
+                {
+                    final int    i = 2 * y * sourceWidth + 2 * x;
+
+                    target[y * targetWidth + x] = average(source[i], source[i + 1], source[i + sourceWidth], source[i + sourceWidth + 1]);
+                }
+            }
+        }
+
+
+
+        // Whether the pixel (x, y) of a level holds a color, given a copy of the done tiles
+        private boolean isDone(final int level, final int x, final int y, final BitSet done)
+        {
+            return complete  ||  (level <= tileLevels  &&  done.get(((y << level) / tileSize) * tileColumns + (x << level) / tileSize));
+        }
+
+
+
+        private BitSet getDoneTiles()
+        {
+            synchronized (doneTiles)
+            {
+                return (BitSet) doneTiles.clone();
+            }
+        }
+
+
+
+        private long getBytes()
+        {
+            return bytesOf(width, height);
+        }
+    }
+
+
+
+    /**
+     * Constructs an empty pyramid.
+     *
+     * @param budget - the memory the cached frames may take, in bytes.
+     * @param buffers - the pool the levels are taken from; its budget may evict frames.
+     */
+    public MipmapPyramid(final long budget, final BufferPool buffers)
+    {
+        if (budget <= 0)
+        {
+            throw new IllegalArgumentException("The memory budget must be positive, was " + budget + ".");
+        }
+
+        this.budget = budget;
+        this.buffers = buffers;
+    }
+
+
+
+    /**
+     * Adds a frame that is about to be computed, evicting the least recently used frames as far as
+     * needed to stay within the budget.
+     *
+     * @param viewport - the view of the frame.
+     * @param width - the width of the frame.
+     * @param height - the height of the frame.
+     * @param tileSize - the side of the tiles the frame is computed in, a power of two.
+     *
+     * @return the frame, to add the tiles to; null if the frame alone is larger than the budget.
+     */
+    public Frame add(final Viewport viewport, final int width, final int height, final int tileSize)
+    {
+        if (Integer.bitCount(tileSize) != 1)
+        {
+            throw new IllegalArgumentException("The tile size must be a power of two, was " + tileSize + ".");
+        }
+
+        final long    bytes = bytesOf(width, height);
+
+        if (bytes > budget  ||  bytes > buffers.getBudget().getBudget())
+        {
+            return null;
+        }
+
+        synchronized (this)
+        {
+            // The evicted levels go back to the pool, where the new frame takes them from
+            building = null;
+            while (bytesUsed + bytes > budget)
+            {
+                final Frame    evicted = frames.remove(frames.size() - 1);
+
+                for (int[] level : evicted.levels)
+                {
+                    buffers.give(level);
+                }
+                bytesUsed -= evicted.getBytes();
+                evictions++;
+            }
+            bytesUsed += bytes;
+        }
+
+        // Outside of the lock, since taking the levels may evict other frames from the shared budget
+        final Frame    frame = new Frame(viewport, width, height, tileSize);
+
+        synchronized (this)
+        {
+            frames.add(0, frame);
+            building = frame;
+        }
+        return frame;
+    }
+
+
+
+    /**
+     * Drops the least recently used frames, except the frame being computed, and releases their
+     * levels from the shared budget.
+     */
+    @Override
+    public synchronized long evict(final long bytes)
+    {
+        long    released = 0;
+
+        for (int i = frames.size() - 1; i >= 0  &&  released < bytes; i--)
+        {
+            final Frame    evicted = frames.get(i);
+
+            if (evicted != building)
+            {
+                frames.remove(i);
+                for (int[] level : evicted.levels)
+                {
+                    buffers.discard(level);
+                }
+                bytesUsed -= evicted.getBytes();
+                released += evicted.getBytes();
+                evictions++;
+            }
+        }
+
+        return released;
+    }
+
+
+
+    /**
+     * Draws a view from the cached frames. Frames with a pixel spacing up to that of the view are used,
+     * each from the level nearest to the spacing of the view, finer frames over coarser ones. The
+     * pixels that are drawn are opaque; the others are made transparent.
+     *
+     * @param viewport - the view.
+     * @param width - the width of the view.
+     * @param height - the height of the view.
+     * @param rgb - the colors of the view, row by row.
+     * @param tileSize - the side of the tiles the view will be computed in.
+     *
+     * @return the IDs of the tiles of <i>Tile.split(width, height, tileSize)</i> that are fully covered.
+     */
+    public synchronized BitSet preview(final Viewport viewport, final int width, final int height, final int[] rgb, final int tileSize)
+    {
+        final List<Frame>    sources = new ArrayList<Frame>();
+
+        // Within the lock, so that no frame that is drawn from is evicted and its levels reused
+        for (Frame frame : frames)
+        {
+            if (frame.viewport.getPixelSpacing().compareTo(viewport.getPixelSpacing()) <= 0)
+            {
+                sources.add(frame);
+            }
+        }
+        // Used frames become the most recently used
+        frames.removeAll(sources);
+        frames.addAll(0, sources);
+
+        // Coarsest first, so that finer frames are drawn over them
+        sources.sort((a, b) -> b.viewport.getPixelSpacing().compareTo(a.viewport.getPixelSpacing()));
+        Arrays.fill(rgb, 0, width * height, 0);
+
+        for (Frame frame : sources)
+        {
+            final double    ratio = viewport.getPixelSpacing().divide(frame.viewport.getPixelSpacing(), OFFSET_CONTEXT).doubleValue();
+            final int       level = Math.min(frame.levels.length - 1, 31 - Integer.numberOfLeadingZeros((int) Math.max(1, Math.min(ratio * (1 + 1e-9), 1 << 30))));
+            final int[]     source = frame.levels[level];
+            final BitSet    done = frame.getDoneTiles();
+            final int       levelWidth  = frame.width  >> level;
+            final int       levelHeight = frame.height >> level;
+
+            // The column and row of the frame under the middle of the view
+            final double    offsetX = viewport.getCenterX().subtract(frame.viewport.getCenterX()).divide(frame.viewport.getPixelSpacing(), OFFSET_CONTEXT).doubleValue()
+                    + frame.width / 2;
+            final double    offsetY = viewport.getCenterY().subtract(frame.viewport.getCenterY()).divide(frame.viewport.getPixelSpacing(), OFFSET_CONTEXT).doubleValue()
+                    + frame.height / 2;
+
+            if (Math.abs(offsetX) > Integer.MAX_VALUE / 2  ||  Math.abs(offsetY) > Integer.MAX_VALUE / 2)
+            {
+                continue;
+            }
+
+            for (int y = 0; y < height; y++)
+            {
+                final long    frameY = Math.round(offsetY + (y - height / 2) * ratio);
+                final int     sourceY = (int) (frameY >> level);
+
+                if (frameY < 0  ||  sourceY >= levelHeight)
+                {
+                    continue;
+                }
+
+                for (int x = 0; x < width; x++)
+                {
+                    final long    frameX = Math.round(offsetX + (x - width / 2) * ratio);
+                    final int     sourceX = (int) (frameX >> level);
+
+                    if (frameX >= 0  &&  sourceX < levelWidth  &&  frame.isDone(level, sourceX, sourceY, done))
+                    {
+                        rgb[y * width + x] = source[sourceY * levelWidth + sourceX] | OPAQUE;
+                    }
+                }
+            }
+        }
+
+        final BitSet    coveredTiles = new BitSet();
+        for (Tile tile : Tile.split(width, height, tileSize))
+        {
+            if (isCovered(rgb, width, tile))
+            {
+                coveredTiles.set(tile.getID());
+            }
+        }
+
+        return coveredTiles;
+    }
+
+
+
+    // Whether all pixels of a tile are opaque
+    private static boolean isCovered(final int[] rgb, final int width, final Tile tile)
+    {
+        for (int y = tile.getStartY(); y < tile.getEndY(); y++)
+        {
+            for (int x = tile.getStartX(); x < tile.getEndX(); x++)
+            {
+                if ((rgb[y * width + x] & OPAQUE) == 0)
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+
+
+    private static int numberOfLevels(final int width, final int height)
+    {
+        int    numberOfLevels = 1;
+        while ((width >> numberOfLevels) >= MIN_LEVEL_SIZE  &&  (height >> numberOfLevels) >= MIN_LEVEL_SIZE)
+        {
+            numberOfLevels++;
+        }
+        return numberOfLevels;
+    }
+
+
+
+    // The memory of the levels of a frame
+    private static long bytesOf(final int width, final int height)
+    {
+        long    bytes = 0;
+        for (int level = 0; level < numberOfLevels(width, height); level++)
+        {
+            bytes += (long) (width >> level) * (height >> level) * BYTES_PER_PIXEL;
+        }
+        return bytes;
+    }
+
+
+
+    // The mean of four RGB colors, channel by channel
+    private static int average(final int c0, final int c1, final int c2, final int c3)
+    {
+        final int    r = ((c0 >> 16 & 0xFF) + (c1 >> 16 & 0xFF) + (c2 >> 16 & 0xFF) + (c3 >> 16 & 0xFF) + 2) >> 2;
+        final int    g = ((c0 >>  8 & 0xFF) + (c1 >>  8 & 0xFF) + (c2 >>  8 & 0xFF) + (c3 >>  8 & 0xFF) + 2) >> 2;
+        final int    b = ((c0       & 0xFF) + (c1       & 0xFF) + (c2       & 0xFF) + (c3       & 0xFF) + 2) >> 2;
+
+        return (c0 & 0xFF000000) | (r << 16) | (g << 8) | b;
+    }
+
+
+
+    public synchronized long getBytesUsed()
+    {
+        return bytesUsed;
+    }
+
+    public synchronized int getNumberOfFrames()
+    {
+        return frames.size();
+    }
+
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+}
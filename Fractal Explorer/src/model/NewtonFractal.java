@@ -0,0 +1,417 @@
+package model;
+
+import java.util.Arrays;
+
+
+/**
+ * <h4>NewtonFractal.java</h4> <br>
+ *
+ * Renders the Newton fractal of a polynomial <i>p</i>: every pixel is a starting point of Newton's
+ * method, <i>z = z - p(z) / p'(z)</i>, and is colored by the root it converges to, darker the more
+ * steps it takes. Points that do not converge, e.g. in an attracting cycle, are black. <br> <br>
+ *
+ * <li>The roots are found once, when the fractal is constructed, with the Durand-Kerner method and
+ * polished with a few Newton steps, using <i>ComplexNumber</i>.</li>
+ * <li>The iteration itself evaluates <i>p</i> and <i>p'</i> together with Horner's scheme on plain
+ * doubles, and allocates nothing.</li>
+ * <li>Since the roots are known, a point is done as soon as it is within a capture radius of a root,
+ * a squared distance check per root, instead of when its steps become small. The radius is at most a
+ * quarter of the distance between the closest roots, where the method has settled on its root. The
+ * estimates of a multiple root are merged into one root first, else the radius would shrink to their
+ * rounding error and no point would ever be captured.</li> <br>
+ *
+ * The pixels are mapped in double precision; views deeper than that are not resolved. <br> <br> <br>
+ */
+public final class NewtonFractal
+{
+    // Constants
+    public static final int         NO_ROOT = -1;
+    private static final int        MAX_ROOT_ITERATIONS = 1000;
+    private static final int        POLISH_ITERATIONS = 4;
+    private static final double     ROOT_TOLERANCE = 1e-15;
+    private static final double     MERGE_DISTANCE = 1e-4;    // Relative; triple roots are found to about 1e-5
+    private static final double     MAX_CAPTURE_RADIUS = 0.1;
+    private static final int        SHADES_PER_STEP = 16;
+    private static final int        SHADED_STEPS = 32;        // Further steps are as dark as the last
+    private static final long       EXPONENT_BITS = 0x3FF0000000000000L;
+    private static final long       MANTISSA_BITS = 0x000FFFFFFFFFFFFFL;
+
+    private final ComplexNumber[]    coefficients;   // Highest degree first
+    private final double[]           re;             // The coefficients as primitives, highest degree first
+    private final double[]           im;
+    private final double[]           rootRe;         // The distinct roots
+    private final double[]           rootIm;
+    private final double             captureRadiusSquared;
+    private final int[]              shades;         // The colors of every root by the smoothed number of steps
+
+
+
+    /**
+     * Constructs the Newton fractal of a polynomial and finds its roots.
+     *
+     * @param coefficients - the coefficients, highest degree first, e.g. <i>1, 0, 0, -1</i> for <i>z^3 - 1</i>.
+     */
+    public NewtonFractal(final ComplexNumber... coefficients)
+    {
+        final ComplexNumber[]    roots = mergeRoots(findRoots(coefficients));
+        final int                degree = coefficients.length - 1;
+
+        this.coefficients = coefficients.clone();
+        re = new double[degree + 1];
+        im = new double[degree + 1];
+        rootRe = new double[roots.length];
+        rootIm = new double[roots.length];
+
+        for (int k = 0; k <= degree; k++)
+        {
+            re[k] = coefficients[k].getRealPart();
+            im[k] = coefficients[k].getImaginaryPart();
+        }
+
+        double    minDistance = Double.MAX_VALUE;
+        for (int i = 0; i < roots.length; i++)
+        {
+            rootRe[i] = roots[i].getRealPart();
+            rootIm[i] = roots[i].getImaginaryPart();
+
+            for (int j = 0; j < i; j++)
+            {
+                minDistance = Math.min(minDistance, roots[i].sub(roots[j]).abs());
+            }
+        }
+
+        final double    captureRadius = Math.min(minDistance / 4, MAX_CAPTURE_RADIUS);
+        captureRadiusSquared = captureRadius * captureRadius;
+
+        // The colors are looked up, coloring every pixel on its own costs as much as the iteration
+        shades = new int[roots.length * SHADED_STEPS * SHADES_PER_STEP];
+        for (int i = 0; i < shades.length; i++)
+        {
+            shades[i] = Palette.toNewtonRGB(i / (SHADED_STEPS * SHADES_PER_STEP), roots.length,
+                                            (float) (i % (SHADED_STEPS * SHADES_PER_STEP)) / SHADES_PER_STEP);
+        }
+    }
+
+
+
+    /**
+     * Finds all roots of a polynomial with the Durand-Kerner method: every root estimate is moved by
+     * <i>p(z) / (a * prod(z - other estimates))</i>, where <i>a</i> is the leading coefficient, until
+     * none of them moves. Multiple roots are found with about half the precision of simple roots.
+     *
+     * @param coefficients - the coefficients, highest degree first; the first must not be zero.
+     *
+     * @return the roots, as many as the degree.
+     */
+    public static ComplexNumber[] findRoots(final ComplexNumber... coefficients)
+    {
+        if (coefficients.length < 2)
+        {
+            throw new IllegalArgumentException("The polynomial must be of degree 1 or more, had " + coefficients.length + " coefficients.");
+        }
+        if (coefficients[0].isZero())
+        {
+            throw new IllegalArgumentException("The leading coefficient must not be zero.");
+        }
+
+        final int                degree = coefficients.length - 1;
+        final ComplexNumber      leading = coefficients[0];
+        final ComplexNumber[]    roots = new ComplexNumber[degree];
+
+        // The usual starting points, powers of a number that is neither real nor a root of unity
+        final ComplexNumber    seed = new ComplexNumber(0.4, 0.9);
+        for (int i = 0; i < degree; i++)
+        {
+            roots[i] = seed.pow(i);
+        }
+
+        for (int iteration = 0; iteration < MAX_ROOT_ITERATIONS; iteration++)
+        {
+            double    largestStep = 0;
+
+            for (int i = 0; i < degree; i++)
+            {
+                ComplexNumber    denominator = leading;
+                for (int j = 0; j < degree; j++)
+                {
+                    if (j != i)
+                    {
+                        denominator = denominator.times(roots[i].sub(roots[j]));
+                    }
+                }
+
+                if (denominator.isZero())
+                {
+                    // Two estimates met; move one of them off
+                    roots[i] = roots[i].add(new ComplexNumber(ROOT_TOLERANCE, ROOT_TOLERANCE));
+                    largestStep = Double.MAX_VALUE;
+                    continue;
+                }
+
+                final ComplexNumber    step = evaluate(coefficients, roots[i]).div(denominator);
+
+                roots[i] = roots[i].sub(step);
+                largestStep = Math.max(largestStep, step.abs() / Math.max(1, roots[i].abs()));
+            }
+
+            if (largestStep < ROOT_TOLERANCE)
+            {
+                break;
+            }
+        }
+
+        // A few Newton steps make up for the rounding of the simultaneous steps
+        for (int i = 0; i < degree; i++)
+        {
+            for (int k = 0; k < POLISH_ITERATIONS; k++)
+            {
+                final ComplexNumber    derivative = evaluateDerivative(coefficients, roots[i]);
+                if (derivative.isZero())
+                {
+                    break;
+                }
+                roots[i] = roots[i].sub(evaluate(coefficients, roots[i]).div(derivative));
+            }
+        }
+
+        return roots;
+    }
+
+
+
+    /*
+     * Merges the estimates that are closer than the precision multiple roots are found with into one
+     * root, their mean; the other roots are kept in their order.
+     */
+    private static ComplexNumber[] mergeRoots(final ComplexNumber[] roots)
+    {
+        final ComplexNumber[]    sums = new ComplexNumber[roots.length];
+        final int[]              counts = new int[roots.length];
+        int                      distinct = 0;
+
+        for (ComplexNumber root : roots)
+        {
+            int    match = 0;
+            while (match < distinct  &&  sums[match].div(new ComplexNumber(counts[match], 0)).sub(root).abs()
+                                         >= MERGE_DISTANCE * Math.max(1, root.abs()))
+            {
+                match++;
+            }
+
+            sums[match] = (match == distinct) ? root : sums[match].add(root);
+            counts[match]++;
+            distinct = Math.max(distinct, match + 1);
+        }
+
+        final ComplexNumber[]    merged = new ComplexNumber[distinct];
+        for (int i = 0; i < distinct; i++)
+        {
+            merged[i] = sums[i].div(new ComplexNumber(counts[i], 0));
+        }
+        return merged;
+    }
+
+
+
+    /**
+     * Evaluates a polynomial with Horner's scheme.
+     *
+     * @param coefficients - the coefficients, highest degree first.
+     * @param z - the point.
+     *
+     * @return <i>p(z)</i>.
+     */
+    public static ComplexNumber evaluate(final ComplexNumber[] coefficients, final ComplexNumber z)
+    {
+        ComplexNumber    p = coefficients[0];
+
+        for (int k = 1; k < coefficients.length; k++)
+        {
+            p = p.times(z).add(coefficients[k]);
+        }
+        return p;
+    }
+
+
+
+    private static ComplexNumber evaluateDerivative(final ComplexNumber[] coefficients, final ComplexNumber z)
+    {
+        final int        degree = coefficients.length - 1;
+        ComplexNumber    dp = coefficients[0].times(new ComplexNumber(degree, 0));
+
+        for (int k = 1; k < degree; k++)
+        {
+            dp = dp.times(z).add(coefficients[k].times(new ComplexNumber(degree - k, 0)));
+        }
+        return dp;
+    }
+
+
+
+    /**
+     * Returns the root within the capture radius of a point.
+     *
+     * @param zRe - the real part of the point.
+     * @param zIm - the imaginary part of the point.
+     *
+     * @return the index of the root in {@link #getRoots()}, or {@link #NO_ROOT}.
+     */
+    public int nearestRoot(final double zRe, final double zIm)
+    {
+        for (int i = 0; i < rootRe.length; i++)
+        {
+            final double    dRe = zRe - rootRe[i];
+            final double    dIm = zIm - rootIm[i];
+
+            if (dRe * dRe + dIm * dIm < captureRadiusSquared)
+            {
+                return i;
+            }
+        }
+        return NO_ROOT;
+    }
+
+
+
+    /**
+     * Colors a tile of a frame.
+     *
+     * @param tile - the tile.
+     * @param frameWidth - the width of the whole frame.
+     * @param frameHeight - the height of the whole frame.
+     * @param viewport - the part of the complex plane shown in the frame.
+     * @param maxNumberOfIterations - points that are not captured after this many steps are black.
+     * @param rgb - the colors of the tile, row by row, at least as many as it has pixels.
+     *
+     * @return the number of Newton steps taken.
+     */
+    public long render(final Tile tile, final int frameWidth, final int frameHeight, final Viewport viewport,
+                       final int maxNumberOfIterations, final int[] rgb)
+    {
+        final double    centerX = viewport.getCenterX().doubleValue();
+        final double    centerY = viewport.getCenterY().doubleValue();
+        final double    pixelSpacing = viewport.getPixelSpacing().doubleValue();
+        final int       degree = re.length - 1;
+        final int       numberOfRoots = rootRe.length;
+        final double    log2CaptureRadiusSquared = log2(captureRadiusSquared);
+        long            steps = 0;
+        int             index = 0;
+
+        for (int y = tile.getStartY(); y < tile.getEndY(); y++)
+        {
+            for (int x = tile.getStartX(); x < tile.getEndX(); x++)
+            {
+                double    zRe = centerX + (x - frameWidth / 2) * pixelSpacing;
+                double    zIm = centerY + (y - frameHeight / 2) * pixelSpacing;
+                int       root = nearestRoot(zRe, zIm);
+                int       iterations = 0;
+
+                while (root == NO_ROOT  &&  iterations < maxNumberOfIterations)
+                {
+                    // p(z) and p'(z) at once, with Horner's scheme
+                    double    pRe = re[0];
+                    double    pIm = im[0];
+                    double    dRe = 0;
+                    double    dIm = 0;
+
+                    for (int k = 1; k <= degree; k++)
+                    {
+                        final double    dReNext = dRe * zRe - dIm * zIm + pRe;
+                        dIm = dRe * zIm + dIm * zRe + pIm;
+                        dRe = dReNext;
+
+                        final double    pReNext = pRe * zRe - pIm * zIm + re[k];
+                        pIm = pRe * zIm + pIm * zRe + im[k];
+                        pRe = pReNext;
+                    }
+
+                    final double    denominator = dRe * dRe + dIm * dIm;
+                    if (denominator == 0)
+                    {
+                        break;
+                    }
+
+                    zRe -= (pRe * dRe + pIm * dIm) / denominator;
+                    zIm -= (pIm * dRe - pRe * dIm) / denominator;
+                    iterations++;
+                    root = nearestRoot(zRe, zIm);
+                }
+                steps += iterations;
+
+                if (root == NO_ROOT)
+                {
+                    rgb[index++] = Palette.toNewtonRGB(NO_ROOT, numberOfRoots, 0);
+                }
+                else
+                {
+                    // Newton's method converges quadratically near a simple root, so the number of steps is
+                    // smoothed by how far inside the capture radius the last step landed
+                    final double    dRe = zRe - rootRe[root];
+                    final double    dIm = zIm - rootIm[root];
+                    final double    distanceSquared = Math.max(dRe * dRe + dIm * dIm, Double.MIN_NORMAL);
+                    final double    fraction = log2(log2(distanceSquared) / log2CaptureRadiusSquared);
+                    final double    smoothed = Math.max(0, iterations - Math.min(1, fraction));
+
+                    rgb[index++] = shades[root * SHADED_STEPS * SHADES_PER_STEP
+                                          + (int) Math.min(smoothed * SHADES_PER_STEP, SHADED_STEPS * SHADES_PER_STEP - 1)];
+                }
+            }
+        }
+
+        return steps;
+    }
+
+
+
+    // The base 2 logarithm of a positive number, linear between powers of two; off by less than 0.09
+    private static double log2(final double x)
+    {
+        final long    bits = Double.doubleToRawLongBits(x);
+
+        return Math.getExponent(x) + Double.longBitsToDouble((bits & MANTISSA_BITS) | EXPONENT_BITS) - 1;
+    }
+
+
+
+    /**
+     * @return the distinct roots, in the order of the root indices; a multiple root is returned once.
+     */
+    public ComplexNumber[] getRoots()
+    {
+        final ComplexNumber[]    roots = new ComplexNumber[rootRe.length];
+
+        for (int i = 0; i < roots.length; i++)
+        {
+            roots[i] = new ComplexNumber(rootRe[i], rootIm[i]);
+        }
+        return roots;
+    }
+
+    public ComplexNumber[] getCoefficients()
+    {
+        return coefficients.clone();
+    }
+
+    public int getDegree()
+    {
+        return re.length - 1;
+    }
+
+    public int getNumberOfRoots()
+    {
+        return rootRe.length;
+    }
+
+    public double getCaptureRadius()
+    {
+        return Math.sqrt(captureRadiusSquared);
+    }
+
+
+
+    @Override
+    public String toString()
+    {
+        return "Newton fractal of the polynomial " + Arrays.toString(coefficients) + ",  roots " + Arrays.toString(getRoots());
+    }
+}
@@ -0,0 +1,250 @@
+package model;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+
+/**
+ * <i>Palette</i> turns smooth iteration values, as produced by <i>MandelbrotSetComputingThread</i>,
+ * into colors. The sine and cosine functions are applied on top of the smooth iteration value
+ * to generate a cyclic gradient. <br> <br>
+ *
+ * With histogram coloring, the position of the value in the iteration histogram of the frame is
+ * used instead, which spreads one cycle of the gradient evenly over the escaping pixels. <br> <br>
+ *
+ * Newton fractals get a hue per root, darkening with the number of steps to the root. <br> <br> <br>
+ */
+public final class Palette
+{
+    // Constants
+    private static final int       BLACK = 0xFF000000;
+    private static final double    FULL_CYCLE = 2 * Math.PI;
+    private static final float     NEWTON_SATURATION = 0.7f;
+    private static final double    NEWTON_DARKENING_PER_STEP = 0.9;
+    private static final float     NEWTON_MIN_BRIGHTNESS = 0.1f;
+
+
+
+    // Hidden constructor
+    private Palette()
+    {
+    }
+
+
+
+    /**
+     * Returns the RGB value of a smooth iteration value; black means that the point is a member
+     * of the Mandelbrot set.
+     *
+     * @param mu - the smooth iteration value.
+     * @param colorScheme - the length of a color cycle, in iterations.
+     *
+     * @return the RGB value.
+     */
+    public static int toRGB(final float mu, final int colorScheme)
+    {
+        if (mu == MandelbrotSetComputingThread.INSIDE)
+        {
+            return BLACK;
+        }
+        else
+        {
+            final float    rg = (float) Math.cos(mu / colorScheme) / 2 + 0.5f;
+            final float    b  = (float) Math.sin(mu / colorScheme) / 2 + 0.5f;
+
+            return rgb(rg, rg, b);
+        }
+    }
+
+
+
+    /**
+     * Colors a rectangle of smooth iteration values, stored row by row.
+     *
+     * @param iterations - the smooth iteration values.
+     * @param width - the width of the rectangle.
+     * @param height - the height of the rectangle.
+     * @param colorScheme - the length of a color cycle, in iterations.
+     *
+     * @return the colored image.
+     */
+    public static BufferedImage toImage(final float[] iterations, final int width, final int height, final int colorScheme)
+    {
+        final BufferedImage    image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        image.setRGB(0, 0, width, height, toRGB(iterations, colorScheme), 0, width);
+
+        return image;
+    }
+
+
+
+    /**
+     * Colors smooth iteration values.
+     *
+     * @param iterations - the smooth iteration values.
+     * @param colorScheme - the length of a color cycle, in iterations.
+     *
+     * @return the RGB values, in the same order.
+     */
+    public static int[] toRGB(final float[] iterations, final int colorScheme)
+    {
+        return toRGB(iterations, colorScheme, new int[iterations.length]);
+    }
+
+    /**
+     * Colors smooth iteration values into a buffer, e.g. one that is reused for every tile.
+     *
+     * @param iterations - the smooth iteration values.
+     * @param colorScheme - the length of a color cycle, in iterations.
+     * @param rgbArray - the buffer for the RGB values, at least as long as the iteration values.
+     *
+     * @return the buffer.
+     */
+    public static int[] toRGB(final float[] iterations, final int colorScheme, final int[] rgbArray)
+    {
+        for (int i = 0; i < iterations.length; i++)
+        {
+            rgbArray[i] = toRGB(iterations[i], colorScheme);
+        }
+
+        return rgbArray;
+    }
+
+
+
+    /**
+     * Returns the RGB value of a smooth iteration value, colored by its position in the iteration
+     * histogram of the frame; black means that the point is a member of the Mandelbrot set.
+     *
+     * @param mu - the smooth iteration value.
+     * @param histogram - the merged histogram of the frame.
+     *
+     * @return the RGB value.
+     */
+    public static int toRGB(final float mu, final IterationHistogram histogram)
+    {
+        if (mu == MandelbrotSetComputingThread.INSIDE)
+        {
+            return BLACK;
+        }
+        else
+        {
+            final double    phase = histogram.equalize(mu) * FULL_CYCLE;
+            final float     rg = (float) Math.cos(phase) / 2 + 0.5f;
+            final float     b  = (float) Math.sin(phase) / 2 + 0.5f;
+
+            return rgb(rg, rg, b);
+        }
+    }
+
+
+
+    /**
+     * Colors a rectangle of smooth iteration values, stored row by row, with histogram coloring.
+     *
+     * @param iterations - the smooth iteration values.
+     * @param width - the width of the rectangle.
+     * @param height - the height of the rectangle.
+     * @param histogram - the merged histogram of the frame.
+     *
+     * @return the colored image.
+     */
+    public static BufferedImage toImage(final float[] iterations, final int width, final int height, final IterationHistogram histogram)
+    {
+        final BufferedImage    image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        image.setRGB(0, 0, width, height, toRGB(iterations, histogram, new int[width * height]), 0, width);
+
+        return image;
+    }
+
+
+
+    /**
+     * Colors smooth iteration values into a buffer with histogram coloring.
+     *
+     * @param iterations - the smooth iteration values.
+     * @param histogram - the merged histogram of the frame.
+     * @param rgbArray - the buffer for the RGB values, at least as long as the iteration values.
+     *
+     * @return the buffer.
+     */
+    public static int[] toRGB(final float[] iterations, final IterationHistogram histogram, final int[] rgbArray)
+    {
+        for (int i = 0; i < iterations.length; i++)
+        {
+            rgbArray[i] = toRGB(iterations[i], histogram);
+        }
+
+        return rgbArray;
+    }
+
+
+
+    /**
+     * Colors a density grid, e.g. of a Buddhabrot, stored row by row. The densities are scaled to the
+     * highest one, and the square root brings out the faint parts.
+     *
+     * @param density - the number of hits per pixel.
+     * @param width - the width of the grid.
+     * @param height - the height of the grid.
+     *
+     * @return the colored image.
+     */
+    public static BufferedImage toDensityImage(final int[] density, final int width, final int height)
+    {
+        final BufferedImage    image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final int[]            rgbArray = new int[width * height];
+
+        int    max = 0;
+        for (int d : density)
+        {
+            max = Math.max(max, d);
+        }
+
+        for (int i = 0; i < rgbArray.length; i++)
+        {
+            final float    v = (max == 0) ? 0 : (float) Math.sqrt(density[i] / (double) max);
+
+            rgbArray[i] = rgb(v, v, (float) Math.sqrt(v));
+        }
+        image.setRGB(0, 0, width, height, rgbArray, 0, width);
+
+        return image;
+    }
+
+
+
+    /**
+     * Returns the RGB value of a point of a Newton fractal; black means that it converged to no root.
+     *
+     * @param root - the index of the root the point converged to, or <i>NewtonFractal.NO_ROOT</i>.
+     * @param numberOfRoots - the number of roots, which share the hues evenly.
+     * @param iterations - the smoothed number of Newton steps to the root.
+     *
+     * @return the RGB value.
+     */
+    public static int toNewtonRGB(final int root, final int numberOfRoots, final float iterations)
+    {
+        if (root == NewtonFractal.NO_ROOT)
+        {
+            return BLACK;
+        }
+
+        final float    brightness = Math.max(NEWTON_MIN_BRIGHTNESS, (float) Math.pow(NEWTON_DARKENING_PER_STEP, iterations));
+
+        return Color.HSBtoRGB((float) root / numberOfRoots, NEWTON_SATURATION, brightness);
+    }
+
+
+
+    // Same rounding as java.awt.Color(float, float, float), without creating a Color
+    static int rgb(final float r, final float g, final float b)
+    {
+        return BLACK
+                | ((int) (r * 255 + 0.5) << 16)
+                | ((int) (g * 255 + 0.5) << 8)
+                |  (int) (b * 255 + 0.5);
+    }
+}
@@ -0,0 +1,560 @@
+package model;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+/**
+ * <h4>PngWriter.java</h4> <br>
+ *
+ * Writes an RGB image as a PNG file from rows that are handed over in order, e.g. streamed from a
+ * renderer band by band, so the whole image never has to be in memory. <br> <br>
+ *
+ * The rows are gathered into chunks of about a megabyte, and every chunk is filtered and deflated on
+ * its own on a pool, in the way of <i>pigz</i>: each chunk is compressed into a raw deflate stream that
+ * ends with a sync flush, and the streams are written one after the other, one <i>IDAT</i> chunk each,
+ * which together are a single zlib stream. A chunk is primed with the last 32 KiB of the chunk before,
+ * which the task filters again from the rows it is given, so the chunks compress almost as well as one
+ * stream and no task waits for another. The checksums of the chunks are combined in order. <br> <br>
+ *
+ * Each row is filtered with the filter of the least sum of absolute differences, as libpng does. <br> <br> <br>
+ */
+public final class PngWriter implements Closeable
+{
+    // Constants
+    private static final byte[]    SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final int       BYTES_PER_PIXEL = 3;
+    private static final int       CHUNK_BYTES = 1 << 20;
+    private static final int       DICTIONARY_BYTES = 1 << 15;
+    private static final int       COMPRESSION_LEVEL = 4;
+    private static final int       CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+    private static final int       ADLER_BASE = 65521;
+
+    private static final int    FILTER_NONE = 0;
+    private static final int    FILTER_SUB = 1;
+    private static final int    FILTER_UP = 2;
+    private static final int    FILTER_AVERAGE = 3;
+    private static final int    FILTER_PAETH = 4;
+
+    private final DataOutputStream     out;
+    private final ExecutorService      pool;
+    private final int                  width;
+    private final int                  height;
+    private final int                  rowsPerChunk;
+    private final int                  contextRows;
+    private final int                  maxChunksInFlight;
+    private final Queue<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+    private int[]                      pixels;
+    private int                        leadingRows;
+    private int                        rowsInChunk;
+    private int                        rowsWritten;
+    private long                       adler = 1;
+    private long                       compressedBytes;
+    private boolean                    headerWritten;
+    private boolean                    closed;
+
+
+
+    // A compressed chunk: the deflate stream, and the checksum and length of the data it holds
+    private static final class Chunk
+    {
+        private final byte[]     deflated;
+        private final int        length;
+        private final long       adler;
+        private final int        dataLength;
+        private final boolean    last;
+
+        private Chunk(final byte[] deflated, final int length, final long adler, final int dataLength, final boolean last)
+        {
+            this.deflated = deflated;
+            this.length = length;
+            this.adler = adler;
+            this.dataLength = dataLength;
+            this.last = last;
+        }
+    }
+
+
+
+    /**
+     * Starts a PNG file; the header is written with the first chunk.
+     *
+     * @param out - the stream the file is written to; it is closed with the writer.
+     * @param width - the width of the image.
+     * @param height - the height of the image.
+     * @param pool - the pool the chunks are compressed on; it is not shut down.
+     * @param numberOfThreads - the number of threads of the pool, to bound the chunks in flight.
+     */
+    public PngWriter(final OutputStream out, final int width, final int height, final ExecutorService pool, final int numberOfThreads)
+    {
+        if (width <= 0  ||  height <= 0)
+        {
+            throw new IllegalArgumentException("The image must not be empty, was " + width + "x" + height + ".");
+        }
+        if ((long) width * BYTES_PER_PIXEL + 1 > Integer.MAX_VALUE / 2)
+        {
+            throw new IllegalArgumentException("The image is too wide to be written, was " + width + " pixels.");
+        }
+
+        final int    rowBytes = width * BYTES_PER_PIXEL + 1;
+
+        this.out = new DataOutputStream(out);
+        this.pool = pool;
+        this.width = width;
+        this.height = height;
+        this.rowsPerChunk = Math.max(1, CHUNK_BYTES / rowBytes);
+        // The rows the dictionary is filtered from, and the row before them
+        this.contextRows = (DICTIONARY_BYTES + rowBytes - 1) / rowBytes + 1;
+        this.maxChunksInFlight = Math.max(1, numberOfThreads) * CHUNKS_IN_FLIGHT_PER_THREAD;
+        this.pixels = new int[(contextRows + rowsPerChunk) * width];
+    }
+
+
+
+    /**
+     * Adds the next row of the image.
+     *
+     * @param rgb - the colors, as <i>0xRRGGBB</i>; the alpha is ignored.
+     * @param offset - the index of the first color of the row.
+     *
+     * @throws IOException if the file cannot be written, or a chunk could not be compressed.
+     */
+    public void writeRow(final int[] rgb, final int offset) throws IOException
+    {
+        writeRows(rgb, offset, 1);
+    }
+
+    /**
+     * Adds the next rows of the image, stored one after the other.
+     *
+     * @param rgb - the colors, as <i>0xRRGGBB</i>; the alpha is ignored.
+     * @param offset - the index of the first color of the first row.
+     * @param numberOfRows - the number of rows.
+     *
+     * @throws IOException if the file cannot be written, or a chunk could not be compressed.
+     */
+    public void writeRows(final int[] rgb, final int offset, final int numberOfRows) throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("The writer is closed.");
+        }
+        if (numberOfRows > height - rowsWritten)
+        {
+            throw new IllegalArgumentException("The image has " + height + " rows, " + rowsWritten + " are written and "
+                    + numberOfRows + " more were given.");
+        }
+
+        for (int row = 0; row < numberOfRows; )
+        {
+            final int    rows = Math.min(numberOfRows - row, rowsPerChunk - rowsInChunk);
+
+            System.arraycopy(rgb, offset + row * width, pixels, (leadingRows + rowsInChunk) * width, rows * width);
+            row += rows;
+            rowsInChunk += rows;
+            rowsWritten += rows;
+
+            if (rowsInChunk == rowsPerChunk  ||  rowsWritten == height)
+            {
+                submitChunk();
+            }
+        }
+
+        // Write out what is done, waiting for the oldest chunk while too many are in flight
+        writeChunks(maxChunksInFlight);
+    }
+
+
+
+    /**
+     * Writes the rest of the file once all rows are added, and closes the stream.
+     *
+     * @throws IOException if the file cannot be written, a chunk could not be compressed, or not all
+     *         rows were added.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+
+        try
+        {
+            if (rowsWritten != height)
+            {
+                throw new IOException("Only " + rowsWritten + " of the " + height + " rows were written.");
+            }
+
+            writeChunks(0);
+            writeChunk("IEND", new byte[0], 0);
+            out.flush();
+        }
+        finally
+        {
+            // The chunks still in flight, if the file is abandoned
+            for (Future<Chunk> chunk : pending)
+            {
+                chunk.cancel(false);
+            }
+            out.close();
+        }
+    }
+
+
+
+    // Hands the gathered rows to the pool, and keeps the last of them as the context of the next chunk
+    private void submitChunk()
+    {
+        final int[]      chunkPixels = pixels;
+        final int        leading = leadingRows;
+        final int        rows = rowsInChunk;
+        final boolean    last = (rowsWritten == height);
+
+        pending.add(pool.submit(() -> compress(chunkPixels, width, leading, rows, last)));
+
+        if (!last)
+        {
+            final int    kept = Math.min(contextRows, leading + rows);
+
+            pixels = new int[(contextRows + rowsPerChunk) * width];
+            System.arraycopy(chunkPixels, (leading + rows - kept) * width, pixels, 0, kept * width);
+            leadingRows = kept;
+            rowsInChunk = 0;
+        }
+    }
+
+
+
+    // Writes the chunks that are done in order, and waits for the oldest as long as more than a number are pending
+    private void writeChunks(final int maxPending) throws IOException
+    {
+        while (!pending.isEmpty()  &&  (pending.peek().isDone()  ||  pending.size() > maxPending))
+        {
+            final Chunk    chunk;
+            try
+            {
+                chunk = pending.peek().get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing the image.");
+            }
+            catch (ExecutionException e)
+            {
+                throw new IOException("A chunk of the image could not be compressed.", e.getCause());
+            }
+            pending.poll();
+
+            writeData(chunk);
+        }
+    }
+
+
+
+    // Writes a compressed chunk as an IDAT chunk, with the zlib header before the first and the checksum after the last
+    private void writeData(final Chunk chunk) throws IOException
+    {
+        final int    headerLength = headerWritten ? 0 : 2;
+        final int    trailerLength = chunk.last ? 4 : 0;
+        byte[]       data = chunk.deflated;
+
+        if (!headerWritten)
+        {
+            writeHeader();
+        }
+        adler = combine(adler, chunk.adler, chunk.dataLength);
+
+        if (headerLength + trailerLength > 0)
+        {
+            final int    method = 0x78;                                      // Deflate, 32 KiB window
+            final int    flags = levelFlags(COMPRESSION_LEVEL);
+
+            data = new byte[headerLength + chunk.length + trailerLength];
+            System.arraycopy(chunk.deflated, 0, data, headerLength, chunk.length);
+            if (headerLength > 0)
+            {
+                data[0] = (byte) method;
+                data[1] = (byte) (flags + 31 - (method * 256 + flags) % 31);
+            }
+            if (trailerLength > 0)
+            {
+                putInt(data, headerLength + chunk.length, (int) adler);
+            }
+        }
+
+        writeChunk("IDAT", data, headerLength + chunk.length + trailerLength);
+        compressedBytes += headerLength + chunk.length + trailerLength;
+    }
+
+
+
+    private void writeHeader() throws IOException
+    {
+        final byte[]    header = new byte[13];
+
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;          // Bits per sample
+        header[9] = 2;          // Truecolor, no alpha
+
+        out.write(SIGNATURE);
+        writeChunk("IHDR", header, header.length);
+        headerWritten = true;
+    }
+
+
+
+    private void writeChunk(final String type, final byte[] data, final int length) throws IOException
+    {
+        final byte[]    typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        final CRC32     crc = new CRC32();
+
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+
+
+    /*
+     * Filters and deflates the rows of a chunk. The leading rows belong to the chunk before: the first
+     * is only the row above the second, and the filtered others are the dictionary.
+     */
+    private static Chunk compress(final int[] pixels, final int width, final int leadingRows, final int rows, final boolean last)
+    {
+        final int       rowBytes = width * BYTES_PER_PIXEL + 1;
+        final int       firstFiltered = (leadingRows > 0) ? 1 : 0;
+        final byte[]    filtered = new byte[(leadingRows + rows - firstFiltered) * rowBytes];
+        final byte[][]  scratch = new byte[FILTER_PAETH + 1][rowBytes - 1];
+        byte[]          previous = new byte[rowBytes - 1];
+        byte[]          current = new byte[rowBytes - 1];
+
+        if (leadingRows > 0)
+        {
+            toBytes(pixels, 0, width, previous);
+        }
+        for (int row = firstFiltered; row < leadingRows + rows; row++)
+        {
+            toBytes(pixels, row * width, width, current);
+            filterRow(previous, current, scratch, filtered, (row - firstFiltered) * rowBytes);
+
+            final byte[]    swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        final int    dataOffset = (leadingRows - firstFiltered) * rowBytes;
+        final int    dataLength = rows * rowBytes;
+        final Adler32    checksum = new Adler32();
+        final Deflater   deflater = new Deflater(COMPRESSION_LEVEL, true);
+
+        checksum.update(filtered, dataOffset, dataLength);
+        try
+        {
+            if (dataOffset > 0)
+            {
+                final int    dictionaryLength = Math.min(DICTIONARY_BYTES, dataOffset);
+                deflater.setDictionary(filtered, dataOffset - dictionaryLength, dictionaryLength);
+            }
+            deflater.setInput(filtered, dataOffset, dataLength);
+            if (last)
+            {
+                deflater.finish();
+            }
+
+            byte[]    deflated = new byte[dataLength / 2 + 64];
+            int       length = 0;
+
+            while (true)
+            {
+                if (length == deflated.length)
+                {
+                    deflated = Arrays.copyOf(deflated, deflated.length * 2);
+                }
+
+                final int    available = deflated.length - length;
+                final int    written = deflater.deflate(deflated, length, available, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                length += written;
+
+                // A sync flush is complete once it leaves room in the buffer
+                if (last ? deflater.finished() : written < available)
+                {
+                    break;
+                }
+            }
+
+            return new Chunk(deflated, length, checksum.getValue(), dataLength, last);
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+
+
+    private static void toBytes(final int[] pixels, final int offset, final int width, final byte[] row)
+    {
+        for (int x = 0, i = 0; x < width; x++)
+        {
+            final int    rgb = pixels[offset + x];
+
+            row[i++] = (byte) (rgb >> 16);
+            row[i++] = (byte) (rgb >> 8);
+            row[i++] = (byte) rgb;
+        }
+    }
+
+
+
+    /*
+     * Writes the filter type and the filtered row with the least sum of absolute differences. All five
+     * filters are applied in one pass, into one scratch row each; the first pixel, which has no left
+     * neighbour, is done apart.
+     */
+    private static void filterRow(final byte[] previous, final byte[] current, final byte[][] scratch, final byte[] target, final int offset)
+    {
+        final byte[]    sub = scratch[FILTER_SUB];
+        final byte[]    up = scratch[FILTER_UP];
+        final byte[]    average = scratch[FILTER_AVERAGE];
+        final byte[]    paeth = scratch[FILTER_PAETH];
+        final int       first = Math.min(BYTES_PER_PIXEL, current.length);
+        long            noneSum = 0;
+        long            subSum = 0;
+        long            upSum = 0;
+        long            averageSum = 0;
+        long            paethSum = 0;
+
+        for (int i = 0; i < first; i++)
+        {
+            final int    x = current[i] & 0xFF;
+            final int    b = previous[i] & 0xFF;
+
+            sub[i] = (byte) x;
+            up[i] = (byte) (x - b);
+            average[i] = (byte) (x - (b >> 1));
+            paeth[i] = (byte) (x - b);
+        }
+
+        for (int i = first; i < current.length; i++)
+        {
+            final int    x = current[i] & 0xFF;
+            final int    a = current[i - BYTES_PER_PIXEL] & 0xFF;
+            final int    b = previous[i] & 0xFF;
+            final int    c = previous[i - BYTES_PER_PIXEL] & 0xFF;
+            final int    pa = Math.abs(b - c);
+            final int    pb = Math.abs(a - c);
+            final int    pc = Math.abs(a + b - c - c);
+
+            final byte    filteredSub = (byte) (x - a);
+            final byte    filteredUp = (byte) (x - b);
+            final byte    filteredAverage = (byte) (x - ((a + b) >> 1));
+            final byte    filteredPaeth = (byte) (x - ((pa <= pb  &&  pa <= pc) ? a : (pb <= pc) ? b : c));
+
+            sub[i] = filteredSub;
+            up[i] = filteredUp;
+            average[i] = filteredAverage;
+            paeth[i] = filteredPaeth;
+
+            noneSum += Math.abs((byte) x);
+            subSum += Math.abs(filteredSub);
+            upSum += Math.abs(filteredUp);
+            averageSum += Math.abs(filteredAverage);
+            paethSum += Math.abs(filteredPaeth);
+        }
+
+        final long[]    sums = { noneSum, subSum, upSum, averageSum, paethSum };
+        int             best = FILTER_NONE;
+
+        for (int filter = FILTER_SUB; filter <= FILTER_PAETH; filter++)
+        {
+            if (sums[filter] < sums[best])
+            {
+                best = filter;
+            }
+        }
+
+        target[offset] = (byte) best;
+        System.arraycopy((best == FILTER_NONE) ? current : scratch[best], 0, target, offset + 1, current.length);
+    }
+
+
+
+    // The Adler-32 of two pieces of data, from the checksums of both and the length of the second, as zlib does
+    private static long combine(final long first, final long second, final long secondLength)
+    {
+        final long    remainder = secondLength % ADLER_BASE;
+        long          sum1 = first & 0xFFFF;
+        long          sum2 = (remainder * sum1) % ADLER_BASE;
+
+        sum1 += (second & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((first >> 16) & 0xFFFF) + ((second >> 16) & 0xFFFF) + ADLER_BASE - remainder;
+
+        if (sum1 >= ADLER_BASE)
+        {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE)
+        {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= 2 * ADLER_BASE)
+        {
+            sum2 -= 2 * ADLER_BASE;
+        }
+        if (sum2 >= ADLER_BASE)
+        {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+
+
+    // The FLEVEL bits of the zlib header for a compression level
+    private static int levelFlags(final int level)
+    {
+        return ((level <= 1) ? 0 : (level <= 5) ? 1 : (level == 6) ? 2 : 3) << 6;
+    }
+
+
+
+    private static void putInt(final byte[] bytes, final int offset, final int value)
+    {
+        bytes[offset]     = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+
+
+    /**
+     * @return the bytes of image data written so far, compressed.
+     */
+    public long getCompressedBytes()
+    {
+        return compressedBytes;
+    }
+}
@@ -0,0 +1,227 @@
+package model;
+
+/**
+ * <h4>PrecisionManager.java</h4> <br>
+ *
+ * Picks the cheapest <i>PrecisionTier</i> that still tells neighbouring pixels of a viewport apart.
+ * The pixel spacing is compared to the largest coordinate in the frame, since that is where the
+ * arithmetic runs out of bits first, and a few guard bits are kept on top for the rounding errors
+ * that build up while iterating. <br> <br>
+ *
+ * The float kernel is no faster than the double one, see the float comparison of the
+ * <i>PerformanceSuite</i>, so float is only picked once it is allowed, see {@link #setFloatAllowed}. <br>
+ * Float has so few bits that the orbits of points near the boundary drift away from the double orbits
+ * long before neighbouring pixels merge. Before float is picked, a low resolution probe of the viewport
+ * is therefore iterated with both, and float is only kept if nearly all probed points agree: both
+ * inside the set, or escaping after the same whole number of iterations. The agreement depends on where
+ * the view is, not only on its depth, so it is probed for every view; a manager only keeps it while it
+ * selects for the same view, frame size and iteration limit again, e.g. for the tiles of one frame. <br> <br> <br>
+ */
+public final class PrecisionManager
+{
+    // Constants
+    private static final int       GUARD_BITS = 8;
+    private static final int       PROBE_SIDE = 48;
+    private static final int       DEFAULT_PROBE_ITERATIONS = 1000;
+    private static final double    MIN_FLOAT_AGREEMENT = 0.99;
+
+    private static volatile boolean    floatAllowed;
+
+    private PrecisionTier    lastTier;
+    private double           lastSignificantBitsNeeded;
+    private double           lastFloatAgreement = Double.NaN;
+
+    // The view float was last probed with, and the agreement found
+    private Viewport    probedViewport;
+    private int         probedWidth;
+    private int         probedHeight;
+    private int         probedIterations;
+    private double      probedAgreement;
+
+
+
+    /**
+     * Sets whether float may be picked for shallow viewports; it is not by default.
+     *
+     * @param allowed - true to allow float.
+     */
+    public static void setFloatAllowed(final boolean allowed)
+    {
+        floatAllowed = allowed;
+    }
+
+    public static boolean isFloatAllowed()
+    {
+        return floatAllowed;
+    }
+
+
+
+    /**
+     * Selects the arithmetic for rendering a viewport, probing float with a default iteration limit.
+     *
+     * @param viewport - the viewport.
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     *
+     * @return the cheapest tier that resolves the viewport.
+     */
+    public PrecisionTier select(final Viewport viewport, final int frameWidth, final int frameHeight)
+    {
+        return select(viewport, frameWidth, frameHeight, DEFAULT_PROBE_ITERATIONS);
+    }
+
+
+
+    /**
+     * Selects the arithmetic for rendering a viewport. If float is allowed, it is probed with the viewport
+     * and iteration limit, unless the last probe was of the same view.
+     *
+     * @param viewport - the viewport.
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     * @param maxNumberOfIterations - the iteration limit the frame will be rendered with.
+     *
+     * @return the cheapest tier that resolves the viewport.
+     */
+    public PrecisionTier select(final Viewport viewport, final int frameWidth, final int frameHeight, final int maxNumberOfIterations)
+    {
+        lastSignificantBitsNeeded = viewport.significantBitsNeeded(frameWidth, frameHeight);
+        lastTier = PrecisionTier.ARBITRARY;
+        lastFloatAgreement = Double.NaN;
+
+        for (PrecisionTier tier : PrecisionTier.values())
+        {
+            if (lastSignificantBitsNeeded + GUARD_BITS <= tier.getSignificantBits()  &&  (tier != PrecisionTier.FLOAT  ||  floatAllowed))
+            {
+                lastTier = tier;
+                break;
+            }
+        }
+
+        if (lastTier == PrecisionTier.FLOAT)
+        {
+            if (!isProbed(viewport, frameWidth, frameHeight, maxNumberOfIterations))
+            {
+                probedAgreement = floatAgreement(viewport, frameWidth, frameHeight, maxNumberOfIterations);
+                probedViewport = viewport;
+                probedWidth = frameWidth;
+                probedHeight = frameHeight;
+                probedIterations = maxNumberOfIterations;
+            }
+
+            lastFloatAgreement = probedAgreement;
+            if (lastFloatAgreement < MIN_FLOAT_AGREEMENT)
+            {
+                lastTier = PrecisionTier.DOUBLE;
+            }
+        }
+
+        return lastTier;
+    }
+
+
+
+    // Whether the last probe was of this view
+    private boolean isProbed(final Viewport viewport, final int frameWidth, final int frameHeight, final int maxNumberOfIterations)
+    {
+        return probedViewport != null  &&  frameWidth == probedWidth  &&  frameHeight == probedHeight  &&  maxNumberOfIterations == probedIterations
+                &&  viewport.getCenterX().compareTo(probedViewport.getCenterX()) == 0
+                &&  viewport.getCenterY().compareTo(probedViewport.getCenterY()) == 0
+                &&  viewport.getPixelSpacing().compareTo(probedViewport.getPixelSpacing()) == 0;
+    }
+
+
+
+    /**
+     * Iterates a low resolution probe of a viewport with float and with double arithmetic.
+     *
+     * @param viewport - the viewport.
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     * @param maxNumberOfIterations - the iteration limit.
+     *
+     * @return the fraction of the probed points that are inside the set with both, or escape after the
+     *         same whole number of iterations with both.
+     */
+    public static double floatAgreement(final Viewport viewport, final int frameWidth, final int frameHeight, final int maxNumberOfIterations)
+    {
+        // The probe has the same aspect ratio as the frame, with its shorter side PROBE_SIDE pixels long
+        final double      scale = Math.max(1.0, Math.min(frameWidth, frameHeight) / (double) PROBE_SIDE);
+        final int         probeWidth  = Math.max(1, (int) (frameWidth / scale));
+        final int         probeHeight = Math.max(1, (int) (frameHeight / scale));
+        final Viewport    probeViewport = viewport.zoomedBy(1 / scale);
+
+        final float[]    single = new MandelbrotSetComputingThread(0, 0, 0, probeWidth, probeHeight, probeWidth, probeHeight,
+                probeViewport, PrecisionTier.FLOAT, maxNumberOfIterations).computeIterations();
+        final float[]    reference = new MandelbrotSetComputingThread(0, 0, 0, probeWidth, probeHeight, probeWidth, probeHeight,
+                probeViewport, PrecisionTier.DOUBLE, maxNumberOfIterations).computeIterations();
+
+        int    agreeing = 0;
+        for (int i = 0; i < single.length; i++)
+        {
+            final boolean    singleInside = single[i] == MandelbrotSetComputingThread.INSIDE;
+            final boolean    referenceInside = reference[i] == MandelbrotSetComputingThread.INSIDE;
+
+            if (singleInside ? referenceInside : (!referenceInside  &&  (int) single[i] == (int) reference[i]))
+            {
+                agreeing++;
+            }
+        }
+
+        return agreeing / (double) single.length;
+    }
+
+
+
+    /**
+     * Returns the number of significant bits needed for arbitrary precision arithmetic to resolve a viewport.
+     *
+     * @param viewport - the viewport.
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     *
+     * @return the number of bits, guard bits included.
+     */
+    public static int arbitraryPrecisionBits(final Viewport viewport, final int frameWidth, final int frameHeight)
+    {
+        return (int) Math.ceil(viewport.significantBitsNeeded(frameWidth, frameHeight)) + 2 * GUARD_BITS;
+    }
+
+
+
+    /**
+     * Returns a description of the last selection, e.g. for the console.
+     *
+     * @return the description.
+     */
+    public String report()
+    {
+        if (lastTier == null)
+        {
+            return "No precision selected yet.";
+        }
+
+        final String    agreement = Double.isNaN(lastFloatAgreement) ? ""
+                : String.format(",  float agrees with double on %.1f %% of the probe", 100 * lastFloatAgreement);
+
+        return "Precision:  " + lastTier + "   (" + Math.round(lastSignificantBitsNeeded) + " significant bits needed" + agreement + ")";
+    }
+
+
+
+    public PrecisionTier getLastTier()
+    {
+        return lastTier;
+    }
+
+    /**
+     * Returns the agreement of float with double found by the last selection, see {@link #floatAgreement}.
+     *
+     * @return the agreement, or NaN if float was not considered.
+     */
+    public double getLastFloatAgreement()
+    {
+        return lastFloatAgreement;
+    }
+}
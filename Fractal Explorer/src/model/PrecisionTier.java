@@ -0,0 +1,33 @@
+package model;
+
+
+/**
+ * The kinds of arithmetic the computing threads can iterate with, from the cheapest to the most precise.
+ */
+public enum PrecisionTier
+{
+    FLOAT(24),
+    DOUBLE(53),
+    EXTENDED(106),          // Double-double, a sum of two doubles
+    ARBITRARY(Integer.MAX_VALUE);  // BigDecimal
+
+
+    private final int    significantBits;
+
+
+    private PrecisionTier(final int significantBits)
+    {
+        this.significantBits = significantBits;
+    }
+
+
+    /**
+     * Returns the number of significant bits of the arithmetic.
+     *
+     * @return the number of bits.
+     */
+    public int getSignificantBits()
+    {
+        return significantBits;
+    }
+}
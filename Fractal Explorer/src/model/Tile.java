@@ -0,0 +1,121 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * <i>Tile</i> describes a rectangle <i>[startX, endX) x [startY, endY)</i> of a frame that is
+ * computed as one unit of work. <br> <br> <br>
+ */
+public final class Tile
+{
+    private final int    id;
+    private final int    startX;
+    private final int    startY;
+    private final int    endX;
+    private final int    endY;
+
+
+
+    public Tile(int id, int startX, int startY, int endX, int endY)
+    {
+        if (startX < 0  ||  startY < 0  ||  endX <= startX  ||  endY <= startY)
+        {
+            throw new IllegalArgumentException("The tile (" + startX + ", " + startY + ") - (" + endX + ", " + endY + ") is empty.");
+        }
+
+        this.id = id;
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+    }
+
+
+
+    /**
+     * Splits a frame into square tiles, row by row. Tiles along the right and bottom edges are
+     * cut to fit the frame.
+     *
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     * @param tileSize - the side of a tile.
+     *
+     * @return the tiles, with IDs starting at 0.
+     */
+    public static List<Tile> split(final int frameWidth, final int frameHeight, final int tileSize)
+    {
+        if (tileSize <= 0)
+        {
+            throw new IllegalArgumentException("The tile size must be positive, was " + tileSize + ".");
+        }
+
+        final List<Tile>    tiles = new ArrayList<Tile>();
+
+        for (int y = 0; y < frameHeight; y += tileSize)
+        {
+            for (int x = 0; x < frameWidth; x += tileSize)
+            {
+                tiles.add(new Tile(tiles.size(), x, y, Math.min(x + tileSize, frameWidth), Math.min(y + tileSize, frameHeight)));
+            }
+        }
+
+        return tiles;
+    }
+
+
+
+    public int getID()
+    {
+        return id;
+    }
+
+    public int getStartX()
+    {
+        return startX;
+    }
+
+    public int getStartY()
+    {
+        return startY;
+    }
+
+    public int getEndX()
+    {
+        return endX;
+    }
+
+    public int getEndY()
+    {
+        return endY;
+    }
+
+    public int getWidth()
+    {
+        return endX - startX;
+    }
+
+    public int getHeight()
+    {
+        return endY - startY;
+    }
+
+    /**
+     * Returns the number of pixels covered by this tile.
+     *
+     * @return the number of pixels.
+     */
+    public int getPixelCount()
+    {
+        return getWidth() * getHeight();
+    }
+
+
+
+    @Override
+    public String toString()
+    {
+        return "Tile " + id + " (" + startX + ", " + startY + ") - (" + endX + ", " + endY + ")";
+    }
+}
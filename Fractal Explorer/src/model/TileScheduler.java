@@ -0,0 +1,257 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+
+/**
+ * <h4>TileScheduler.java</h4> <br>
+ *
+ * One set of worker threads shared by many jobs, each job being a list of tiles. Jobs are served by
+ * weighted fair queueing: every job has a virtual time, the number of pixels computed for it divided
+ * by its priority, and a free worker always takes the next tile of the job with the least virtual time.
+ * A job of priority 4 thus gets four times the share of a job of priority 1 while both are waiting, and
+ * the workers never idle while any job has tiles left. <br>
+ * A job that arrives starts at the least virtual time of the jobs already waiting, so it cannot claim
+ * the share it would have had before it arrived. <br> <br> <br>
+ */
+public final class TileScheduler
+{
+    private final Object         lock = new Object();
+    private final List<Job>      jobs = new ArrayList<Job>();
+    private final List<Thread>   workers = new ArrayList<Thread>();
+    private boolean              shutdown;
+    private long                 tilesCompleted;
+    private long                 pixelsCompleted;
+
+
+
+    private static final class Job
+    {
+        private final Queue<Tile>                tiles;
+        private final Consumer<Tile>             work;
+        private final int                        priority;
+        private final CompletableFuture<Void>    done = new CompletableFuture<Void>();
+        private double                           virtualTime;
+        private int                              running;
+
+        private Job(final List<Tile> tiles, final Consumer<Tile> work, final int priority, final double virtualTime)
+        {
+            this.tiles = new ArrayDeque<Tile>(tiles);
+            this.work = work;
+            this.priority = priority;
+            this.virtualTime = virtualTime;
+        }
+    }
+
+
+
+    /**
+     * Starts the worker threads. The scheduler has workers of its own, so only the number of threads,
+     * their names and their priority are taken from the settings, not the backend.
+     *
+     * @param execution - the number of worker threads, their names and their priority.
+     */
+    public TileScheduler(final ExecutionSettings execution)
+    {
+        for (int i = 0; i < execution.getNumberOfThreads(); i++)
+        {
+            final Thread    worker = execution.newThread(this::work);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+
+
+    /**
+     * Adds a job to the scheduler.
+     *
+     * @param tiles - the tiles of the job.
+     * @param work - computes one tile; called on the worker threads, for several tiles at the same time.
+     * @param priority - the share of the job relative to the others, at least 1.
+     *
+     * @return completed when all tiles are computed, or exceptionally with the first failure of a tile,
+     *         after which the remaining tiles of the job are dropped.
+     */
+    public CompletableFuture<Void> submit(final List<Tile> tiles, final Consumer<Tile> work, final int priority)
+    {
+        if (priority < 1)
+        {
+            throw new IllegalArgumentException("The priority must be at least 1, was " + priority + ".");
+        }
+
+        synchronized (lock)
+        {
+            if (shutdown)
+            {
+                throw new IllegalStateException("The scheduler is shut down.");
+            }
+
+            double    startTime = Double.MAX_VALUE;
+            for (Job job : jobs)
+            {
+                startTime = Math.min(startTime, job.virtualTime);
+            }
+
+            final Job    job = new Job(tiles, work, priority, (startTime == Double.MAX_VALUE) ? 0 : startTime);
+            if (job.tiles.isEmpty())
+            {
+                job.done.complete(null);
+            }
+            else
+            {
+                jobs.add(job);
+                lock.notifyAll();
+            }
+
+            return job.done;
+        }
+    }
+
+
+
+    private void work()
+    {
+        while (true)
+        {
+            Job     job = null;
+            Tile    tile = null;
+
+            synchronized (lock)
+            {
+                while ((job = nextJob()) == null)
+                {
+                    if (shutdown)
+                    {
+                        return;
+                    }
+                    try
+                    {
+                        lock.wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+
+                tile = job.tiles.poll();
+                job.running++;
+                // Charged up front, so the other workers see the share as taken
+                job.virtualTime += (double) tile.getPixelCount() / job.priority;
+            }
+
+            Throwable    failure = null;
+            try
+            {
+                job.work.accept(tile);
+            }
+            catch (RuntimeException | Error e)
+            {
+                failure = e;
+            }
+
+            boolean    finished = false;
+            synchronized (lock)
+            {
+                job.running--;
+                tilesCompleted++;
+                pixelsCompleted += tile.getPixelCount();
+
+                if (failure != null)
+                {
+                    job.tiles.clear();
+                }
+                if (job.tiles.isEmpty()  &&  job.running == 0)
+                {
+                    jobs.remove(job);
+                    finished = true;
+                    lock.notifyAll();
+                }
+            }
+
+            // Outside of the lock, since completing runs the callbacks of the job on this thread
+            if (failure != null)
+            {
+                job.done.completeExceptionally(failure);
+            }
+            if (finished)
+            {
+                job.done.complete(null);
+            }
+        }
+    }
+
+
+
+    // Must hold the lock; the waiting job with the least virtual time
+    private Job nextJob()
+    {
+        Job    next = null;
+
+        for (Job job : jobs)
+        {
+            if (!job.tiles.isEmpty()  &&  (next == null  ||  job.virtualTime < next.virtualTime))
+            {
+                next = job;
+            }
+        }
+
+        return next;
+    }
+
+
+
+    /**
+     * Lets the workers finish the jobs already submitted and then stop; no jobs can be submitted afterwards.
+     */
+    public void shutdown()
+    {
+        synchronized (lock)
+        {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits for the workers to stop after a shutdown.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void awaitTermination() throws InterruptedException
+    {
+        for (Thread worker : workers)
+        {
+            worker.join();
+        }
+    }
+
+
+
+    public int getNumberOfThreads()
+    {
+        return workers.size();
+    }
+
+    public long getTilesCompleted()
+    {
+        synchronized (lock)
+        {
+            return tilesCompleted;
+        }
+    }
+
+    public long getPixelsCompleted()
+    {
+        synchronized (lock)
+        {
+            return pixelsCompleted;
+        }
+    }
+}
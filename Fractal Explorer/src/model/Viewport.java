@@ -0,0 +1,189 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+
+/**
+ * <h4>Viewport.java</h4> <br>
+ *
+ * The part of the complex plane shown in a frame: the point in the middle of the frame and the
+ * distance between two neighbouring pixels. Both are kept in arbitrary precision, so a viewport can
+ * be zoomed far beyond what a double can tell apart; it is up to the <i>PrecisionManager</i> to pick
+ * arithmetic that resolves it. <br> <br> <br>
+ */
+public final class Viewport
+{
+    // Constants
+    private static final MathContext    SPACING_CONTEXT = MathContext.DECIMAL128;
+
+    private final BigDecimal    centerX;
+    private final BigDecimal    centerY;
+    private final BigDecimal    pixelSpacing;
+
+
+
+    public Viewport(final BigDecimal centerX, final BigDecimal centerY, final BigDecimal pixelSpacing)
+    {
+        if (pixelSpacing.signum() <= 0)
+        {
+            throw new IllegalArgumentException("The pixel spacing must be positive, was " + pixelSpacing + ".");
+        }
+
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.pixelSpacing = pixelSpacing;
+    }
+
+
+
+    /**
+     * Constructs a viewport from a center and a zoom, i.e. the number of pixels per unit length.
+     *
+     * @param centerX - the real part of the point in the middle of the frame.
+     * @param centerY - the imaginary part of the point in the middle of the frame.
+     * @param zoom - the number of pixels per unit length.
+     *
+     * @return the viewport.
+     */
+    public static Viewport of(final double centerX, final double centerY, final double zoom)
+    {
+        return of(new BigDecimal(centerX), new BigDecimal(centerY), zoom);
+    }
+
+
+
+    /**
+     * Constructs a viewport from an exact center and a zoom, i.e. the number of pixels per unit length.
+     *
+     * @param centerX - the real part of the point in the middle of the frame.
+     * @param centerY - the imaginary part of the point in the middle of the frame.
+     * @param zoom - the number of pixels per unit length.
+     *
+     * @return the viewport.
+     */
+    public static Viewport of(final BigDecimal centerX, final BigDecimal centerY, final double zoom)
+    {
+        if (!(zoom > 0)  ||  Double.isInfinite(zoom))
+        {
+            throw new IllegalArgumentException("The zoom must be positive and finite, was " + zoom + ".");
+        }
+
+        return new Viewport(centerX, centerY, BigDecimal.ONE.divide(new BigDecimal(zoom), SPACING_CONTEXT));
+    }
+
+
+
+    public BigDecimal getCenterX()
+    {
+        return centerX;
+    }
+
+    public BigDecimal getCenterY()
+    {
+        return centerY;
+    }
+
+    public BigDecimal getPixelSpacing()
+    {
+        return pixelSpacing;
+    }
+
+    /**
+     * Returns the number of pixels per unit length, which is infinite for viewports deeper than a double can express.
+     *
+     * @return the zoom.
+     */
+    public double getZoom()
+    {
+        return 1 / pixelSpacing.doubleValue();
+    }
+
+
+
+    /**
+     * Returns this viewport magnified by a factor, around the same center.
+     *
+     * @param factor - the magnification; values below 1 zoom out.
+     *
+     * @return the magnified viewport.
+     */
+    public Viewport zoomedBy(final double factor)
+    {
+        return new Viewport(centerX, centerY, pixelSpacing.divide(new BigDecimal(factor), new MathContext(pixelSpacing.precision() + 8)));
+    }
+
+
+
+    /**
+     * Returns this viewport moved so that the given pixel of the frame is in the middle.
+     *
+     * @param x - the column of the pixel.
+     * @param y - the row of the pixel.
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     *
+     * @return the moved viewport.
+     */
+    public Viewport centeredAt(final int x, final int y, final int frameWidth, final int frameHeight)
+    {
+        return new Viewport(realPartAt(x, frameWidth), imaginaryPartAt(y, frameHeight), pixelSpacing);
+    }
+
+
+
+    /**
+     * Returns the exact real part of the points in a column of the frame.
+     */
+    public BigDecimal realPartAt(final int x, final int frameWidth)
+    {
+        return centerX.add(pixelSpacing.multiply(BigDecimal.valueOf(x - frameWidth / 2)));
+    }
+
+    /**
+     * Returns the exact imaginary part of the points in a row of the frame.
+     */
+    public BigDecimal imaginaryPartAt(final int y, final int frameHeight)
+    {
+        return centerY.add(pixelSpacing.multiply(BigDecimal.valueOf(y - frameHeight / 2)));
+    }
+
+
+
+    /**
+     * Returns the number of significant bits needed to tell neighbouring pixels of the frame apart,
+     * i.e. the binary logarithm of the largest coordinate in the frame divided by the pixel spacing.
+     *
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     *
+     * @return the number of bits.
+     */
+    public double significantBitsNeeded(final int frameWidth, final int frameHeight)
+    {
+        final BigDecimal    halfExtent = pixelSpacing.multiply(BigDecimal.valueOf(Math.max(frameWidth, frameHeight) / 2 + 1));
+        final BigDecimal    magnitude  = centerX.abs().max(centerY.abs()).add(halfExtent);
+
+        return log2(magnitude) - log2(pixelSpacing);
+    }
+
+
+
+    // log2 of a positive BigDecimal, also outside the range of a double
+    private static double log2(final BigDecimal value)
+    {
+        final int       shift = value.precision() - value.scale() - 1;  // value = mantissa * 10^shift
+        final double    mantissa = value.movePointLeft(shift).doubleValue();
+
+        return (Math.log(mantissa) + shift * Math.log(10)) / Math.log(2);
+    }
+
+
+
+    @Override
+    public String toString()
+    {
+        return "(" + centerX.round(MathContext.DECIMAL64) + ", " + centerY.round(MathContext.DECIMAL64)
+                + ") with pixel spacing " + pixelSpacing.round(MathContext.DECIMAL32);
+    }
+}
@@ -0,0 +1,102 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+
+/**
+ * <h4>ViewportRequests.java</h4> <br>
+ *
+ * The views the user navigates to, from the scroll wheel and the keyboard, on their way to the render
+ * loop. Every request is applied to the latest requested view, not to the one on screen, so a burst of
+ * wheel ticks or key repeats adds up; the render loop only takes the latest of them. <br> <br>
+ *
+ * Every request also advances a generation counter. A render is started for one generation, and its
+ * computing threads compare the counter with it once per row, see
+ * <i>MandelbrotSetComputingThread.setGeneration()</i>; as soon as the user has navigated on, the
+ * render stops instead of finishing a frame nobody will see. <br> <br> <br>
+ */
+public final class ViewportRequests
+{
+    private final AtomicLong    generations = new AtomicLong();
+    private Viewport            latest;
+    private long                takenGeneration;
+    private long                requests;
+    private long                coalesced;
+
+
+
+    /**
+     * Constructs the pipeline with the view that is rendered first, as generation 0.
+     *
+     * @param viewport - the view.
+     */
+    public ViewportRequests(final Viewport viewport)
+    {
+        latest = viewport;
+    }
+
+
+
+    /**
+     * Requests a new view, derived from the latest requested one, and supersedes the render in progress.
+     *
+     * @param change - derives the new view, e.g. <i>view -> view.zoomedBy(2)</i>.
+     */
+    public synchronized void request(final UnaryOperator<Viewport> change)
+    {
+        latest = change.apply(latest);
+        requests++;
+        generations.incrementAndGet();
+        notifyAll();
+    }
+
+
+
+    /**
+     * Waits for a view that has not been taken yet, and takes the latest requested one; the requests in
+     * between are dropped.
+     *
+     * @return the view; its generation is {@link #getTakenGeneration()}.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized Viewport take() throws InterruptedException
+    {
+        while (generations.get() == takenGeneration)
+        {
+            wait();
+        }
+
+        final long    generation = generations.get();
+
+        coalesced += generation - takenGeneration - 1;
+        takenGeneration = generation;
+        return latest;
+    }
+
+
+
+    /**
+     * @return the counter that advances with every request; a render of an older generation is superseded.
+     */
+    public AtomicLong getGenerations()
+    {
+        return generations;
+    }
+
+    public synchronized long getTakenGeneration()
+    {
+        return takenGeneration;
+    }
+
+    public synchronized long getRequests()
+    {
+        return requests;
+    }
+
+    public synchronized long getCoalesced()
+    {
+        return coalesced;
+    }
+}
@@ -0,0 +1,583 @@
+package network;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import model.Palette;
+import model.PrecisionManager;
+import model.PrecisionTier;
+import model.Tile;
+import model.Viewport;
+
+
+/**
+ * <h4>RenderCoordinator.java</h4> <br>
+ *
+ * Splits a frame into tiles and hands them to <i>RenderWorker</i>s connected over TCP. <br> <br>
+ *
+ * <li>Each tile goes to the worker that is expected to finish it first, judging from the measured
+ * throughput of the worker and the pixels it already has in flight, so faster workers get more work.</li>
+ * <li>A worker that has not sent a heartbeat for {@link #HEARTBEAT_TIMEOUT_MILLIS} milliseconds is
+ * dropped and its tiles are reassigned. Every connection says HELLO on a thread of its own, within the
+ * same time, so a peer that never does holds up no other worker.</li>
+ * <li>A tile that takes much longer than its worker's throughput predicts is handed to another
+ * worker as well; whichever result arrives first is used.</li> <br> <br>
+ *
+ * The coordinator can start worker processes on the local machine, which makes it possible to
+ * try out the whole setup on one computer. <br> <br> <br>
+ */
+public final class RenderCoordinator
+{
+    // Constants
+    public static final long      HEARTBEAT_TIMEOUT_MILLIS = 4 * RenderProtocol.HEARTBEAT_INTERVAL_MILLIS;
+    private static final long     MIN_STALL_MILLIS = 2000;
+    private static final double   STALL_FACTOR = 4.0;
+    private static final double   THROUGHPUT_SMOOTHING = 0.3;
+    private static final double   INITIAL_PIXELS_PER_SECOND_PER_THREAD = 1e6;
+    private static final int      TILES_IN_FLIGHT_PER_THREAD = 2;
+    private static final int      HANDSHAKE_TIMEOUT_MILLIS = (int) HEARTBEAT_TIMEOUT_MILLIS;
+
+    private final ServerSocket              serverSocket;
+    private final List<WorkerConnection>    workers = new ArrayList<WorkerConnection>();
+
+    // State of the frame being rendered, guarded by this
+    private final Deque<Tile>               pendingTiles = new ArrayDeque<Tile>();
+    private final Map<Integer, Tile>        tiles = new HashMap<Integer, Tile>();
+    private int                             frameNumber;
+    private boolean[]                       done;
+    private int                             remainingTiles;
+    private float[]                         frame;
+    private int                             frameWidth;
+    private int                             frameHeight;
+    private Viewport                        viewport;
+    private PrecisionTier                   tier;
+    private int                             maxNumberOfIterations;
+    private final PrecisionManager          precisionManager = new PrecisionManager();
+
+
+
+    public RenderCoordinator(final int port) throws IOException
+    {
+        serverSocket = new ServerSocket(port);
+
+        final Thread    acceptor = new Thread(this::acceptWorkers, "Coordinator acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+
+
+    /**
+     * Renders a frame on the connected workers and returns its smooth iteration values, row by row.
+     * Blocks until at least one worker has connected. The arithmetic is picked here, see <i>PrecisionManager</i>,
+     * and the viewport is sent to the workers exactly, so deep views render the same on every worker.
+     *
+     * @param frameWidth - the width of the frame.
+     * @param frameHeight - the height of the frame.
+     * @param viewport - the part of the complex plane shown in the frame.
+     * @param maxNumberOfIterations - the iteration limit.
+     * @param tileSize - the side of a tile.
+     *
+     * @return the iteration values of the frame.
+     */
+    public synchronized float[] render(final int frameWidth, final int frameHeight, final Viewport viewport,
+                                       final int maxNumberOfIterations, final int tileSize) throws InterruptedException
+    {
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.viewport = viewport;
+        this.maxNumberOfIterations = maxNumberOfIterations;
+        this.tier = precisionManager.select(viewport, frameWidth, frameHeight, maxNumberOfIterations);
+
+        // Results of earlier frames that are still on their way are told apart by the frame number
+        frameNumber++;
+        for (WorkerConnection worker : workers)
+        {
+            worker.assignedAt.clear();
+            worker.pixelsInFlight = 0;
+        }
+
+        tiles.clear();
+        pendingTiles.clear();
+        for (Tile tile : Tile.split(frameWidth, frameHeight, tileSize))
+        {
+            tiles.put(tile.getID(), tile);
+            pendingTiles.add(tile);
+        }
+        done = new boolean[tiles.size()];
+        remainingTiles = tiles.size();
+        frame = new float[frameWidth * frameHeight];
+
+        while (remainingTiles > 0)
+        {
+            final long    now = System.nanoTime();
+
+            dropSilentWorkers(now);
+            duplicateStalledTiles(now);
+            assignTiles(now);
+
+            wait(RenderProtocol.HEARTBEAT_INTERVAL_MILLIS);
+        }
+
+        final float[]    result = frame;
+        frame = null;
+
+        return result;
+    }
+
+
+
+    /**
+     * Asks all workers to shut down and stops accepting new ones.
+     */
+    public synchronized void shutdown()
+    {
+        for (WorkerConnection worker : workers)
+        {
+            worker.send(RenderProtocol.SHUTDOWN, null);
+        }
+        workers.clear();
+
+        try
+        {
+            serverSocket.close();
+        }
+        catch (IOException e)
+        {
+            System.err.println(e);
+        }
+    }
+
+
+
+    /**
+     * Prints the arithmetic of the last frame, and the number of tiles and the throughput of every connected worker.
+     */
+    public synchronized void printStatistics()
+    {
+        System.out.println(precisionManager.report());
+        for (WorkerConnection worker : workers)
+        {
+            System.out.println(worker + ":  " + worker.completedTiles + " tiles,  "
+                    + Math.round(worker.pixelsPerSecond / 1000) + " kpixels/s");
+        }
+    }
+
+
+
+    private void acceptWorkers()
+    {
+        while (!serverSocket.isClosed())
+        {
+            try
+            {
+                final Socket    socket = serverSocket.accept();
+                final Thread    reader = new Thread(() -> connect(socket), "Worker " + socket.getRemoteSocketAddress() + " reader");
+
+                reader.setDaemon(true);
+                reader.start();
+            }
+            catch (IOException e)
+            {
+                if (!serverSocket.isClosed())
+                {
+                    System.err.println("A worker could not connect:  " + e);
+                }
+            }
+        }
+    }
+
+
+
+    // Runs on the reading thread of the connection: waits for HELLO, then reads the messages of the worker
+    private void connect(final Socket socket)
+    {
+        final WorkerConnection    worker;
+        try
+        {
+            worker = new WorkerConnection(socket);
+        }
+        catch (IOException e)
+        {
+            System.err.println("A worker could not connect:  " + e);
+            try
+            {
+                socket.close();
+            }
+            catch (IOException closeFailure)
+            {
+                System.err.println(closeFailure);
+            }
+            return;
+        }
+
+        synchronized (this)
+        {
+            workers.add(worker);
+            notifyAll();
+        }
+        System.out.println(worker + " connected with " + worker.numberOfThreads + " threads.");
+
+        worker.readMessages();
+    }
+
+
+
+    // Must hold the lock
+    private void dropSilentWorkers(final long now)
+    {
+        for (WorkerConnection worker : new ArrayList<WorkerConnection>(workers))
+        {
+            if (now - worker.lastHeartbeat > HEARTBEAT_TIMEOUT_MILLIS * 1_000_000)
+            {
+                System.err.println(worker + " stopped sending heartbeats, reassigning its tiles.");
+                disconnect(worker);
+            }
+        }
+    }
+
+
+
+    // Must hold the lock. Only duplicates when no other work is waiting, to use idle workers for the stragglers
+    private void duplicateStalledTiles(final long now)
+    {
+        if (!pendingTiles.isEmpty())
+        {
+            return;
+        }
+
+        for (WorkerConnection worker : workers)
+        {
+            for (Map.Entry<Integer, Long> assignment : worker.assignedAt.entrySet())
+            {
+                final Tile      tile = tiles.get(assignment.getKey());
+                final double    expectedMillis = 1000 * tile.getPixelCount() * worker.numberOfThreads / worker.pixelsPerSecond;
+                final double    elapsedMillis = (now - assignment.getValue()) / 1e6;
+
+                if (!done[tile.getID()]  &&  !pendingTiles.contains(tile)
+                        &&  elapsedMillis > Math.max(MIN_STALL_MILLIS, STALL_FACTOR * expectedMillis))
+                {
+                    System.err.println(tile + " is stalled on " + worker + ", handing it out again.");
+                    pendingTiles.add(tile);
+                }
+            }
+        }
+    }
+
+
+
+    // Must hold the lock. Hands every waiting tile to the worker expected to finish it first
+    private void assignTiles(final long now)
+    {
+        while (!pendingTiles.isEmpty())
+        {
+            final Tile    tile = pendingTiles.peek();
+
+            if (done[tile.getID()])
+            {
+                pendingTiles.poll();
+                continue;
+            }
+
+            WorkerConnection    best = null;
+            double              bestFinish = Double.MAX_VALUE;
+
+            for (WorkerConnection worker : workers)
+            {
+                if (worker.assignedAt.size() < worker.numberOfThreads * TILES_IN_FLIGHT_PER_THREAD
+                        &&  !worker.assignedAt.containsKey(tile.getID()))
+                {
+                    final double    finish = (worker.pixelsInFlight + tile.getPixelCount()) / worker.pixelsPerSecond;
+
+                    if (finish < bestFinish)
+                    {
+                        best = worker;
+                        bestFinish = finish;
+                    }
+                }
+            }
+
+            if (best == null)
+            {
+                return;
+            }
+
+            pendingTiles.poll();
+            best.assignedAt.put(tile.getID(), now);
+            best.pixelsInFlight += tile.getPixelCount();
+            best.send(RenderProtocol.TILE, tile);
+        }
+    }
+
+
+
+    // Must hold the lock
+    private void disconnect(final WorkerConnection worker)
+    {
+        if (workers.remove(worker))
+        {
+            for (Integer tileID : worker.assignedAt.keySet())
+            {
+                if (!done[tileID])
+                {
+                    pendingTiles.addFirst(tiles.get(tileID));
+                }
+            }
+            worker.assignedAt.clear();
+            worker.close();
+            notifyAll();
+        }
+    }
+
+
+
+    // Must hold the lock
+    private void completeTile(final WorkerConnection worker, final int resultFrameNumber, final int tileID, final long nanos, final float[] iterations)
+    {
+        final Tile    tile = tiles.get(tileID);
+
+        if (resultFrameNumber != frameNumber  ||  tile == null  ||  worker.assignedAt.remove(tileID) == null)
+        {
+            return;  // A result of a previous frame
+        }
+
+        worker.pixelsInFlight -= tile.getPixelCount();
+        worker.completedTiles++;
+
+        // Each computing thread of the worker works on its own tile, so the worker as a whole is numberOfThreads times faster
+        final double    pixelsPerSecond = tile.getPixelCount() * 1e9 / Math.max(nanos, 1) * worker.numberOfThreads;
+        worker.pixelsPerSecond += THROUGHPUT_SMOOTHING * (pixelsPerSecond - worker.pixelsPerSecond);
+
+        if (!done[tileID]  &&  iterations.length == tile.getPixelCount())
+        {
+            for (int row = 0; row < tile.getHeight(); row++)
+            {
+                System.arraycopy(iterations, row * tile.getWidth(), frame, (tile.getStartY() + row) * frameWidth + tile.getStartX(), tile.getWidth());
+            }
+            done[tileID] = true;
+            remainingTiles--;
+        }
+        notifyAll();
+    }
+
+
+
+    /*
+     * The coordinator's end of the connection to a worker. All fields but the streams are guarded by the coordinator.
+     */
+    private final class WorkerConnection
+    {
+        private final Socket                 socket;
+        private final DataInputStream        in;
+        private final DataOutputStream       out;
+        private final int                    numberOfThreads;
+        private final Map<Integer, Long>     assignedAt = new HashMap<Integer, Long>();
+        private volatile long                lastHeartbeat;
+        private long                         pixelsInFlight;
+        private double                       pixelsPerSecond;
+        private int                          completedTiles;
+
+
+        private WorkerConnection(final Socket socket) throws IOException
+        {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+            in  = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            if (in.readByte() != RenderProtocol.HELLO)
+            {
+                throw new IOException("Expected HELLO from " + socket.getRemoteSocketAddress() + ".");
+            }
+            numberOfThreads = Math.max(1, RenderProtocol.readHello(in));
+            socket.setSoTimeout(0);
+            pixelsPerSecond = numberOfThreads * INITIAL_PIXELS_PER_SECOND_PER_THREAD;
+            lastHeartbeat = System.nanoTime();
+        }
+
+
+        private void readMessages()
+        {
+            try
+            {
+                while (true)
+                {
+                    final byte    type = in.readByte();
+                    lastHeartbeat = System.nanoTime();
+
+                    if (type == RenderProtocol.RESULT)
+                    {
+                        final int        resultFrameNumber = in.readInt();
+                        final int        tileID = in.readInt();
+                        final long       nanos = in.readLong();
+                        final float[]    iterations = RenderProtocol.readIterations(in);
+
+                        synchronized (RenderCoordinator.this)
+                        {
+                            completeTile(this, resultFrameNumber, tileID, nanos, iterations);
+                        }
+                    }
+                    else if (type != RenderProtocol.HEARTBEAT)
+                    {
+                        throw new IOException("Unexpected message type " + type + ".");
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                synchronized (RenderCoordinator.this)
+                {
+                    if (workers.contains(this))
+                    {
+                        System.err.println(this + " was lost:  " + e);
+                        disconnect(this);
+                    }
+                }
+            }
+        }
+
+
+        private void send(final byte type, final Tile tile)
+        {
+            try
+            {
+                if (type == RenderProtocol.TILE)
+                {
+                    RenderProtocol.writeTile(out, frameNumber, tile, frameWidth, frameHeight, viewport, tier, maxNumberOfIterations);
+                }
+                else
+                {
+                    RenderProtocol.writeSignal(out, type);
+                }
+            }
+            catch (IOException e)
+            {
+                // The reading thread notices the broken connection and reassigns the tiles
+                System.err.println(this + ":  " + e);
+            }
+        }
+
+
+        private void close()
+        {
+            try
+            {
+                socket.close();
+            }
+            catch (IOException e)
+            {
+                System.err.println(e);
+            }
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "Worker " + socket.getRemoteSocketAddress();
+        }
+    }
+
+
+
+    public static void main(String[] args)
+    {
+        if (args.length > 9)
+        {
+            System.err.println("Usage:  RenderCoordinator [width] [height] [center x] [center y] [zoom] [max iterations] [local workers] [port] [output file]");
+            System.exit(1);
+        }
+
+        int           width = 1920;
+        int           height = 1080;
+        BigDecimal    centerX = BigDecimal.ZERO;
+        BigDecimal    centerY = BigDecimal.ZERO;
+        double        zoom = 400;
+        int           maxNumberOfIterations = 3000;
+        int           numberOfLocalWorkers = 0;
+        int           port = RenderProtocol.DEFAULT_PORT;
+        String        fileName = "render.png";
+        Viewport      viewport = null;
+
+        try
+        {
+            width = (args.length > 0) ? Integer.parseInt(args[0]) : width;
+            height = (args.length > 1) ? Integer.parseInt(args[1]) : height;
+            centerX = (args.length > 2) ? new BigDecimal(args[2]) : centerX;
+            centerY = (args.length > 3) ? new BigDecimal(args[3]) : centerY;
+            zoom = (args.length > 4) ? Double.parseDouble(args[4]) : zoom;
+            maxNumberOfIterations = (args.length > 5) ? Integer.parseInt(args[5]) : maxNumberOfIterations;
+            numberOfLocalWorkers = (args.length > 6) ? Integer.parseInt(args[6]) : numberOfLocalWorkers;
+            port = (args.length > 7) ? Integer.parseInt(args[7]) : port;
+            fileName = (args.length > 8) ? args[8] : fileName;
+            viewport = Viewport.of(centerX, centerY, zoom);
+        }
+        catch (NumberFormatException e)
+        {
+            System.err.println("All arguments but the output file must be numbers.");
+            System.exit(1);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+
+        final List<Process>    localWorkers = new ArrayList<Process>();
+
+        try
+        {
+            final RenderCoordinator    coordinator = new RenderCoordinator(port);
+
+            // Start worker processes on this machine, sharing the cores between them
+            final String    java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            final int       threadsPerWorker = Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, numberOfLocalWorkers));
+
+            for (int i = 0; i < numberOfLocalWorkers; i++)
+            {
+                localWorkers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), RenderWorker.class.getName(),
+                        "localhost", Integer.toString(port), Integer.toString(threadsPerWorker)).inheritIO().start());
+            }
+
+            System.out.println("Waiting for workers on port " + port + " ...");
+
+            final long       start = System.nanoTime();
+            final float[]    iterations = coordinator.render(width, height, viewport, maxNumberOfIterations, 128);
+            final long       millis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("Rendered " + width + "x" + height + " in " + millis + " ms.");
+            coordinator.printStatistics();
+            coordinator.shutdown();
+
+            ImageIO.write(Palette.toImage(iterations, width, height, 10), "png", new File(fileName));
+            System.out.println("Saved " + fileName);
+
+            for (Process worker : localWorkers)
+            {
+                worker.waitFor();
+            }
+        }
+        catch (IOException | InterruptedException e)
+        {
+            System.err.println("Coordinator failed:  " + e);
+            localWorkers.forEach(Process::destroy);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import model.PrecisionTier;
+import model.Tile;
+import model.Viewport;
+
+
+/**
+ * <h4>RenderProtocol.java</h4> <br>
+ *
+ * The binary protocol spoken between a <i>RenderCoordinator</i> and its <i>RenderWorker</i>s.
+ * Every message starts with a one byte type. <br> <br>
+ *
+ * <li>HELLO (worker to coordinator): magic, version, number of computing threads.</li>
+ * <li>TILE (coordinator to worker): frame number, tile ID and rectangle, frame size, the center and pixel spacing of the
+ * viewport as exact decimal strings, the name of the precision tier and the iteration limit.</li>
+ * <li>RESULT (worker to coordinator): frame number, tile ID, compute time in nanoseconds and the deflated iteration values.</li>
+ * <li>HEARTBEAT (worker to coordinator): sent periodically while the worker is alive.</li>
+ * <li>SHUTDOWN (coordinator to worker): the worker disconnects and exits.</li> <br> <br> <br>
+ */
+public final class RenderProtocol
+{
+    // Constants
+    public static final int     MAGIC = 0x4D414E44;  // "MAND"
+    public static final int     VERSION = 2;
+    public static final int     DEFAULT_PORT = 4711;
+    public static final long    HEARTBEAT_INTERVAL_MILLIS = 500;
+    private static final int    CHUNK_SIZE = 64 * 1024;
+
+    // Message types
+    public static final byte    HELLO = 1;
+    public static final byte    TILE = 2;
+    public static final byte    RESULT = 3;
+    public static final byte    HEARTBEAT = 4;
+    public static final byte    SHUTDOWN = 5;
+
+
+
+    // Hidden constructor
+    private RenderProtocol()
+    {
+    }
+
+
+
+    public static void writeHello(final DataOutputStream out, final int numberOfThreads) throws IOException
+    {
+        out.writeByte(HELLO);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(numberOfThreads);
+        out.flush();
+    }
+
+
+    /**
+     * Reads the rest of a HELLO message and checks that the peer speaks this version of the protocol.
+     *
+     * @return the number of computing threads of the worker.
+     */
+    public static int readHello(final DataInputStream in) throws IOException
+    {
+        final int    magic = in.readInt();
+        final int    version = in.readInt();
+
+        if (magic != MAGIC  ||  version != VERSION)
+        {
+            throw new IOException("Unsupported peer (magic " + Integer.toHexString(magic) + ", version " + version + ").");
+        }
+
+        return in.readInt();
+    }
+
+
+
+    public static void writeTile(final DataOutputStream out, final int frameNumber, final Tile tile, final int frameWidth, final int frameHeight,
+                                 final Viewport viewport, final PrecisionTier tier, final int maxNumberOfIterations) throws IOException
+    {
+        out.writeByte(TILE);
+        out.writeInt(frameNumber);
+        out.writeInt(tile.getID());
+        out.writeInt(tile.getStartX());
+        out.writeInt(tile.getStartY());
+        out.writeInt(tile.getEndX());
+        out.writeInt(tile.getEndY());
+        out.writeInt(frameWidth);
+        out.writeInt(frameHeight);
+        out.writeUTF(viewport.getCenterX().toString());
+        out.writeUTF(viewport.getCenterY().toString());
+        out.writeUTF(viewport.getPixelSpacing().toString());
+        out.writeUTF(tier.name());
+        out.writeInt(maxNumberOfIterations);
+        out.flush();
+    }
+
+
+    /**
+     * Reads the viewport of a TILE message, i.e. what follows the frame size.
+     *
+     * @return the viewport.
+     */
+    public static Viewport readViewport(final DataInputStream in) throws IOException
+    {
+        try
+        {
+            return new Viewport(new BigDecimal(in.readUTF()), new BigDecimal(in.readUTF()), new BigDecimal(in.readUTF()));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("Corrupt viewport.", e);
+        }
+    }
+
+
+    /**
+     * Reads the precision tier of a TILE message, i.e. what follows the viewport.
+     *
+     * @return the tier.
+     */
+    public static PrecisionTier readTier(final DataInputStream in) throws IOException
+    {
+        final String    name = in.readUTF();
+
+        try
+        {
+            return PrecisionTier.valueOf(name);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException("Unknown precision tier " + name + ".", e);
+        }
+    }
+
+
+
+    public static void writeResult(final DataOutputStream out, final int frameNumber, final int tileID, final long nanos, final float[] iterations) throws IOException
+    {
+        final byte[]    compressed = deflate(iterations);
+
+        out.writeByte(RESULT);
+        out.writeInt(frameNumber);
+        out.writeInt(tileID);
+        out.writeLong(nanos);
+        out.writeInt(iterations.length);
+        out.writeInt(compressed.length);
+        out.write(compressed);
+        out.flush();
+    }
+
+
+    /**
+     * Reads the iteration values of a RESULT message, i.e. everything after the frame number, the tile ID and the compute time.
+     *
+     * @return the iteration values.
+     */
+    public static float[] readIterations(final DataInputStream in) throws IOException
+    {
+        final int       count = in.readInt();
+        final byte[]    compressed = new byte[in.readInt()];
+
+        in.readFully(compressed);
+
+        return inflate(compressed, count);
+    }
+
+
+
+    public static void writeSignal(final DataOutputStream out, final byte type) throws IOException
+    {
+        out.writeByte(type);
+        out.flush();
+    }
+
+
+
+    // Iteration values of neighbouring pixels are mostly equal or close, and the whole interior is INSIDE, so they deflate well
+    private static byte[] deflate(final float[] iterations)
+    {
+        final ByteBuffer    raw = ByteBuffer.allocate(iterations.length * Float.BYTES);
+        raw.asFloatBuffer().put(iterations);
+
+        final Deflater    deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw.array());
+        deflater.finish();
+
+        final ByteArrayOutputStream    compressed = new ByteArrayOutputStream();
+        final byte[]                   chunk = new byte[CHUNK_SIZE];
+
+        while (!deflater.finished())
+        {
+            compressed.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+
+        return compressed.toByteArray();
+    }
+
+
+
+    private static float[] inflate(final byte[] compressed, final int count) throws IOException
+    {
+        final byte[]      raw = new byte[count * Float.BYTES];
+        final Inflater    inflater = new Inflater();
+
+        try
+        {
+            inflater.setInput(compressed);
+
+            int    length = 0;
+            while (length < raw.length  &&  !inflater.finished())
+            {
+                final int    inflated = inflater.inflate(raw, length, raw.length - length);
+
+                if (inflated == 0  &&  inflater.needsInput())
+                {
+                    throw new IOException("Truncated iteration buffer.");
+                }
+                length += inflated;
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException("Corrupt iteration buffer.", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+
+        final float[]    iterations = new float[count];
+        ByteBuffer.wrap(raw).asFloatBuffer().get(iterations);
+
+        return iterations;
+    }
+}
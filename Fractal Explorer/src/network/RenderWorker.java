@@ -0,0 +1,177 @@
+package network;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import model.ExecutionBackend;
+import model.ExecutionSettings;
+import model.MandelbrotSetComputingThread;
+import model.PrecisionTier;
+import model.Viewport;
+
+
+/**
+ * <h4>RenderWorker.java</h4> <br>
+ *
+ * A worker process that connects to a <i>RenderCoordinator</i>, computes the tiles it is handed
+ * with <i>MandelbrotSetComputingThread</i> and sends the iteration values back. A heartbeat is sent
+ * every {@link RenderProtocol#HEARTBEAT_INTERVAL_MILLIS} milliseconds so that the coordinator can tell
+ * a busy worker from a dead one. <br> <br> <br>
+ */
+public final class RenderWorker
+{
+    private final Socket              socket;
+    private final DataInputStream     in;
+    private final DataOutputStream    out;
+    private final ExecutionSettings   execution;
+
+
+
+    public RenderWorker(final String host, final int port, final ExecutionSettings execution) throws IOException
+    {
+        this.execution = execution;
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in  = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+
+
+    /**
+     * Serves the coordinator until it sends SHUTDOWN or the connection is lost.
+     */
+    public void run() throws IOException
+    {
+        final ExecutorService             pool = execution.newPool();
+        final ScheduledExecutorService    heartbeat = Executors.newSingleThreadScheduledExecutor();
+
+        try
+        {
+            synchronized (out)
+            {
+                RenderProtocol.writeHello(out, execution.getNumberOfThreads());
+            }
+
+            heartbeat.scheduleAtFixedRate(() -> send(RenderProtocol.HEARTBEAT, 0, 0, 0, null),
+                    0, RenderProtocol.HEARTBEAT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+            while (true)
+            {
+                final byte    type = in.readByte();
+
+                if (type == RenderProtocol.SHUTDOWN)
+                {
+                    break;
+                }
+                else if (type != RenderProtocol.TILE)
+                {
+                    throw new IOException("Unexpected message type " + type + ".");
+                }
+
+                final int              frameNumber = in.readInt();
+                final int              tileID = in.readInt();
+                final int              startX = in.readInt();
+                final int              startY = in.readInt();
+                final int              endX = in.readInt();
+                final int              endY = in.readInt();
+                final int              frameWidth = in.readInt();
+                final int              frameHeight = in.readInt();
+                final Viewport         viewport = RenderProtocol.readViewport(in);
+                final PrecisionTier    tier = RenderProtocol.readTier(in);
+                final int              maxNumberOfIterations = in.readInt();
+
+                final MandelbrotSetComputingThread    kernel = new MandelbrotSetComputingThread(tileID, startX, startY, endX, endY,
+                        frameWidth, frameHeight, viewport, tier, maxNumberOfIterations);
+
+                pool.execute(() ->
+                {
+                    final long       start = System.nanoTime();
+                    final float[]    iterations = kernel.computeIterations();
+
+                    send(RenderProtocol.RESULT, frameNumber, tileID, System.nanoTime() - start, iterations);
+                });
+            }
+        }
+        catch (EOFException e)
+        {
+            System.err.println("The coordinator closed the connection.");
+        }
+        finally
+        {
+            heartbeat.shutdownNow();
+            pool.shutdownNow();
+            socket.close();
+        }
+    }
+
+
+
+    // Writes a message; the heartbeat and the computing threads share the output stream
+    private void send(final byte type, final int frameNumber, final int tileID, final long nanos, final float[] iterations)
+    {
+        try
+        {
+            synchronized (out)
+            {
+                if (type == RenderProtocol.RESULT)
+                {
+                    RenderProtocol.writeResult(out, frameNumber, tileID, nanos, iterations);
+                }
+                else
+                {
+                    RenderProtocol.writeSignal(out, type);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            // The reading loop notices the broken connection and ends the worker
+            System.err.println(e);
+        }
+    }
+
+
+
+    public static void main(String[] args)
+    {
+        if (args.length < 1  ||  args.length > 3)
+        {
+            System.err.println("Usage:  RenderWorker <coordinator host> [port] [threads]");
+            System.exit(1);
+        }
+
+        try
+        {
+            final String    host = args[0];
+            final int       port = (args.length > 1) ? Integer.parseInt(args[1]) : RenderProtocol.DEFAULT_PORT;
+            final int       numberOfThreads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+            new RenderWorker(host, port, new ExecutionSettings(ExecutionBackend.FIXED, numberOfThreads, "Render worker", Thread.NORM_PRIORITY)).run();
+        }
+        catch (NumberFormatException e)
+        {
+            System.err.println("The port and the number of threads must be integers.");
+            System.exit(1);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Worker failed:  " + e);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package network;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * <h4>TileLoadGenerator.java</h4> <br>
+ *
+ * Measures a running <i>TileServer</i>: a number of concurrent clients request random tiles of one
+ * zoom level as fast as they can, and the throughput and latency percentiles are printed when all
+ * requests are done. Every client repeats a few of its requests with <i>If-None-Match</i>, the way
+ * a browser revalidates its cache. The latencies of rendered tiles and of 304 answers are reported
+ * apart, so the cheap answers do not hide how long rendering takes. <br> <br> <br>
+ */
+public final class TileLoadGenerator
+{
+    // Constants
+    private static final int    REVALIDATE_EVERY = 4;
+
+
+
+    // Hidden constructor
+    private TileLoadGenerator()
+    {
+    }
+
+
+
+    public static void main(String[] args) throws Exception
+    {
+        String    baseURL = "http://localhost:" + TileServer.DEFAULT_PORT;
+        int       numberOfClients = 32;
+        int       numberOfRequests = 1000;
+        int       zoomLevel = 4;
+
+        try
+        {
+            baseURL = (args.length > 0) ? args[0] : baseURL;
+            numberOfClients = (args.length > 1) ? Integer.parseInt(args[1]) : numberOfClients;
+            numberOfRequests = (args.length > 2) ? Integer.parseInt(args[2]) : numberOfRequests;
+            zoomLevel = (args.length > 3) ? Integer.parseInt(args[3]) : zoomLevel;
+        }
+        catch (NumberFormatException e)
+        {
+            System.err.println("Usage:  TileLoadGenerator [base URL] [concurrent clients] [requests] [zoom level]");
+            System.exit(1);
+        }
+
+        final HttpClient         client = HttpClient.newBuilder().build();
+        final ExecutorService    clients = Executors.newFixedThreadPool(numberOfClients);
+        final AtomicInteger      remaining = new AtomicInteger(numberOfRequests);
+        final Queue<Long>        renderedLatencies = new ConcurrentLinkedQueue<Long>();
+        final Queue<Long>        notModifiedLatencies = new ConcurrentLinkedQueue<Long>();
+        final AtomicInteger      failures = new AtomicInteger();
+        final String             base = baseURL;
+        final int                tilesPerSide = 1 << zoomLevel;
+        final int                z = zoomLevel;
+
+        final List<Future<?>>    results = new ArrayList<Future<?>>();
+
+        final long    start = System.nanoTime();
+
+        for (int i = 0; i < numberOfClients; i++)
+        {
+            final long    seed = i;
+
+            results.add(clients.submit(() ->
+            {
+                final Random    random = new Random(seed);
+                int             sent = 0;
+                String          lastPath = null;
+                String          lastETag = null;
+
+                while (remaining.getAndDecrement() > 0)
+                {
+                    final boolean    revalidate = lastETag != null  &&  sent % REVALIDATE_EVERY == 0;
+                    final String     path = revalidate ? lastPath : "/" + z + "/" + random.nextInt(tilesPerSide) + "/" + random.nextInt(tilesPerSide) + ".png";
+
+                    final HttpRequest.Builder    request = HttpRequest.newBuilder(URI.create(base + path)).GET();
+                    if (revalidate)
+                    {
+                        request.header("If-None-Match", lastETag);
+                    }
+
+                    final long    requestStart = System.nanoTime();
+
+                    sent++;
+                    try
+                    {
+                        final HttpResponse<byte[]>    response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+                        final long                    latency = System.nanoTime() - requestStart;
+
+                        if (response.statusCode() == 200)
+                        {
+                            renderedLatencies.add(latency);
+                        }
+                        else if (response.statusCode() == 304)
+                        {
+                            notModifiedLatencies.add(latency);
+                        }
+                        else
+                        {
+                            failures.incrementAndGet();
+                        }
+                        lastPath = path;
+                        lastETag = response.headers().firstValue("ETag").orElse(null);
+                    }
+                    catch (IOException e)
+                    {
+                        failures.incrementAndGet();
+                    }
+                }
+
+                return null;
+            }));
+        }
+
+        for (Future<?> result : results)
+        {
+            result.get();
+        }
+        clients.shutdown();
+
+        final double    seconds = (System.nanoTime() - start) / 1e9;
+        final long[]    rendered = sorted(renderedLatencies);
+        final long[]    notModified = sorted(notModifiedLatencies);
+        final int       succeeded = rendered.length + notModified.length;
+
+        if (succeeded == 0)
+        {
+            System.err.println("No request succeeded.");
+            System.exit(1);
+        }
+
+        System.out.println("Requests:       " + succeeded + "  (" + rendered.length + " rendered, " + notModified.length + " not modified, "
+                + failures + " failed)");
+        System.out.println("Throughput:     " + Math.round(succeeded / seconds) + " requests/s");
+        if (rendered.length > 0)
+        {
+            System.out.println("Rendered p50:   " + percentileMillis(rendered, 0.50) + " ms");
+            System.out.println("Rendered p99:   " + percentileMillis(rendered, 0.99) + " ms");
+            System.out.println("Rendered max:   " + percentileMillis(rendered, 1.00) + " ms");
+        }
+        if (notModified.length > 0)
+        {
+            System.out.println("304 p50:        " + percentileMillis(notModified, 0.50) + " ms");
+            System.out.println("304 p99:        " + percentileMillis(notModified, 0.99) + " ms");
+        }
+    }
+
+
+
+    private static long[] sorted(final Queue<Long> latencies)
+    {
+        final long[]    sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+
+
+    private static double percentileMillis(final long[] sorted, final double percentile)
+    {
+        final int    index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+
+        return Math.round(sorted[Math.max(index, 0)] / 1e4) / 100.0;
+    }
+}
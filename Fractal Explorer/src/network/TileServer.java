@@ -0,0 +1,308 @@
+package network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import model.ExecutionBackend;
+import model.ExecutionSettings;
+import model.MandelbrotSetComputingThread;
+import model.Palette;
+import model.PrecisionManager;
+import model.PrecisionTier;
+import model.Viewport;
+
+
+/**
+ * <h4>TileServer.java</h4> <br>
+ *
+ * A local HTTP server that serves the Mandelbrot set as 256x256 PNG map tiles at <i>/z/x/y.png</i>,
+ * rendered on demand. At zoom level 0 a single tile covers the square <i>[-2.5, 1.5] x [-2, 2]</i>,
+ * and every zoom level splits each tile into four. Each tile is rendered with the cheapest arithmetic
+ * that resolves its pixels, see <i>PrecisionManager</i>. <br> <br>
+ *
+ * <li>Requests are handled on virtual threads when the Java runtime has them, and on a cached thread
+ * pool otherwise. Rendering always happens on a pool created from the <i>ExecutionSettings</i> of the
+ * server, by default one thread per processor.</li>
+ * <li>Requests for a tile that is already being rendered wait for that rendering instead of starting another.</li>
+ * <li>A tile only depends on its coordinates, the rendering parameters and the version of the renderer,
+ * so its ETag is made of those, and a matching <i>If-None-Match</i> is answered with 304 without rendering anything.</li> <br> <br>
+ *
+ * <i>/stats</i> returns the request counters as plain text. <br> <br> <br>
+ */
+public final class TileServer
+{
+    // Constants
+    public static final int        TILE_SIZE = 256;
+    public static final int        DEFAULT_PORT = 8080;
+    private static final int       MAX_ZOOM_LEVEL = 46;
+    private static final double    WORLD_SIZE = 4.0;
+    private static final double    WORLD_MIN_X = -2.5;
+    private static final double    WORLD_MIN_Y = -2.0;
+    private static final BigDecimal    HALF = new BigDecimal("0.5");
+    private static final int       COLOR_SCHEME = 10;
+    private static final int       RENDERER_VERSION = 1;    // Raised whenever the pixels of a tile change for the same parameters
+    private static final String    CACHE_CONTROL = "public, max-age=86400";
+    private static final Pattern   TILE_PATH = Pattern.compile("^/(\\d{1,2})/(\\d{1,15})/(\\d{1,15})\\.png$");
+
+    private final HttpServer         server;
+    private final ExecutorService    requestExecutor;
+    private final ExecutorService    renderPool;
+    private final int                maxNumberOfIterations;
+
+    // Tiles being rendered, by "z/x/y"
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>>    inFlight = new ConcurrentHashMap<String, CompletableFuture<byte[]>>();
+
+    // Statistics
+    private final AtomicLong    requests = new AtomicLong();
+    private final AtomicLong    renderedTiles = new AtomicLong();
+    private final AtomicLong    coalescedRequests = new AtomicLong();
+    private final AtomicLong    notModifiedResponses = new AtomicLong();
+
+
+
+    public TileServer(final int port, final int maxNumberOfIterations, final ExecutionSettings execution) throws IOException
+    {
+        this.maxNumberOfIterations = maxNumberOfIterations;
+
+        renderPool = execution.newPool();
+        requestExecutor = newRequestExecutor();
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(requestExecutor);
+    }
+
+
+
+    public void start()
+    {
+        server.start();
+    }
+
+
+
+    public void stop()
+    {
+        server.stop(0);
+        requestExecutor.shutdown();
+        renderPool.shutdown();
+    }
+
+
+
+    /**
+     * Returns the ETag of a tile. It is made of everything the tile depends on, so it can be compared
+     * with <i>If-None-Match</i> without rendering the tile, and two different tiles never share one.
+     */
+    String etagOf(final int z, final long x, final long y)
+    {
+        return "\"" + z + "/" + x + "/" + y + "/" + maxNumberOfIterations + "/" + COLOR_SCHEME + "/" + RENDERER_VERSION + "\"";
+    }
+
+
+
+    private void handle(final HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            requests.incrementAndGet();
+
+            if (!"GET".equals(exchange.getRequestMethod()))
+            {
+                sendText(exchange, 405, "Only GET is supported.");
+                return;
+            }
+
+            final String    path = exchange.getRequestURI().getPath();
+
+            if ("/stats".equals(path))
+            {
+                sendText(exchange, 200, "requests " + requests + "\nrendered " + renderedTiles
+                        + "\ncoalesced " + coalescedRequests + "\nnot-modified " + notModifiedResponses + "\n");
+                return;
+            }
+
+            final Matcher    matcher = TILE_PATH.matcher(path);
+
+            if (!matcher.matches())
+            {
+                sendText(exchange, 404, "Tiles are served at /z/x/y.png");
+                return;
+            }
+
+            final int     z = Integer.parseInt(matcher.group(1));
+            final long    x = Long.parseLong(matcher.group(2));
+            final long    y = Long.parseLong(matcher.group(3));
+
+            if (z > MAX_ZOOM_LEVEL  ||  x >= (1L << z)  ||  y >= (1L << z))
+            {
+                sendText(exchange, 404, "No such tile.");
+                return;
+            }
+
+            final String    etag = etagOf(z, x, y);
+            final String    ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", CACHE_CONTROL);
+
+            if (ifNoneMatch != null  &&  (ifNoneMatch.contains(etag)  ||  ifNoneMatch.trim().equals("*")))
+            {
+                notModifiedResponses.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            final byte[]    png = tile(z, x, y).join();
+
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            exchange.sendResponseHeaders(200, png.length);
+
+            try (OutputStream body = exchange.getResponseBody())
+            {
+                body.write(png);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            System.err.println("Tile request " + exchange.getRequestURI() + " failed:  " + e);
+            sendText(exchange, 500, "Rendering failed.");
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+
+
+    // Returns the pending rendering of the tile, starting one if there is none
+    private CompletableFuture<byte[]> tile(final int z, final long x, final long y)
+    {
+        final String       key = z + "/" + x + "/" + y;
+        final boolean[]    started = new boolean[1];
+
+        final CompletableFuture<byte[]>    future = inFlight.computeIfAbsent(key, k ->
+        {
+            started[0] = true;
+            return CompletableFuture.supplyAsync(() -> render(z, x, y), renderPool);
+        });
+
+        if (started[0])
+        {
+            future.whenComplete((png, e) -> inFlight.remove(key, future));
+        }
+        else
+        {
+            coalescedRequests.incrementAndGet();
+        }
+
+        return future;
+    }
+
+
+
+    private byte[] render(final int z, final long x, final long y)
+    {
+        // Powers of two divide exactly in decimal, so the viewport of a tile is exact at every zoom level
+        final BigDecimal    tileSide = new BigDecimal(WORLD_SIZE).divide(BigDecimal.valueOf(2).pow(z));
+        final BigDecimal    centerX  = new BigDecimal(WORLD_MIN_X).add(tileSide.multiply(BigDecimal.valueOf(x).add(HALF)));
+        final BigDecimal    centerY  = new BigDecimal(WORLD_MIN_Y).add(tileSide.multiply(BigDecimal.valueOf(y).add(HALF)));
+        final Viewport      viewport = new Viewport(centerX, centerY, tileSide.divide(BigDecimal.valueOf(TILE_SIZE)));
+        final PrecisionTier tier = new PrecisionManager().select(viewport, TILE_SIZE, TILE_SIZE, maxNumberOfIterations);
+
+        final MandelbrotSetComputingThread    kernel = new MandelbrotSetComputingThread(0, 0, 0, TILE_SIZE, TILE_SIZE,
+                TILE_SIZE, TILE_SIZE, viewport, tier, maxNumberOfIterations);
+
+        try
+        {
+            final ByteArrayOutputStream    png = new ByteArrayOutputStream();
+            ImageIO.write(Palette.toImage(kernel.computeIterations(), TILE_SIZE, TILE_SIZE, COLOR_SCHEME), "png", png);
+            renderedTiles.incrementAndGet();
+
+            return png.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+
+    private static void sendText(final HttpExchange exchange, final int status, final String text) throws IOException
+    {
+        final byte[]    body = text.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+
+
+    /*
+     * Virtual threads (Java 21 and later) make a blocked request handler almost free. They are looked up
+     * reflectively so that the server still runs, on a cached thread pool, on older runtimes.
+     */
+    private static ExecutorService newRequestExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            System.err.println("Virtual threads are not available, handling requests on a cached thread pool.");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+
+
+    public static void main(String[] args)
+    {
+        int    port = DEFAULT_PORT;
+        int    maxNumberOfIterations = 1000;
+
+        try
+        {
+            port = (args.length > 0) ? Integer.parseInt(args[0]) : port;
+            maxNumberOfIterations = (args.length > 1) ? Integer.parseInt(args[1]) : maxNumberOfIterations;
+        }
+        catch (NumberFormatException e)
+        {
+            System.err.println("Usage:  TileServer [port] [max iterations]");
+            System.exit(1);
+        }
+
+        try
+        {
+            new TileServer(port, maxNumberOfIterations, new ExecutionSettings(ExecutionBackend.FIXED, Runtime.getRuntime().availableProcessors(),
+                                                                              "Tile renderer", Thread.NORM_PRIORITY)).start();
+            System.out.println("Serving tiles at http://localhost:" + port + "/{z}/{x}/{y}.png");
+        }
+        catch (IOException e)
+        {
+            System.err.println("The tile server could not start:  " + e);
+            System.exit(1);
+        }
+    }
+}
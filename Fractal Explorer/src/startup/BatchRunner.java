@@ -0,0 +1,258 @@
+package startup;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import model.ComplexNumber;
+import model.ExecutionBackend;
+import model.ExecutionSettings;
+import model.FrameBuffer;
+import model.ImageExporter;
+import model.IterationTuner;
+import model.MandelbrotSetComputingThread;
+import model.MemoryBudget;
+import model.NewtonFractal;
+import model.PrecisionManager;
+import model.PrecisionTier;
+import model.Tile;
+import model.TileScheduler;
+import model.Viewport;
+
+
+/**
+ * <h4>BatchRunner.java</h4> <br>
+ *
+ * Renders a list of jobs, e.g. thumbnails or regression sets, in one process. The tiles of all jobs
+ * go into one <i>TileScheduler</i>, so jobs overlap, the cores stay busy while images are written, and
+ * no thread pool is created per job. <br> <br>
+ *
+ * The job file has one job per line, blank lines and lines starting with # are skipped: <br>
+ * <i>output width height centerX centerY zoom iterations|auto [formula] [priority]</i> <br>
+ * The formula is <i>mandelbrot</i>, the default, or <i>newton</i> for the Newton fractal of <i>z^3 - 1</i>;
+ * the priority is the share of the job, 1 by default. <br> <br> <br>
+ */
+public final class BatchRunner
+{
+    // Constants
+    private static final int       TILE_SIZE = 128;
+    private static final int       ACTIVE_JOBS_PER_THREAD = 2;
+    private static final String    MANDELBROT_FORMULA = "mandelbrot";
+    private static final String    NEWTON_FORMULA = "newton";
+    private static final NewtonFractal    NEWTON_FRACTAL = new NewtonFractal(new ComplexNumber(1, 0), new ComplexNumber(),
+                                                                         new ComplexNumber(), new ComplexNumber(-1, 0));
+    private static final String    AUTO_ITERATIONS = "auto";
+    private static final int       DEFAULT_MAX_NUMBER_OF_ITERATIONS = 3000;
+
+
+
+    private static final class Job
+    {
+        private final File        output;
+        private final int         width;
+        private final int         height;
+        private final Viewport    viewport;
+        private final int         maxNumberOfIterations;   // 0 to tune
+        private final boolean     newton;
+        private final int         priority;
+
+        private Job(final File output, final int width, final int height, final Viewport viewport, final int maxNumberOfIterations,
+                    final boolean newton, final int priority)
+        {
+            this.output = output;
+            this.width = width;
+            this.height = height;
+            this.viewport = viewport;
+            this.maxNumberOfIterations = maxNumberOfIterations;
+            this.newton = newton;
+            this.priority = priority;
+        }
+    }
+
+
+
+    // Hidden constructor
+    private BatchRunner()
+    {
+    }
+
+
+
+    private static List<Job> readJobs(final Path file) throws IOException
+    {
+        final List<Job>       jobs = new ArrayList<Job>();
+        final List<String>    lines = Files.readAllLines(file);
+
+        for (int i = 0; i < lines.size(); i++)
+        {
+            final String    line = lines.get(i).trim();
+            if (line.isEmpty()  ||  line.startsWith("#"))
+            {
+                continue;
+            }
+
+            final String[]    fields = line.split("\\s+");
+            try
+            {
+                if (fields.length < 7  ||  fields.length > 9)
+                {
+                    throw new IllegalArgumentException("expected 7 to 9 fields, found " + fields.length);
+                }
+                if (fields.length > 7  &&  !fields[7].equalsIgnoreCase(MANDELBROT_FORMULA)  &&  !fields[7].equalsIgnoreCase(NEWTON_FORMULA))
+                {
+                    throw new IllegalArgumentException("unknown formula \"" + fields[7] + "\"");
+                }
+
+                jobs.add(new Job(new File(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                                 Viewport.of(new BigDecimal(fields[3]), new BigDecimal(fields[4]), Double.parseDouble(fields[5])),
+                                 fields[6].equalsIgnoreCase(AUTO_ITERATIONS) ? 0 : Integer.parseInt(fields[6]),
+                                 fields.length > 7  &&  fields[7].equalsIgnoreCase(NEWTON_FORMULA),
+                                 (fields.length > 8) ? Integer.parseInt(fields[8]) : 1));
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IOException(file + ", line " + (i + 1) + ":  " + e.getMessage(), e);
+            }
+        }
+
+        return jobs;
+    }
+
+
+
+    /*
+     * Hands the tiles of a job to the scheduler; the image is written on the export thread once they are done.
+     * The frame and its image are reserved from the memory budget until the image is written, so jobs wait
+     * for memory as well as for their turn.
+     */
+    private static CompletableFuture<File> submit(final TileScheduler scheduler, final Job job)
+    {
+        if (job.newton)
+        {
+            return submitNewton(scheduler, job);
+        }
+
+        final PrecisionTier    tier = new PrecisionManager().select(job.viewport, job.width, job.height,
+                (job.maxNumberOfIterations > 0) ? job.maxNumberOfIterations : DEFAULT_MAX_NUMBER_OF_ITERATIONS);
+        final int              maxNumberOfIterations = (job.maxNumberOfIterations > 0) ? job.maxNumberOfIterations
+                : new IterationTuner(DEFAULT_MAX_NUMBER_OF_ITERATIONS).tune(job.width, job.height, job.viewport, tier);
+        final MemoryBudget     memory = MemoryBudget.getInstance();
+        final long             bytes = Math.min(2L * job.width * job.height * Integer.BYTES, memory.getBudget());
+
+        memory.reserve(bytes);
+        final FrameBuffer      frame = FrameBuffer.allocate(job.width, job.height);
+
+        return scheduler.submit(Tile.split(job.width, job.height, TILE_SIZE), tile ->
+        {
+            new MandelbrotSetComputingThread(tile.getID(), tile.getStartX(), tile.getStartY(), tile.getEndX(), tile.getEndY(),
+                    job.width, job.height, job.viewport, tier, maxNumberOfIterations).renderInto(frame.slice(tile));
+        }, job.priority).thenCompose(done -> ImageExporter.getInstance().export(frame.toImage(), job.output))
+                        .whenComplete((file, error) -> memory.release(bytes));
+    }
+
+
+
+    /*
+     * As submit(), for a Newton fractal; it is not tuned, and iterates at most the default number of times.
+     */
+    private static CompletableFuture<File> submitNewton(final TileScheduler scheduler, final Job job)
+    {
+        final int             maxNumberOfIterations = (job.maxNumberOfIterations > 0) ? job.maxNumberOfIterations : DEFAULT_MAX_NUMBER_OF_ITERATIONS;
+        final MemoryBudget    memory = MemoryBudget.getInstance();
+        final long            bytes = Math.min(2L * job.width * job.height * Integer.BYTES, memory.getBudget());
+
+        memory.reserve(bytes);
+        final FrameBuffer     frame = FrameBuffer.allocate(job.width, job.height);
+
+        return scheduler.submit(Tile.split(job.width, job.height, TILE_SIZE), tile ->
+        {
+            final int[]          rgb = new int[tile.getPixelCount()];
+            final FrameBuffer    slice = frame.slice(tile);
+
+            NEWTON_FRACTAL.render(tile, job.width, job.height, job.viewport, maxNumberOfIterations, rgb);
+            for (int y = 0; y < tile.getHeight(); y++)
+            {
+                slice.setRow(y, rgb, y * tile.getWidth());
+            }
+        }, job.priority).thenCompose(done -> ImageExporter.getInstance().export(frame.toImage(), job.output))
+                        .whenComplete((file, error) -> memory.release(bytes));
+    }
+
+
+
+    public static void main(String[] args)
+    {
+        if (args.length < 1  ||  args.length > 2)
+        {
+            System.err.println("Usage:  BatchRunner <job file> [threads]");
+            System.exit(1);
+        }
+
+        List<Job>    jobs = null;
+        int          numberOfThreads = Runtime.getRuntime().availableProcessors();
+        try
+        {
+            jobs = readJobs(Path.of(args[0]));
+            numberOfThreads = (args.length > 1) ? Integer.parseInt(args[1]) : numberOfThreads;
+        }
+        catch (IOException | NumberFormatException e)
+        {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+
+        final TileScheduler                     scheduler = new TileScheduler(new ExecutionSettings(ExecutionBackend.FIXED, numberOfThreads,
+                                                                                                    "Batch worker", Thread.NORM_PRIORITY));
+        final Semaphore                         activeJobs = new Semaphore(ACTIVE_JOBS_PER_THREAD * numberOfThreads);
+        final List<CompletableFuture<File>>     outputs = new ArrayList<CompletableFuture<File>>();
+        final long                              start = System.nanoTime();
+
+        // Only a few jobs are admitted at a time, so that their frames are not all held at once
+        for (Job job : jobs)
+        {
+            activeJobs.acquireUninterruptibly();
+
+            final CompletableFuture<File>    output = submit(scheduler, job);
+            output.whenComplete((file, error) ->
+            {
+                activeJobs.release();
+                if (error == null)
+                {
+                    System.out.println("Wrote " + file);
+                }
+                else
+                {
+                    System.err.println("Job " + job.output + " failed:  " + error.getCause());
+                }
+            });
+            outputs.add(output);
+        }
+
+        int    failures = 0;
+        for (CompletableFuture<File> output : outputs)
+        {
+            try
+            {
+                output.join();
+            }
+            catch (RuntimeException e)
+            {
+                failures++;
+            }
+        }
+        scheduler.shutdown();
+
+        final double    seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println();
+        System.out.println(jobs.size() + " jobs (" + failures + " failed), " + scheduler.getPixelsCompleted() + " pixels in "
+                + Math.round(seconds * 100) / 100.0 + " s on " + numberOfThreads + " threads");
+        System.out.println("Throughput:  " + Math.round(jobs.size() / seconds * 3600) + " jobs/hour,  "
+                + Math.round(scheduler.getPixelsCompleted() / seconds) + " pixels/s");
+    }
+}
@@ -0,0 +1,226 @@
+package startup;
+
+import java.awt.Color;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import model.ComplexNumber;
+import model.NewtonFractal;
+import model.Tile;
+import model.Viewport;
+
+
+/**
+ * <h4>NewtonRootTest.java</h4> <br>
+ *
+ * Checks that <i>NewtonFractal</i> finds the roots of several polynomials, given by their roots and
+ * expanded, and that points are captured by the right root, also next to a double root. Exits with
+ * status 1 if a check fails. <br> <br> <br>
+ */
+public final class NewtonRootTest
+{
+    // Constants
+    private static final double    SIMPLE_ROOT_TOLERANCE = 1e-10;
+    private static final double    DOUBLE_ROOT_TOLERANCE = 1e-6;
+    private static final double    HUE_TOLERANCE = 0.01;
+    private static final int       FRAME_SIZE = 200;
+    private static final double    FRAME_ZOOM = 50;
+    private static final int       FRAME_ITERATIONS = 1000;
+    private static final double    MAX_BLACK_SHARE = 0.01;
+
+    private static int    failures;
+
+
+
+    // Hidden constructor
+    private NewtonRootTest()
+    {
+    }
+
+
+
+    public static void main(String[] args)
+    {
+        check("z^3 - 1", rootsOfUnity(3), SIMPLE_ROOT_TOLERANCE);
+        check("z^4 - 1", rootsOfUnity(4), SIMPLE_ROOT_TOLERANCE);
+        check("z^12 - 1", rootsOfUnity(12), SIMPLE_ROOT_TOLERANCE);
+        check("z^2 + 1", new ComplexNumber[] { new ComplexNumber(0, 1), new ComplexNumber(0, -1) }, SIMPLE_ROOT_TOLERANCE);
+        check("(z - 1)(z + 2)(z - 3i)", new ComplexNumber[] { new ComplexNumber(1, 0), new ComplexNumber(-2, 0), new ComplexNumber(0, 3) },
+              SIMPLE_ROOT_TOLERANCE);
+        check("five scattered roots", new ComplexNumber[] { new ComplexNumber(0.5, 0.5), new ComplexNumber(-0.5, 0.5), new ComplexNumber(2, -1),
+                                                            new ComplexNumber(-3, 0), new ComplexNumber(0.1, 0) }, SIMPLE_ROOT_TOLERANCE);
+        check("(z - 1)^2 (z + 1)", new ComplexNumber[] { new ComplexNumber(1, 0), new ComplexNumber(1, 0), new ComplexNumber(-1, 0) },
+              DOUBLE_ROOT_TOLERANCE);
+
+        // z^3 - 2z + 2 has no rational roots; they are checked by the value of the polynomial
+        final ComplexNumber[]    cubic = { new ComplexNumber(1, 0), new ComplexNumber(), new ComplexNumber(-2, 0), new ComplexNumber(2, 0) };
+        for (ComplexNumber root : NewtonFractal.findRoots(cubic))
+        {
+            report("z^3 - 2z + 2 at " + root, NewtonFractal.evaluate(cubic, root).abs() < SIMPLE_ROOT_TOLERANCE);
+        }
+
+        checkCapture();
+        checkDoubleRootCapture();
+
+        System.out.println();
+        System.out.println(failures == 0 ? "All checks passed." : failures + " checks failed.");
+        if (failures > 0)
+        {
+            System.exit(1);
+        }
+    }
+
+
+
+    /*
+     * Expands the polynomial with the given roots, and checks that every root is found, as often as it occurs.
+     */
+    private static void check(final String name, final ComplexNumber[] expected, final double tolerance)
+    {
+        final ComplexNumber[]    found = NewtonFractal.findRoots(expand(expected));
+        final boolean[]          matched = new boolean[found.length];
+        boolean                  passed = (found.length == expected.length);
+
+        for (ComplexNumber root : expected)
+        {
+            int    match = -1;
+            for (int i = 0; i < found.length; i++)
+            {
+                if (!matched[i]  &&  found[i].sub(root).abs() < tolerance)
+                {
+                    match = i;
+                    break;
+                }
+            }
+
+            if (match < 0)
+            {
+                passed = false;
+            }
+            else
+            {
+                matched[match] = true;
+            }
+        }
+
+        report(name + ",  found " + Arrays.toString(found), passed);
+    }
+
+
+
+    /*
+     * Renders single pixels of the Newton fractal of z^3 - 1 and checks the root they are colored by: a
+     * pixel on a root, and a pixel on the positive real axis, which converges to 1.
+     */
+    private static void checkCapture()
+    {
+        final NewtonFractal      fractal = new NewtonFractal(expand(rootsOfUnity(3)));
+        final ComplexNumber[]    roots = fractal.getRoots();
+        final int                one = fractal.nearestRoot(1, 0);
+
+        for (int i = 0; i < roots.length; i++)
+        {
+            report("root " + roots[i] + " is captured by itself", fractal.nearestRoot(roots[i].getRealPart(), roots[i].getImaginaryPart()) == i);
+            report("root " + roots[i] + " is colored by its hue", hueAt(fractal, roots[i].getRealPart(), roots[i].getImaginaryPart(), i));
+        }
+        report("2 converges to 1", one != NewtonFractal.NO_ROOT  &&  hueAt(fractal, 2, 0, one));
+    }
+
+
+
+    /*
+     * The estimates of the double root of (z - 1)^2 (z + 1) lie within their rounding error of each other;
+     * they must be one root with a capture radius, so that the frame is colored and not black.
+     */
+    private static void checkDoubleRootCapture()
+    {
+        final NewtonFractal      fractal = new NewtonFractal(expand(new ComplexNumber[] { new ComplexNumber(1, 0), new ComplexNumber(1, 0),
+                                                                                          new ComplexNumber(-1, 0) }));
+        final int                one = fractal.nearestRoot(1, 0);
+        final int                minusOne = fractal.nearestRoot(-1, 0);
+
+        report("(z - 1)^2 (z + 1) has 2 distinct roots,  found " + Arrays.toString(fractal.getRoots()), fractal.getNumberOfRoots() == 2);
+        report("capture radius " + fractal.getCaptureRadius() + " is not below 0.1", fractal.getCaptureRadius() >= 0.1);
+        report("the double root and -1 are captured apart", one != NewtonFractal.NO_ROOT  &&  minusOne != NewtonFractal.NO_ROOT  &&  one != minusOne);
+        report("2 converges to the double root", one != NewtonFractal.NO_ROOT  &&  hueAt(fractal, 2, 0, one));
+        report("-2 converges to -1", minusOne != NewtonFractal.NO_ROOT  &&  hueAt(fractal, -2, 0, minusOne));
+
+        final int[]    rgb = new int[FRAME_SIZE * FRAME_SIZE];
+        int            black = 0;
+
+        fractal.render(Tile.split(FRAME_SIZE, FRAME_SIZE, FRAME_SIZE).get(0), FRAME_SIZE, FRAME_SIZE, Viewport.of(0, 0, FRAME_ZOOM),
+                       FRAME_ITERATIONS, rgb);
+        for (int color : rgb)
+        {
+            if ((color & 0xFFFFFF) == 0)
+            {
+                black++;
+            }
+        }
+        report(black + " of " + rgb.length + " pixels are black", black <= MAX_BLACK_SHARE * rgb.length);
+    }
+
+
+
+    // Whether the pixel at a point has the hue of a root
+    private static boolean hueAt(final NewtonFractal fractal, final double re, final double im, final int root)
+    {
+        final int[]      rgb = new int[1];
+        final Tile       pixel = Tile.split(1, 1, 1).get(0);
+        final float[]    hsb = new float[3];
+
+        fractal.render(pixel, 1, 1, Viewport.of(new BigDecimal(re), new BigDecimal(im), 100), 100, rgb);
+        Color.RGBtoHSB(rgb[0] >> 16 & 0xFF, rgb[0] >> 8 & 0xFF, rgb[0] & 0xFF, hsb);
+
+        final float    expectedHue = (float) root / fractal.getNumberOfRoots();
+        final float    difference = Math.abs(hsb[0] - expectedHue);
+
+        return Math.min(difference, 1 - difference) < HUE_TOLERANCE;
+    }
+
+
+
+    private static ComplexNumber[] rootsOfUnity(final int n)
+    {
+        final ComplexNumber[]    roots = new ComplexNumber[n];
+
+        for (int k = 0; k < n; k++)
+        {
+            roots[k] = new ComplexNumber(1, 2 * Math.PI * k / n, true);
+        }
+        return roots;
+    }
+
+
+
+    // The coefficients of the product of (z - root) over the roots, highest degree first
+    private static ComplexNumber[] expand(final ComplexNumber[] roots)
+    {
+        ComplexNumber[]    coefficients = { new ComplexNumber(1, 0) };
+
+        for (ComplexNumber root : roots)
+        {
+            final ComplexNumber[]    product = new ComplexNumber[coefficients.length + 1];
+
+            Arrays.fill(product, new ComplexNumber());
+            for (int k = 0; k < coefficients.length; k++)
+            {
+                product[k] = product[k].add(coefficients[k]);
+                product[k + 1] = product[k + 1].sub(coefficients[k].times(root));
+            }
+            coefficients = product;
+        }
+        return coefficients;
+    }
+
+
+
+    private static void report(final String check, final boolean passed)
+    {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + check);
+        if (!passed)
+        {
+            failures++;
+        }
+    }
+}
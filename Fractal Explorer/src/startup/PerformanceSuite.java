@@ -0,0 +1,472 @@
+package startup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+import model.ExecutionBackend;
+import model.ExecutionSettings;
+import model.FrameBuffer;
+import model.MandelbrotSetComputingThread;
+import model.PrecisionManager;
+import model.PrecisionTier;
+import model.Tile;
+import model.Viewport;
+
+
+/**
+ * <h4>PerformanceSuite.java</h4> <br>
+ *
+ * Renders a set of named reference views without a window, the whole way from the tiles to the colored
+ * frame, and compares the runs to a stored baseline. Unlike a benchmark of the kernel alone, it also
+ * catches slowdowns in the scheduling of the tiles, the coloring and the compositing. <br> <br>
+ *
+ * For every view and size it records the checksum of the iteration values, the time of the fastest run,
+ * the megapixels and iterations per second, and the peak heap and direct memory. A checksum that differs
+ * from the baseline, or a time or peak memory more than the threshold above it, fails the suite. The views
+ * cover every tier but float; the arbitrary precision view is rendered at a fraction of each size, as it
+ * costs microseconds per iteration. The direct memory has no peak of its own, so it is sampled while a
+ * view renders. <br> <br>
+ *
+ * It then renders a view at several zoom depths with the float and with the double kernel, and reports
+ * the speedup of float and how often its iteration counts agree with double, by the number of
+ * significant bits the depth needs. Float is only used by the program when it is asked for, see
+ * <i>PrecisionManager.setFloatAllowed()</i>; the comparison does not fail the suite. <br> <br>
+ *
+ * <i>Usage:</i>  PerformanceSuite [--baseline=file] [--record=yes] [--threshold=0.25] [--sizes=640x360,1280x720]
+ * [--runs=3] [--backend=fixed] [--threads=n] <br>
+ * Without a baseline file, or with --record=yes, the runs are written as the new baseline. <br> <br> <br>
+ */
+public final class PerformanceSuite
+{
+    // Constants
+    private static final String    OPTION_PREFIX = "--";
+    private static final String    DEFAULT_BASELINE = "performance-baseline.properties";
+    private static final String    DEFAULT_THRESHOLD = "0.25";
+    private static final String    DEFAULT_SIZES = "640x360,1280x720";
+    private static final String    DEFAULT_RUNS = "3";
+    private static final String    DEFAULT_BACKEND = "fixed";
+    private static final String    RECORD = "yes";
+    private static final int       TILE_SIZE = 64;
+    private static final int       MEGABYTE = 1 << 20;
+    private static final long      TIME_SLACK_MILLIS = 5;
+    private static final long      HEAP_SLACK_BYTES = 16 * MEGABYTE;
+    private static final long      DIRECT_SLACK_BYTES = MEGABYTE / 4;
+    private static final long      SAMPLE_INTERVAL_NANOS = 1_000_000;
+    private static final long      CLEANUP_WAIT_MILLIS = 10;
+
+    // The reference views: name, center, height of the view in the complex plane, iteration limit, divisor of the size
+    private static final Object[][]    VIEWS =
+    {
+        { "whole-set",        "-0.5",                    "0",                      2.5,    1000,   1 },
+        { "seahorse-valley",  "-0.7453",                 "0.1127",                 0.01,   2000,   1 },
+        { "elephant-valley",  "0.28",                    "0.008",                  0.04,   2000,   1 },
+        { "deep-interior",    "-1.2506592094662220141",  "0.020120147680640102634", 4e-9,  10000,  1 },
+        { "deep-filament",    "-0.743643887037151",      "0.131825904205330",      1e-9,  10000,  1 },
+        { "dendrite-1e-20",   "0",                       "1",                      1e-20,  1000,   1 },     // Extended precision
+        { "dendrite-1e-40",   "0",                       "1",                      1e-40,  1000,  16 },     // Arbitrary precision
+    };
+
+    // The view the kernels are compared at, and the heights of its zoom depths
+    private static final String      FLOAT_CENTER_X = "-0.7453";
+    private static final String      FLOAT_CENTER_Y = "0.1127";
+    private static final double[]    FLOAT_HEIGHTS = { 2.5, 0.6, 0.15, 0.04, 0.01 };
+    private static final int         FLOAT_ITERATIONS = 1000;
+
+
+
+    /*
+     * Samples the direct memory on a thread of its own until it is stopped, and keeps the highest usage.
+     */
+    private static final class DirectMemorySampler
+    {
+        private final Thread        thread;
+        private volatile boolean    stopped;
+        private long                peakBytes;
+
+        private DirectMemorySampler()
+        {
+            peakBytes = directMemoryUsed();
+            thread = new Thread(this::sample, "Direct memory sampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void sample()
+        {
+            while (!stopped)
+            {
+                peakBytes = Math.max(peakBytes, directMemoryUsed());
+                LockSupport.parkNanos(SAMPLE_INTERVAL_NANOS);
+            }
+        }
+
+        // Returns the peak since the sampler was started
+        private long stop() throws InterruptedException
+        {
+            stopped = true;
+            thread.join();
+
+            return Math.max(peakBytes, directMemoryUsed());
+        }
+    }
+
+
+
+    private static final class Result
+    {
+        private long      checksum;
+        private long      millis = Long.MAX_VALUE;
+        private long      iterations;
+        private long      peakHeapBytes;
+        private long      peakDirectBytes;
+        private String    tier;
+    }
+
+
+
+    // Hidden constructor
+    private PerformanceSuite()
+    {
+    }
+
+
+
+    /*
+     * Renders a view once: the tiles are computed, colored and written into a frame buffer on the pool,
+     * and the frame is turned into an image.
+     */
+    private static Result render(final ExecutorService pool, final Viewport viewport, final int width, final int height,
+                                 final int maxNumberOfIterations, final PrecisionTier tier) throws Exception
+    {
+        final Result                                result = new Result();
+        final List<Tile>                            tiles = Tile.split(width, height, TILE_SIZE);
+        final List<MandelbrotSetComputingThread>    threads = new ArrayList<MandelbrotSetComputingThread>();
+        final List<Callable<Void>>                  tasks = new ArrayList<Callable<Void>>();
+
+        resetPeakUsage();
+        final DirectMemorySampler    direct = new DirectMemorySampler();
+        try
+        {
+            final long           start = System.nanoTime();
+            final FrameBuffer    frame = FrameBuffer.allocate(width, height);
+
+            for (Tile tile : tiles)
+            {
+                final MandelbrotSetComputingThread    thread = new MandelbrotSetComputingThread(tile.getID(), tile.getStartX(), tile.getStartY(),
+                        tile.getEndX(), tile.getEndY(), width, height, viewport, tier, maxNumberOfIterations);
+
+                threads.add(thread);
+                tasks.add(() ->
+                {
+                    thread.renderInto(frame.slice(tile));
+                    return null;
+                });
+            }
+
+            for (Future<Void> future : pool.invokeAll(tasks))
+            {
+                future.get();
+            }
+            frame.toImage();
+
+            result.millis = (System.nanoTime() - start) / 1_000_000;
+        }
+        finally
+        {
+            result.peakDirectBytes = direct.stop();
+        }
+        result.peakHeapBytes = peakHeapUsage();
+        result.tier = tier.toString();
+
+        // The checksum covers the iteration values in the order of the tiles, whatever order they were done in
+        final CRC32    crc = new CRC32();
+        for (MandelbrotSetComputingThread thread : threads)
+        {
+            final float[]       iterations = thread.getLastIterations();
+            final ByteBuffer    bytes = ByteBuffer.allocate(iterations.length * Float.BYTES);
+
+            bytes.asFloatBuffer().put(iterations);
+            crc.update(bytes);
+            result.iterations += thread.getIterationCount();
+        }
+        result.checksum = crc.getValue();
+
+        return result;
+    }
+
+
+
+    /*
+     * Renders the view of the comparison at every depth with float and with double, the fastest of the
+     * runs after a warm-up, and prints the speedup of float and its agreement with double.
+     */
+    private static void compareFloat(final ExecutorService pool, final int width, final int height, final int runs) throws Exception
+    {
+        System.out.println(String.format("Float vs double,  %dx%d,  %d iterations", width, height, FLOAT_ITERATIONS));
+        System.out.println(String.format("%8s %6s %10s %10s %9s %11s", "Height", "Bits", "Float ms", "Double ms", "Speedup", "Agreement"));
+
+        for (double viewHeight : FLOAT_HEIGHTS)
+        {
+            final Viewport    viewport = Viewport.of(new BigDecimal(FLOAT_CENTER_X), new BigDecimal(FLOAT_CENTER_Y), height / viewHeight);
+            long              floatMillis = Long.MAX_VALUE;
+            long              doubleMillis = Long.MAX_VALUE;
+
+            render(pool, viewport, width, height, FLOAT_ITERATIONS, PrecisionTier.FLOAT);
+            render(pool, viewport, width, height, FLOAT_ITERATIONS, PrecisionTier.DOUBLE);
+            for (int run = 0; run < runs; run++)
+            {
+                floatMillis = Math.min(floatMillis, render(pool, viewport, width, height, FLOAT_ITERATIONS, PrecisionTier.FLOAT).millis);
+                doubleMillis = Math.min(doubleMillis, render(pool, viewport, width, height, FLOAT_ITERATIONS, PrecisionTier.DOUBLE).millis);
+            }
+
+            System.out.println(String.format("%8s %6d %10d %10d %8.2fx %10.2f %%", viewHeight, Math.round(viewport.significantBitsNeeded(width, height)),
+                    floatMillis, doubleMillis, Math.max(1, doubleMillis) / (double) Math.max(1, floatMillis),
+                    100 * PrecisionManager.floatAgreement(viewport, width, height, FLOAT_ITERATIONS)));
+        }
+    }
+
+
+
+    // The frame buffers of earlier runs are freed after a collection, once their cleaner has run
+    private static void resetPeakUsage() throws InterruptedException
+    {
+        long    directBytes;
+        do
+        {
+            directBytes = directMemoryUsed();
+            System.gc();
+            Thread.sleep(CLEANUP_WAIT_MILLIS);
+        }
+        while (directMemoryUsed() < directBytes);
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            pool.resetPeakUsage();
+        }
+    }
+
+    // The sum of the peaks of the heap pools, which need not have been reached at the same time
+    private static long peakHeapUsage()
+    {
+        long    bytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP  &&  pool.getPeakUsage() != null)
+            {
+                bytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return bytes;
+    }
+
+    // The frame buffers are direct buffers, so they do not show up in the heap
+    private static long directMemoryUsed()
+    {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+        {
+            if (pool.getName().equals("direct"))
+            {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+
+
+    /*
+     * Compares a value to its baseline, and returns a complaint if it is more than the threshold above it.
+     * Small values are noisy, so the value may always exceed the baseline by the slack.
+     */
+    private static String compare(final String what, final long value, final String baseline, final double threshold, final long slack)
+    {
+        if (baseline == null)
+        {
+            return null;
+        }
+
+        final long    limit = Math.max((long) (Long.parseLong(baseline) * (1 + threshold)), Long.parseLong(baseline) + slack);
+        return (value > limit) ? what + " " + value + " exceeds the baseline " + baseline + " by more than " + Math.round(threshold * 100) + " %" : null;
+    }
+
+
+
+    public static void main(String[] args)
+    {
+        final Map<String, String>    options = new HashMap<String, String>();
+
+        for (String arg : args)
+        {
+            final int    separator = arg.indexOf('=');
+
+            if (!arg.startsWith(OPTION_PREFIX)  ||  separator < 0)
+            {
+                System.err.println("Unknown argument \"" + arg + "\", options are given as --name=value.");
+                System.exit(1);
+            }
+            options.put(arg.substring(OPTION_PREFIX.length(), separator), arg.substring(separator + 1));
+        }
+
+        final Path           baselineFile = Path.of(options.getOrDefault("baseline", DEFAULT_BASELINE));
+        final boolean        record = RECORD.equals(options.get("record"))  ||  !Files.exists(baselineFile);
+        final Properties     baseline = new Properties();
+        final Properties     measured = new Properties();
+        double               threshold = 0;
+        int                  runs = 0;
+        ExecutionSettings    execution = null;
+        final List<int[]>    sizes = new ArrayList<int[]>();
+
+        try
+        {
+            threshold = Double.parseDouble(options.getOrDefault("threshold", DEFAULT_THRESHOLD));
+            runs = Math.max(1, Integer.parseInt(options.getOrDefault("runs", DEFAULT_RUNS)));
+            execution = new ExecutionSettings(ExecutionBackend.forName(options.getOrDefault("backend", DEFAULT_BACKEND)),
+                    Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    "Suite thread", Thread.NORM_PRIORITY);
+
+            for (String size : options.getOrDefault("sizes", DEFAULT_SIZES).split(","))
+            {
+                final int    separator = size.indexOf('x');
+                sizes.add(new int[] { Integer.parseInt(size.substring(0, separator)), Integer.parseInt(size.substring(separator + 1)) });
+            }
+
+            if (!record)
+            {
+                try (InputStream in = Files.newInputStream(baselineFile))
+                {
+                    baseline.load(in);
+                }
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            System.err.println("Invalid options:  " + e.getMessage());
+            System.exit(1);
+        }
+
+        System.out.println(execution + ",  best of " + runs + " runs after a warm-up");
+        System.out.println();
+        System.out.println(String.format("%-16s %10s %-9s %10s %9s %10s %10s %10s  %s",
+                "View", "Size", "Tier", "ms", "Mpix/s", "Giter/s", "Heap MB", "Direct MB", "Checksum"));
+
+        final ExecutorService    pool = execution.newPool();
+        final List<String>       failures = new ArrayList<String>();
+
+        try
+        {
+            for (Object[] view : VIEWS)
+            {
+                for (int[] size : sizes)
+                {
+                    final int         width = Math.max(1, size[0] / (Integer) view[5]);
+                    final int         height = Math.max(1, size[1] / (Integer) view[5]);
+                    final String      key = view[0] + "." + width + "x" + height;
+                    final Viewport    viewport = Viewport.of(new BigDecimal((String) view[1]), new BigDecimal((String) view[2]),
+                                                             height / (double) view[3]);
+                    final int         maxNumberOfIterations = (Integer) view[4];
+
+                    // The first run warms the code up, the fastest of the others counts
+                    final PrecisionTier    tier = new PrecisionManager().select(viewport, width, height, maxNumberOfIterations);
+                    final Result           best = render(pool, viewport, width, height, maxNumberOfIterations, tier);
+                    best.millis = Long.MAX_VALUE;
+                    for (int run = 0; run < runs; run++)
+                    {
+                        final Result    result = render(pool, viewport, width, height, maxNumberOfIterations, tier);
+
+                        if (result.checksum != best.checksum)
+                        {
+                            failures.add(key + ":  the checksum changed between runs");
+                        }
+                        best.millis = Math.min(best.millis, result.millis);
+                        best.peakHeapBytes = Math.max(best.peakHeapBytes, result.peakHeapBytes);
+                        best.peakDirectBytes = Math.max(best.peakDirectBytes, result.peakDirectBytes);
+                    }
+
+                    final double    seconds = Math.max(1, best.millis) / 1000.0;
+                    System.out.println(String.format("%-16s %10s %-9s %10d %9.2f %10.3f %10d %10d  %08x",
+                            view[0], width + "x" + height, best.tier, best.millis, width * height / seconds / 1e6,
+                            best.iterations / seconds / 1e9, best.peakHeapBytes / MEGABYTE, best.peakDirectBytes / MEGABYTE, best.checksum));
+
+                    measured.setProperty(key + ".checksum", Long.toHexString(best.checksum));
+                    measured.setProperty(key + ".millis", Long.toString(best.millis));
+                    measured.setProperty(key + ".heap", Long.toString(best.peakHeapBytes));
+                    measured.setProperty(key + ".direct", Long.toString(best.peakDirectBytes));
+
+                    final String    baselineChecksum = baseline.getProperty(key + ".checksum");
+                    if (baselineChecksum != null  &&  !baselineChecksum.equals(Long.toHexString(best.checksum)))
+                    {
+                        failures.add(key + ":  checksum " + Long.toHexString(best.checksum) + " differs from the baseline " + baselineChecksum);
+                    }
+
+                    for (String complaint : new String[] { compare("time (ms)", best.millis, baseline.getProperty(key + ".millis"), threshold, TIME_SLACK_MILLIS),
+                                                           compare("peak heap (bytes)", best.peakHeapBytes, baseline.getProperty(key + ".heap"), threshold, HEAP_SLACK_BYTES),
+                                                           compare("peak direct memory (bytes)", best.peakDirectBytes, baseline.getProperty(key + ".direct"),
+                                                                   threshold, DIRECT_SLACK_BYTES) })
+                    {
+                        if (complaint != null)
+                        {
+                            failures.add(key + ":  " + complaint);
+                        }
+                    }
+                }
+            }
+
+            System.out.println();
+            compareFloat(pool, sizes.get(0)[0], sizes.get(0)[1], runs);
+        }
+        catch (Exception e)
+        {
+            System.err.println("The suite could not render:  " + e);
+            System.exit(1);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        System.out.println();
+        if (record)
+        {
+            try (OutputStream out = Files.newOutputStream(baselineFile))
+            {
+                measured.store(out, "Performance baseline, " + execution);
+                System.out.println("Recorded the baseline in " + baselineFile);
+            }
+            catch (IOException e)
+            {
+                System.err.println("The baseline could not be written:  " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        if (!failures.isEmpty())
+        {
+            failures.forEach(System.err::println);
+            System.err.println(failures.size() + " failure(s).");
+            System.exit(1);
+        }
+        if (!record)
+        {
+            System.out.println("All views within " + Math.round(threshold * 100) + " % of the baseline.");
+        }
+    }
+}
@@ -1,196 +1,1329 @@
-package startup;
-
-import java.awt.Graphics;
-import java.awt.Image;
-import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-
-import model.ImageFragment;
-import model.MandelbrotSetComputingThread;
-import view.ErrorMessage;
-import view.GUI;
-
-
-// TODO: Zoom with the scroll-wheel
-
-
-public final class Startup
-{
-    private static final int    DEFAULT_MAX_NUMBER_OF_ITERATIONS = 3000;
-    private static final int    DEFAULT_ZOOM = 400;
-    private static final int    DEFAULT_COLOR_SCHEME = 10;
-    private static final int    NUMBER_OF_RESERVED_CORES = 2;
-
-    private static final String ERROR_MESSAGE = "The program have encountered a critical error " +
-            "and is forced to exit.\n\n\nTechnical information:\n\n";
-
-
-    public static void main(String[] args)
-    {
-        int maxNumberOfIterations = 0;
-        int zoom = 0;
-        int colorScheme = 0;
-
-
-
-        if (args.length != 0  &&  args.length != 3)
-        {
-            System.out.println("ERROR:"); // TODO:
-            System.exit(1);
-        }
-        else if (args.length == 3)
-        {
-            try
-            {
-                maxNumberOfIterations = Integer.parseInt(args[0]);
-            }
-            catch (NumberFormatException e)
-            {
-                System.err.println("Argument" + args[0] + " must be an integer."); // TODO:
-                System.exit(1);
-            }
-
-            try
-            {
-                zoom = Integer.parseInt(args[0]);
-            }
-            catch (NumberFormatException e)
-            {
-                System.err.println("Argument" + args[0] + " must be an integer."); // TODO:
-                System.exit(1);
-            }
-
-            try
-            {
-                colorScheme = Integer.parseInt(args[0]);
-            }
-            catch (NumberFormatException e)
-            {
-                System.err.println("Argument" + args[0] + " must be an integer."); // TODO:
-                System.exit(1);
-            }
-        }
-        else
-        {
-            maxNumberOfIterations = DEFAULT_MAX_NUMBER_OF_ITERATIONS;
-            zoom = DEFAULT_ZOOM;
-            colorScheme = DEFAULT_COLOR_SCHEME;
-        }
-        //========================================================================================================================
-
-
-        // Create the GUI (singleton)
-        final GUI    window = GUI.getInstance();
-
-
-        // Get the number of available processor cores
-        final int     numberOfWorkingThreads = Runtime.getRuntime().availableProcessors() - NUMBER_OF_RESERVED_CORES;
-
-
-        // Define the width of the partitions that the computing threads will be working on
-        final int    partitionWidth = window.getWidth() / numberOfWorkingThreads;
-
-
-
-        // Create a list for managing the computing threads
-        final ArrayList<MandelbrotSetComputingThread>     threadCollection = new ArrayList<MandelbrotSetComputingThread>();
-
-
-        // Initialize all the computing threads and add them to threadCollection
-        for (int i = 0; i < numberOfWorkingThreads; i++)
-        {
-            //final int    startX = 0 + i * partitionWidth;
-            final int    startX = i * partitionWidth;
-            final int    endX   = partitionWidth + partitionWidth  * i;
-
-            final int    id = i + 1;
-            threadCollection.add(new MandelbrotSetComputingThread(id, startX, 0, endX, window.getHeight(), maxNumberOfIterations, zoom));
-        }
-
-
-        // Create a thread pool to handle the computing threads
-        ExecutorService    pool = Executors.newFixedThreadPool(numberOfWorkingThreads);
-
-        List<Future<ImageFragment>>    futureList = null;
-        try
-        {
-            futureList = pool.invokeAll(threadCollection);
-        }
-        catch (Exception e)
-        {
-            // Display an pop-up error message and exit
-            ErrorMessage.show(ERROR_MESSAGE + "Cumputing threads did not execute correctly.");
-            System.exit(0);
-        }
-        pool.shutdown();
-        pool = null;
-        threadCollection.clear();
-        //========================================================================================================================
-
-        if (futureList == null)
-        {
-            // Display an pop-up error message and exit
-            ErrorMessage.show(ERROR_MESSAGE + "Cumputing threads did not execute correctly.");
-            System.exit(0);
-        }
-        else if (futureList.size() != numberOfWorkingThreads)
-        {
-            // Display an pop-up error message and exit
-            ErrorMessage.show(ERROR_MESSAGE + "Cumputing threads did not execute correctly.");
-            System.exit(0);
-        }
-        //System.out.println("futureList.size() = " + futureList.size());
-
-        // The image that will represent the Mandelbrot set
-        final BufferedImage    mandelbrotSetImage = new BufferedImage(window.getWidth(), window.getHeight(), BufferedImage.TYPE_INT_RGB);
-        final Graphics         g = mandelbrotSetImage.getGraphics();
-        boolean                test = false;
-
-        // Merge the image fragments (partitions) to the complete Mandelbrot set image
-        for (int i = 0; i < futureList.size(); i++)
-        {
-            try
-            {
-                final Image   imageFragment = futureList.get(i).get().getFragment();
-                int           x = 0;
-                final int     y = 0;
-
-                if (i == 0)
-                {
-                    x = 0;
-                }
-                else
-                {
-                    x = i * partitionWidth - 1;
-                }
-
-                test = g.drawImage(imageFragment, x, y, null);
-
-                //System.out.println("ID " + futureList.get(i).get().getID() + ":   " + test);
-                System.out.println("X-coordinate:  " + x + ",    Y-coordinate:  " + y + "\n");
-
-            }
-            catch (Exception e)
-            {
-                System.err.println("Image " + (i + 1) + " failed.");
-            }
-        }
-        System.out.println();
-        System.out.println();
-        window.displayImage(mandelbrotSetImage);
-
-
-        g.dispose();
-        futureList.clear();
-        futureList = null;
-
-
-
-        // Suggest to the VM to try and free up unused resources
-        Runtime.getRuntime().gc();
-    }
-}
\ No newline at end of file
+package startup;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Toolkit;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import model.BufferPool;
+import model.BuddhabrotRenderer;
+import model.ComplexNumber;
+import model.CostMap;
+import model.ExecutionBackend;
+import model.ExecutionSettings;
+import model.FocusTileQueue;
+import model.FrameBuffer;
+import model.ImageExporter;
+import model.ImageFragment;
+import model.IterationHistogram;
+import model.IterationSnapshot;
+import model.IterationTuner;
+import model.MandelbrotSetComputingThread;
+import model.MemoryBudget;
+import model.MinibrotLocator;
+import model.MinibrotLocator.Minibrot;
+import model.MipmapPyramid;
+import model.MipmapPyramid.Frame;
+import model.NewtonFractal;
+import model.Palette;
+import model.PrecisionManager;
+import model.PrecisionTier;
+import model.Tile;
+import model.TileScheduler;
+import model.Viewport;
+import model.ViewportRequests;
+import view.ErrorMessage;
+import view.GUI;
+
+
+public final class Startup
+{
+    private static final int    DEFAULT_MAX_NUMBER_OF_ITERATIONS = 3000;
+    private static final int    DEFAULT_ZOOM = 400;
+    private static final int    DEFAULT_COLOR_SCHEME = 10;
+    private static final int    NUMBER_OF_RESERVED_CORES = 2;
+    private static final String AUTO_ITERATIONS = "auto";
+    private static final String OPTION_PREFIX = "--";
+    private static final String COLORING_OPTION = "coloring";
+    private static final String CYCLIC_COLORING = "cyclic";
+    private static final String HISTOGRAM_COLORING = "histogram";
+    private static final String CENTER_X_OPTION = "center-x";
+    private static final String CENTER_Y_OPTION = "center-y";
+    private static final String MODE_OPTION = "mode";
+    private static final String MANDELBROT_MODE = "mandelbrot";
+    private static final String BUDDHABROT_MODE = "buddhabrot";
+    private static final String NEWTON_MODE = "newton";
+    private static final String POLYNOMIAL_OPTION = "polynomial";
+    private static final String DEFAULT_POLYNOMIAL = "1,0,0,-1";
+    private static final String SAMPLES_OPTION = "samples";
+    private static final long   DEFAULT_NUMBER_OF_SAMPLES = 50_000_000;
+    private static final int    BUDDHABROT_MIN_NUMBER_OF_ITERATIONS = 20;
+    private static final String OUTPUT_OPTION = "output";
+    private static final String SIZE_OPTION = "size";
+    private static final String DEFAULT_EXPORT_SIZE = "7680x4320";
+    private static final int    EXPORT_TILE_SIZE = 256;
+    private static final int    PREVIEW_SCALE = 8;
+    private static final int    WARM_UP_TILE_SIZE = 32;
+    private static final String EXPORT_SCALE_OPTION = "export-scale";
+    private static final String DEFAULT_EXPORT_SCALE = "4";
+    private static final String SNAPSHOT_OPTION = "snapshot";
+    private static final int    FOCUS_TILE_SIZE = 64;
+    private static final String TARGET_OPTION = "target";
+    private static final String MINIBROT_TARGET = "minibrot";
+    private static final int    MIN_LOCATOR_ITERATIONS = 10000;
+    private static final String GUESSING_OPTION = "guessing";
+    private static final String GUESSING_ON = "on";
+    private static final String VERIFY_GUESSES_OPTION = "verify-guesses";
+    private static final String PYRAMID_BUDGET_OPTION = "pyramid-mb";
+    private static final String DEFAULT_PYRAMID_BUDGET = "256";
+    private static final double ZOOM_STEP = 2;
+    private static final int    PAN_STEPS_PER_WINDOW = 4;
+    private static final String BACKEND_OPTION = "backend";
+    private static final String DEFAULT_BACKEND = "fixed";
+    private static final String THREADS_OPTION = "threads";
+    private static final String THREAD_PRIORITY_OPTION = "thread-priority";
+    private static final String COMPUTING_THREAD_NAME = "Computing thread";
+    private static final String MEMORY_BUDGET_OPTION = "memory-mb";
+    private static final String FLOAT_OPTION = "float";
+    private static final String FLOAT_ON = "on";
+
+    private static final String ERROR_MESSAGE = "The program have encountered a critical error " +
+            "and is forced to exit.\n\n\nTechnical information:\n\n";
+
+
+    public static void main(String[] args)
+    {
+        final StartupTimer    timer = new StartupTimer();
+        timer.mark("main");
+
+        int maxNumberOfIterations = 0;
+        double zoom = 0;
+        int colorScheme = 0;
+        boolean autoTuneIterations = false;
+
+
+        // Options on the form --name=value may be given anywhere among the arguments
+        final Map<String, String>    options = new HashMap<String, String>();
+        final List<String>           arguments = new ArrayList<String>();
+
+        for (String arg : args)
+        {
+            final int    separator = arg.indexOf('=');
+
+            if (arg.startsWith(OPTION_PREFIX)  &&  separator > 0)
+            {
+                options.put(arg.substring(OPTION_PREFIX.length(), separator), arg.substring(separator + 1));
+            }
+            else
+            {
+                arguments.add(arg);
+            }
+        }
+        args = arguments.toArray(new String[0]);
+
+        final String    coloring = options.getOrDefault(COLORING_OPTION, CYCLIC_COLORING);
+
+        if (!coloring.equals(CYCLIC_COLORING)  &&  !coloring.equals(HISTOGRAM_COLORING))
+        {
+            System.err.println("Unknown coloring \"" + coloring + "\", use " + CYCLIC_COLORING + " or " + HISTOGRAM_COLORING + ".");
+            System.exit(1);
+        }
+
+        final String    mode = options.getOrDefault(MODE_OPTION, MANDELBROT_MODE);
+
+        if (!mode.equals(MANDELBROT_MODE)  &&  !mode.equals(BUDDHABROT_MODE)  &&  !mode.equals(NEWTON_MODE))
+        {
+            System.err.println("Unknown mode \"" + mode + "\", use " + MANDELBROT_MODE + ", " + BUDDHABROT_MODE + " or " + NEWTON_MODE + ".");
+            System.exit(1);
+        }
+
+
+        if (args.length != 0  &&  args.length != 3)
+        {
+            System.out.println("ERROR:"); // TODO:
+            System.exit(1);
+        }
+        else if (args.length == 3)
+        {
+            try
+            {
+                if (args[0].equalsIgnoreCase(AUTO_ITERATIONS))
+                {
+                    // Let the tuner pick the iteration limit for the view
+                    autoTuneIterations = true;
+                    maxNumberOfIterations = DEFAULT_MAX_NUMBER_OF_ITERATIONS;
+                }
+                else
+                {
+                    maxNumberOfIterations = Integer.parseInt(args[0]);
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                System.err.println("Argument" + args[0] + " must be an integer."); // TODO:
+                System.exit(1);
+            }
+
+            try
+            {
+                zoom = Double.parseDouble(args[1]);
+            }
+            catch (NumberFormatException e)
+            {
+                System.err.println("Argument" + args[1] + " must be a number."); // TODO:
+                System.exit(1);
+            }
+
+            try
+            {
+                colorScheme = Integer.parseInt(args[2]);
+            }
+            catch (NumberFormatException e)
+            {
+                System.err.println("Argument" + args[2] + " must be an integer."); // TODO:
+                System.exit(1);
+            }
+        }
+        else
+        {
+            maxNumberOfIterations = DEFAULT_MAX_NUMBER_OF_ITERATIONS;
+            zoom = DEFAULT_ZOOM;
+            colorScheme = DEFAULT_COLOR_SCHEME;
+        }
+        //========================================================================================================================
+
+
+        // The center is given in full precision, so that deep views can be reached from the command line
+        Viewport    viewport = null;
+        try
+        {
+            viewport = Viewport.of(new BigDecimal(options.getOrDefault(CENTER_X_OPTION, "0")),
+                                   new BigDecimal(options.getOrDefault(CENTER_Y_OPTION, "0")), zoom);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println("Invalid view:  " + e.getMessage());
+            System.exit(1);
+        }
+
+
+        final boolean    targetMinibrot = MINIBROT_TARGET.equals(options.get(TARGET_OPTION));
+
+
+        // The float kernel is no faster than the double one on common JVMs, so it is only used when asked for
+        PrecisionManager.setFloatAllowed(FLOAT_ON.equals(options.get(FLOAT_OPTION)));
+
+
+        // Solid guessing fills in uniform blocks; a share of the guesses can be checked to tell how good they are
+        final boolean    solidGuessing = GUESSING_ON.equals(options.get(GUESSING_OPTION));
+        double           verificationShare = -1;
+        try
+        {
+            verificationShare = Double.parseDouble(options.getOrDefault(VERIFY_GUESSES_OPTION, "0"));
+        }
+        catch (NumberFormatException e)
+        {
+            // Reported below
+        }
+
+        if (!(verificationShare >= 0  &&  verificationShare <= 1))
+        {
+            System.err.println("The share of guesses to verify must be between 0 and 1, was \"" + options.get(VERIFY_GUESSES_OPTION) + "\".");
+            System.exit(1);
+        }
+
+
+        // The memory the pyramid of rendered frames may take
+        long    pyramidBudget = 0;
+        try
+        {
+            pyramidBudget = Long.parseLong(options.getOrDefault(PYRAMID_BUDGET_OPTION, DEFAULT_PYRAMID_BUDGET)) << 20;
+        }
+        catch (NumberFormatException e)
+        {
+            // Reported below
+        }
+
+        if (pyramidBudget <= 0)
+        {
+            System.err.println("The memory budget of the pyramid must be a positive number of megabytes, was \""
+                    + options.get(PYRAMID_BUDGET_OPTION) + "\".");
+            System.exit(1);
+        }
+
+
+        // The memory all buffers of renders, caches and exports may take together; half of the heap by default
+        if (options.containsKey(MEMORY_BUDGET_OPTION))
+        {
+            try
+            {
+                MemoryBudget.getInstance().setBudget(Long.parseLong(options.get(MEMORY_BUDGET_OPTION)) << 20);
+            }
+            catch (IllegalArgumentException e)
+            {
+                System.err.println("The memory budget must be a positive number of megabytes, was \""
+                        + options.get(MEMORY_BUDGET_OPTION) + "\".");
+                System.exit(1);
+            }
+        }
+
+
+        // How the computing threads are run; by default a few cores are left to the window, unless there is none
+        ExecutionSettings    execution = null;
+        try
+        {
+            final int    reservedCores = options.containsKey(OUTPUT_OPTION) ? 0 : NUMBER_OF_RESERVED_CORES;
+            final int    defaultNumberOfThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - reservedCores);
+
+            execution = new ExecutionSettings(ExecutionBackend.forName(options.getOrDefault(BACKEND_OPTION, DEFAULT_BACKEND)),
+                    options.containsKey(THREADS_OPTION) ? Integer.parseInt(options.get(THREADS_OPTION)) : defaultNumberOfThreads,
+                    COMPUTING_THREAD_NAME,
+                    options.containsKey(THREAD_PRIORITY_OPTION) ? Integer.parseInt(options.get(THREAD_PRIORITY_OPTION)) : Thread.MAX_PRIORITY);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println("Invalid execution settings:  " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println(execution);
+
+
+        // Render without a window straight into a file, for canvases larger than the screen
+        if (options.containsKey(OUTPUT_OPTION))
+        {
+            exportFrame(Path.of(options.get(OUTPUT_OPTION)), options.getOrDefault(SIZE_OPTION, DEFAULT_EXPORT_SIZE),
+                        viewport, maxNumberOfIterations, autoTuneIterations, targetMinibrot, execution);
+            return;
+        }
+
+
+        // Pick the cheapest arithmetic that resolves neighbouring pixels; the window covers the screen
+        final Dimension           screen = Toolkit.getDefaultToolkit().getScreenSize();
+
+        if (targetMinibrot)
+        {
+            viewport = nearestMinibrot(viewport, maxNumberOfIterations, screen.width, screen.height);
+        }
+
+        final PrecisionManager    precisionManager = new PrecisionManager();
+        final PrecisionTier       tier = precisionManager.select(viewport, screen.width, screen.height, maxNumberOfIterations);
+        System.out.println(precisionManager.report());
+
+
+        // Warm the kernel up on a tiny tile while the window is being realized
+        final MandelbrotSetComputingThread    warmUpTile = new MandelbrotSetComputingThread(0, 0, 0, WARM_UP_TILE_SIZE, WARM_UP_TILE_SIZE,
+                WARM_UP_TILE_SIZE, WARM_UP_TILE_SIZE, viewport, tier, maxNumberOfIterations);
+        final Thread                          warmUp = new Thread(warmUpTile::computeIterations, "Warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
+
+
+        // Create the GUI (singleton)
+        final GUI    window = GUI.getInstance();
+        timer.mark("window visible");
+
+
+        // Reload a saved frame instead of rendering it; it is colored with the options given now
+        final Path    snapshotFile = options.containsKey(SNAPSHOT_OPTION) ? Path.of(options.get(SNAPSHOT_OPTION)) : null;
+
+        if (snapshotFile != null  &&  Files.exists(snapshotFile))
+        {
+            loadSnapshot(window, snapshotFile, coloring, colorScheme, execution);
+            timer.mark("full frame");
+
+            System.out.println(timer.report());
+            return;
+        }
+
+
+        // The Newton fractal has its own iteration, which the tuner knows nothing about
+        if (mode.equals(NEWTON_MODE))
+        {
+            renderNewton(window, viewport, maxNumberOfIterations, options.getOrDefault(POLYNOMIAL_OPTION, DEFAULT_POLYNOMIAL), execution);
+            return;
+        }
+
+
+        // Pick the iteration limit from a low resolution probe of the view; the tuner follows every view navigated to
+        final IterationTuner    tuner = new IterationTuner(maxNumberOfIterations);
+
+        if (autoTuneIterations)
+        {
+            maxNumberOfIterations = tuner.tune(window.getWidth(), window.getHeight(), viewport, tier);
+            System.out.println("Auto-tuned iterations:  " + maxNumberOfIterations + "   (escape fraction " + tuner.getEscapeFraction()
+                    + ", " + tuner.getNumberOfProbes() + " probes)");
+        }
+
+        final int    numberOfWorkingThreads = execution.getNumberOfThreads();
+
+
+        // The Buddhabrot is sampled instead of computed pixel by pixel
+        if (mode.equals(BUDDHABROT_MODE))
+        {
+            renderBuddhabrot(window, viewport, maxNumberOfIterations, options.get(SAMPLES_OPTION), execution);
+            return;
+        }
+
+
+        // The view can be rendered again at a higher resolution when it is exported
+        ImageExporter.getInstance().setExecution(execution.derive("Export thread", Thread.MIN_PRIORITY));
+        try
+        {
+            ImageExporter.getInstance().setScale(Integer.parseInt(options.getOrDefault(EXPORT_SCALE_OPTION, DEFAULT_EXPORT_SCALE)));
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println("Invalid export scale:  " + e.getMessage());
+        }
+        ImageExporter.getInstance().setView(viewport, maxNumberOfIterations);
+
+
+        // Show a low resolution preview right away, scaled up to the whole window
+        showPreview(window, viewport, tier, maxNumberOfIterations);
+        timer.mark("first frame");
+
+
+        // The computing threads of the frame, for the snapshot
+        final List<MandelbrotSetComputingThread>    threadCollection = new ArrayList<MandelbrotSetComputingThread>();
+
+
+        // Create a thread pool to handle the computing threads; it is kept for the views zoomed to later
+        final ExecutorService    pool = execution.newPool();
+
+        // The buffers of the tiles are reused from frame to frame; the pyramid recycles the levels of the frames it evicts
+        final BufferPool       buffers = new BufferPool(MemoryBudget.getInstance());
+
+        // The rendered frames at power-of-two scales, from which zoomed out views are shown at once
+        final MipmapPyramid    pyramid = new MipmapPyramid(pyramidBudget, buffers);
+
+        MemoryBudget.getInstance().addEvictable(pyramid);
+
+        // What the tiles of the last frame cost, to plan the tiles of the next one
+        CostMap    costs = new CostMap(viewport, window.getWidth(), window.getHeight());
+
+        renderFrame(window, pool, numberOfWorkingThreads, viewport, tier, maxNumberOfIterations, coloring,
+                    solidGuessing, verificationShare, pyramid, buffers, null, costs, null, 0, threadCollection);
+        timer.mark("full frame");
+
+        System.out.println();
+        System.out.println(timer.report());
+
+        if (solidGuessing)
+        {
+            System.out.println(reportGuessing(threadCollection));
+        }
+
+
+        // Save the frame, so it can be reloaded instead of rendered the next time
+        if (snapshotFile != null)
+        {
+            saveSnapshot(snapshotFile, threadCollection, viewport, maxNumberOfIterations, window.getWidth(), window.getHeight(), execution);
+        }
+        releaseIterations(buffers, threadCollection);
+
+
+        // Clicking a point looks for the nearest minibrot and tells how to go there
+        final AtomicReference<Viewport>    shownViewport = new AtomicReference<Viewport>(viewport);
+        final int                          iterations = maxNumberOfIterations;
+
+        window.addMouseListener(new MouseAdapter()
+        {
+            @Override
+            public void mouseClicked(final MouseEvent e)
+            {
+                final Minibrot    minibrot = new MinibrotLocator(Math.max(iterations, MIN_LOCATOR_ITERATIONS))
+                        .locate(shownViewport.get(), e.getX(), e.getY(), window.getWidth(), window.getHeight());
+
+                System.out.println((minibrot == null) ? "No minibrot found near the click."
+                        : minibrot + ",  view it with " + describe(minibrot.toViewport(window.getWidth(), window.getHeight())));
+            }
+        });
+
+
+        // Zoom with the scroll wheel; every notch doubles or halves the scale around the middle of the
+        // window, so that a zoomed out view lines up with the levels of the pyramid. A burst of notches
+        // is rendered once, at the view they add up to, and the render in progress is abandoned
+        final ViewportRequests    requests = new ViewportRequests(viewport);
+
+        window.addMouseWheelListener(e -> requests.request(view -> view.zoomedBy(Math.pow(ZOOM_STEP, -e.getWheelRotation()))));
+
+        // Pan with the arrow keys, a quarter of the window per key
+        window.addKeyListener(new KeyAdapter()
+        {
+            @Override
+            public void keyPressed(final KeyEvent e)
+            {
+                final int    width  = window.getWidth();
+                final int    height = window.getHeight();
+                final int    dx = (e.getKeyCode() == KeyEvent.VK_RIGHT ? 1 : 0) - (e.getKeyCode() == KeyEvent.VK_LEFT ? 1 : 0);
+                final int    dy = (e.getKeyCode() == KeyEvent.VK_DOWN  ? 1 : 0) - (e.getKeyCode() == KeyEvent.VK_UP   ? 1 : 0);
+
+                if (dx != 0  ||  dy != 0)
+                {
+                    requests.request(view -> view.centeredAt(width / 2 + dx * width / PAN_STEPS_PER_WINDOW,
+                                                             height / 2 + dy * height / PAN_STEPS_PER_WINDOW, width, height));
+                }
+            }
+        });
+
+        while (true)
+        {
+            final Viewport    next;
+            final long        generation;
+            try
+            {
+                next = requests.take();
+                generation = requests.getTakenGeneration();
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+
+            // The tuner probes with the arithmetic for its current limit, the frame is rendered with the one for the tuned limit
+            final long             start = System.nanoTime();
+            final int              nextIterations = autoTuneIterations ? tuner.tune(window.getWidth(), window.getHeight(), next,
+                    precisionManager.select(next, window.getWidth(), window.getHeight(), tuner.getMaxNumberOfIterations()))
+                    : maxNumberOfIterations;
+            final PrecisionTier    nextTier = precisionManager.select(next, window.getWidth(), window.getHeight(), nextIterations);
+
+            showPreview(window, next, nextTier, nextIterations);
+            ImageExporter.getInstance().setView(next, nextIterations);
+            shownViewport.set(next);
+
+            final List<MandelbrotSetComputingThread>    nextThreads = new ArrayList<MandelbrotSetComputingThread>();
+            final CostMap                               nextCosts = new CostMap(next, window.getWidth(), window.getHeight());
+            final int                                   cachedTiles;
+            try
+            {
+                cachedTiles = renderFrame(window, pool, numberOfWorkingThreads, next, nextTier, nextIterations, coloring, solidGuessing,
+                                          verificationShare, pyramid, buffers, costs, nextCosts, requests.getGenerations(), generation, nextThreads);
+                costs = nextCosts;
+            }
+            catch (CancellationException e)
+            {
+                // The tiles that were done stay on screen and in the pyramid, the next view is taken at once
+                System.out.println(describe(next) + "  superseded after " + (System.nanoTime() - start) / 1_000_000 + " ms,  "
+                        + requests.getCoalesced() + " of " + requests.getRequests() + " requests coalesced so far");
+                continue;
+            }
+            finally
+            {
+                releaseIterations(buffers, nextThreads);
+            }
+
+            System.out.println(describe(next) + "  rendered in " + (System.nanoTime() - start) / 1_000_000 + " ms,  "
+                    + cachedTiles + " tiles from the pyramid (" + pyramid.getNumberOfFrames() + " frames, "
+                    + pyramid.getBytesUsed() / (1 << 20) + " MB)");
+            System.out.println(MemoryBudget.getInstance() + ",  " + buffers.getReuses() + " buffers reused,  "
+                    + buffers.getAllocations() + " allocated");
+        }
+        pool.shutdown();
+    }
+
+
+
+    /*
+     * Shows a view at a fraction of the resolution, scaled up to the whole window, while it is computed.
+     */
+    private static void showPreview(final GUI window, final Viewport viewport, final PrecisionTier tier, final int maxNumberOfIterations)
+    {
+        final int    previewWidth  = (window.getWidth()  + PREVIEW_SCALE - 1) / PREVIEW_SCALE;
+        final int    previewHeight = (window.getHeight() + PREVIEW_SCALE - 1) / PREVIEW_SCALE;
+
+        final MandelbrotSetComputingThread    preview = new MandelbrotSetComputingThread(0, 0, 0, previewWidth, previewHeight,
+                previewWidth, previewHeight, viewport.zoomedBy(1.0 / PREVIEW_SCALE), tier, maxNumberOfIterations);
+
+        window.updateRegion(Palette.toImage(preview.computeIterations(), previewWidth, previewHeight, DEFAULT_COLOR_SCHEME),
+                            0, 0, previewWidth * PREVIEW_SCALE, previewHeight * PREVIEW_SCALE);
+    }
+
+
+
+    /*
+     * Computes a view on the pool and presents every tile as it is done, with the progress of the frame
+     * along the bottom of the window. With cyclic coloring, the tiles come from the pyramid where it covers
+     * the view. The tiles are planned from the costs of the previous frame, if any, and the cost of every
+     * computed tile is recorded. The iteration values are left in pooled buffers, see releaseIterations(),
+     * also when the render is superseded.
+     *
+     * @return the number of tiles taken from the pyramid.
+     *
+     * @throws CancellationException if the generation counter moved on from the generation of the frame.
+     */
+    private static int renderFrame(final GUI window, final ExecutorService pool, final int numberOfWorkingThreads, final Viewport viewport,
+            final PrecisionTier tier, final int maxNumberOfIterations, final String coloring, final boolean solidGuessing,
+            final double verificationShare, final MipmapPyramid pyramid, final BufferPool buffers, final CostMap previousCosts,
+            final CostMap costs, final AtomicLong generations, final long generation, final List<MandelbrotSetComputingThread> threadCollection)
+    {
+        try
+        {
+            if (coloring.equals(HISTOGRAM_COLORING))
+            {
+                // The colors depend on all tiles, so they are computed longest first and colored again once all are counted
+                final List<Tile>    tiles = Tile.split(window.getWidth(), window.getHeight(), FOCUS_TILE_SIZE);
+
+                for (Tile tile : (previousCosts == null) ? tiles
+                        : previousCosts.plan(viewport, window.getWidth(), window.getHeight(), tiles, numberOfWorkingThreads))
+                {
+                    final MandelbrotSetComputingThread    thread = new MandelbrotSetComputingThread(tile.getID() + 1, tile.getStartX(),
+                            tile.getStartY(), tile.getEndX(), tile.getEndY(), window.getWidth(), window.getHeight(), viewport, tier,
+                            maxNumberOfIterations);
+
+                    thread.setSolidGuessing(solidGuessing, verificationShare);
+                    thread.setGeneration(generations, generation);
+                    threadCollection.add(thread);
+                }
+
+                computeWithHistogramColoring(window, pool, threadCollection, maxNumberOfIterations, buffers, costs);
+                return 0;
+            }
+            else
+            {
+                // Compute the tiles nearest to the middle of the window, or to the cursor, first and present each over the preview
+                return computeByFocus(window, pool, numberOfWorkingThreads, viewport, tier, maxNumberOfIterations, solidGuessing,
+                                      verificationShare, pyramid, buffers, previousCosts, costs, generations, generation, threadCollection);
+            }
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof CancellationException)
+            {
+                throw (CancellationException) e.getCause();
+            }
+
+            ErrorMessage.show(ERROR_MESSAGE + "Cumputing threads did not execute correctly.");
+            System.exit(0);
+            return 0;
+        }
+        catch (Exception e)
+        {
+            // Display an pop-up error message and exit
+            ErrorMessage.show(ERROR_MESSAGE + "Cumputing threads did not execute correctly.");
+            System.exit(0);
+            return 0;
+        }
+        finally
+        {
+            window.setProgress(0, 0);
+        }
+    }
+
+
+
+    /*
+     * Gives the iteration values of the computing threads of a frame back to the pool, once the frame is
+     * shown and saved.
+     */
+    private static void releaseIterations(final BufferPool buffers, final List<MandelbrotSetComputingThread> threadCollection)
+    {
+        for (MandelbrotSetComputingThread thread : threadCollection)
+        {
+            if (thread.getLastIterations() != null)
+            {
+                buffers.give(thread.getLastIterations());
+            }
+        }
+        threadCollection.clear();
+    }
+
+
+
+    /*
+     * Returns the view of the minibrot nearest to the center of a view, or the view itself if there is none.
+     */
+    private static Viewport nearestMinibrot(final Viewport viewport, final int maxNumberOfIterations, final int width, final int height)
+    {
+        final long        start = System.nanoTime();
+        final Minibrot    minibrot = new MinibrotLocator(Math.max(maxNumberOfIterations, MIN_LOCATOR_ITERATIONS))
+                .locate(viewport, width / 2, height / 2, width, height);
+
+        if (minibrot == null)
+        {
+            System.err.println("No minibrot found near " + viewport + ".");
+            return viewport;
+        }
+
+        System.out.println(minibrot + ",  found in " + (System.nanoTime() - start) / 1000 + " us");
+        return minibrot.toViewport(width, height);
+    }
+
+
+
+    // The options that show a view
+    private static String describe(final Viewport viewport)
+    {
+        return OPTION_PREFIX + CENTER_X_OPTION + "=" + viewport.getCenterX() + " " + OPTION_PREFIX + CENTER_Y_OPTION + "=" + viewport.getCenterY()
+                + " and zoom " + BigDecimal.ONE.divide(viewport.getPixelSpacing(), MathContext.DECIMAL64);
+    }
+
+
+
+    /*
+     * Reads a snapshot and shows it, scaled to the window if it was saved at another size.
+     */
+    private static void loadSnapshot(final GUI window, final Path file, final String coloring, final int colorScheme,
+                                     final ExecutionSettings execution)
+    {
+        final ExecutorService    pool = execution.newPool();
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file)))
+        {
+            final long                 start = System.nanoTime();
+            final IterationSnapshot    snapshot = IterationSnapshot.read(in, pool);
+            final float[]              iterations = snapshot.getIterations();
+            BufferedImage              image = null;
+
+            if (coloring.equals(HISTOGRAM_COLORING))
+            {
+                final IterationHistogram    histogram = new IterationHistogram(snapshot.getMaxNumberOfIterations());
+
+                histogram.count(iterations);
+                histogram.merge(pool);
+
+                image = Palette.toImage(iterations, snapshot.getWidth(), snapshot.getHeight(), histogram);
+            }
+            else
+            {
+                image = Palette.toImage(iterations, snapshot.getWidth(), snapshot.getHeight(), colorScheme);
+            }
+
+            window.updateRegion(image, 0, 0, window.getWidth(), window.getHeight());
+            ImageExporter.getInstance().setView(snapshot.getViewport(), snapshot.getMaxNumberOfIterations());
+
+            System.out.println("Loaded snapshot of " + snapshot.getViewport() + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        catch (IOException | InterruptedException e)
+        {
+            ErrorMessage.show(ERROR_MESSAGE + "The snapshot " + file + " could not be loaded:  " + e.getMessage());
+            System.exit(0);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+
+
+    /*
+     * Puts the iteration values of the partitions together and writes them as a snapshot.
+     */
+    private static void saveSnapshot(final Path file, final List<MandelbrotSetComputingThread> threadCollection, final Viewport viewport,
+                                     final int maxNumberOfIterations, final int width, final int height, final ExecutionSettings execution)
+    {
+        final float[]    iterations = new float[width * height];
+
+        for (MandelbrotSetComputingThread thread : threadCollection)
+        {
+            final float[]    partition = thread.getLastIterations();
+
+            for (int y = 0; y < thread.getHeight(); y++)
+            {
+                System.arraycopy(partition, y * thread.getWidth(), iterations, (thread.getStartY() + y) * width + thread.getStartX(), thread.getWidth());
+            }
+        }
+
+        final ExecutorService    pool = execution.newPool();
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file)))
+        {
+            final long    start = System.nanoTime();
+
+            new IterationSnapshot(viewport, maxNumberOfIterations, width, height, iterations).write(out, pool);
+            out.flush();
+
+            System.out.println("Saved snapshot " + file + " (" + Files.size(file) / 1024 + " KiB) in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        catch (IOException | InterruptedException e)
+        {
+            System.err.println("The snapshot " + file + " could not be saved:  " + e);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+
+
+    /*
+     * Computes the frame in tiles on all working threads, always taking the tile nearest to the focus: the
+     * cursor while it is in the window, the middle of the window otherwise. Every tile is presented as
+     * soon as it is done. Once the generation counter moves on, the tiles in progress stop at the next
+     * row and no more are taken; the tiles that are done stay in the frame of the pyramid. <br>
+     * The tiles that were expensive in the previous frame are cut into pieces, so that no thread is left
+     * with one at the end of the frame, and taken longest first while the cursor is outside of the window;
+     * the pieces of a tile are put together before it is added to the frame of the pyramid.
+     */
+    private static int computeByFocus(final GUI window, final ExecutorService pool, final int numberOfWorkingThreads, final Viewport viewport,
+            final PrecisionTier tier, final int maxNumberOfIterations, final boolean solidGuessing, final double verificationShare,
+            final MipmapPyramid pyramid, final BufferPool buffers, final CostMap previousCosts, final CostMap costs, final AtomicLong generations,
+            final long generation, final List<MandelbrotSetComputingThread> threadCollection) throws Exception
+    {
+        final int    width  = window.getWidth();
+        final int    height = window.getHeight();
+
+
+        // Draw what the pyramid holds of the view; the tiles it covers are taken from it instead of computed
+        final BufferedImage    cachedImage = buffers.takeImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final int[]            cached = ((DataBufferInt) cachedImage.getRaster().getDataBuffer()).getData();
+        final BitSet           coveredTiles = pyramid.preview(viewport, width, height, cached, FOCUS_TILE_SIZE);
+        final Frame            frame = pyramid.add(viewport, width, height, FOCUS_TILE_SIZE);
+        final List<Tile>       grid = Tile.split(width, height, FOCUS_TILE_SIZE);
+        final List<Tile>       tiles = new ArrayList<Tile>();
+
+        window.updateRegion(cachedImage, 0, 0);
+        for (Tile tile : grid)
+        {
+            if (!coveredTiles.get(tile.getID()))
+            {
+                tiles.add(tile);
+            }
+            else if (frame != null)
+            {
+                frame.addTile(tile, cached, tile.getStartY() * width + tile.getStartX(), width);
+            }
+        }
+        buffers.give(cachedImage);
+
+
+        // The colors of a tile that is cut into pieces are put together here, and the number of its pieces left
+        final List<Tile>            pieces = (previousCosts == null) ? tiles : previousCosts.plan(viewport, width, height, tiles, numberOfWorkingThreads);
+        final int[][]               assembled = new int[grid.size()][];
+        final AtomicIntegerArray    piecesLeft = new AtomicIntegerArray(grid.size());
+        final AtomicInteger         piecesDone = new AtomicInteger();
+
+        for (Tile piece : pieces)
+        {
+            piecesLeft.incrementAndGet(piece.getID());
+        }
+        for (Tile tile : tiles)
+        {
+            if (frame != null  &&  piecesLeft.get(tile.getID()) > 1)
+            {
+                assembled[tile.getID()] = buffers.takeInts(tile.getPixelCount());
+            }
+        }
+
+        // A planned frame is computed longest first, unless the cursor points at a part of it
+        final Point             cursor = window.getMousePosition();
+        final FocusTileQueue    queue = (cursor == null  &&  previousCosts != null) ? new FocusTileQueue(pieces)
+                : new FocusTileQueue(pieces, (cursor == null) ? width / 2.0 : cursor.x, (cursor == null) ? height / 2.0 : cursor.y);
+
+        final MouseAdapter    focus = new MouseAdapter()
+        {
+            @Override
+            public void mouseMoved(final MouseEvent e)
+            {
+                queue.setFocus(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseExited(final MouseEvent e)
+            {
+                queue.setFocus(width / 2.0, height / 2.0);
+            }
+        };
+        window.addMouseMotionListener(focus);
+        window.addMouseListener(focus);
+
+        final List<Callable<Void>>    workers = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < numberOfWorkingThreads; i++)
+        {
+            workers.add(() ->
+            {
+                // Every worker draws its tiles from one image; the window copies a tile before it returns
+                final BufferedImage    image = buffers.takeImage(FOCUS_TILE_SIZE, FOCUS_TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+
+                try
+                {
+                    for (Tile tile = queue.poll(); tile != null; tile = queue.poll())
+                    {
+                        final MandelbrotSetComputingThread    thread = new MandelbrotSetComputingThread(tile.getID() + 1, tile.getStartX(),
+                                tile.getStartY(), tile.getEndX(), tile.getEndY(), width, height, viewport, tier, maxNumberOfIterations);
+
+                        thread.setSolidGuessing(solidGuessing, verificationShare);
+                        thread.setGeneration(generations, generation);
+                        synchronized (threadCollection)
+                        {
+                            threadCollection.add(thread);
+                        }
+
+                        final long       start = System.nanoTime();
+                        final float[]    iterations = thread.computeIterations(buffers.takeFloats(tile.getPixelCount()));
+
+                        costs.record(tile, System.nanoTime() - start);
+
+                        final int[]      colors = Palette.toRGB(iterations, DEFAULT_COLOR_SCHEME, buffers.takeInts(tile.getPixelCount()));
+
+                        image.setRGB(0, 0, tile.getWidth(), tile.getHeight(), colors, 0, tile.getWidth());
+                        window.updateRegion(image.getSubimage(0, 0, tile.getWidth(), tile.getHeight()), tile.getStartX(), tile.getStartY());
+                        window.setProgress(piecesDone.incrementAndGet(), pieces.size());
+
+                        // The levels within the tile are built here, on the computing thread that does its last piece
+                        if (frame != null)
+                        {
+                            addPiece(frame, grid.get(tile.getID()), tile, colors, assembled, piecesLeft, buffers);
+                        }
+                        buffers.give(colors);
+                    }
+                }
+                finally
+                {
+                    buffers.give(image);
+                }
+                return null;
+            });
+        }
+
+        window.setProgress(0, pieces.size());
+        try
+        {
+            for (Future<Void> worker : pool.invokeAll(workers))
+            {
+                worker.get();
+            }
+        }
+        finally
+        {
+            window.removeMouseMotionListener(focus);
+            window.removeMouseListener(focus);
+
+            // The tiles of a superseded frame that were not put together
+            for (int[] colors : assembled)
+            {
+                if (colors != null)
+                {
+                    buffers.give(colors);
+                }
+            }
+        }
+
+        if (frame != null)
+        {
+            frame.complete();
+        }
+        return coveredTiles.cardinality();
+    }
+
+
+
+    /*
+     * Adds a computed piece of a tile to the frame of the pyramid. A tile that is not cut is added at
+     * once; the pieces of a tile are copied together, and the tile is added with its last piece.
+     */
+    private static void addPiece(final Frame frame, final Tile tile, final Tile piece, final int[] colors, final int[][] assembled,
+                                 final AtomicIntegerArray piecesLeft, final BufferPool buffers)
+    {
+        if (assembled[tile.getID()] == null)
+        {
+            frame.addTile(tile, colors, 0, tile.getWidth());
+            return;
+        }
+
+        final int[]    tileColors = assembled[tile.getID()];
+
+        for (int y = 0; y < piece.getHeight(); y++)
+        {
+            System.arraycopy(colors, y * piece.getWidth(), tileColors,
+                             (piece.getStartY() - tile.getStartY() + y) * tile.getWidth() + piece.getStartX() - tile.getStartX(), piece.getWidth());
+        }
+
+        // The decrement orders the copies of the other pieces before the tile is added
+        if (piecesLeft.decrementAndGet(tile.getID()) == 0)
+        {
+            frame.addTile(tile, tileColors, 0, tile.getWidth());
+            assembled[tile.getID()] = null;
+            buffers.give(tileColors);
+        }
+    }
+
+
+
+    /*
+     * Sums up the solid guessing of the computing threads of a frame: the share of the pixels that were
+     * filled in, and how many of the checked guesses were wrong.
+     */
+    private static String reportGuessing(final List<MandelbrotSetComputingThread> threadCollection)
+    {
+        long     computed = 0;
+        long     guessed = 0;
+        long     verified = 0;
+        long     wrong = 0;
+        float    maxError = 0;
+
+        for (MandelbrotSetComputingThread thread : threadCollection)
+        {
+            computed += thread.getComputedPixels();
+            guessed += thread.getGuessedPixels();
+            verified += thread.getVerifiedPixels();
+            wrong += thread.getWrongGuesses();
+            maxError = Math.max(maxError, thread.getMaxGuessError());
+        }
+
+        final long    total = computed + guessed;
+        String        report = String.format("Solid guessing:  %.1f %% of %d pixels guessed", 100.0 * guessed / Math.max(1, total), total);
+
+        if (verified > 0)
+        {
+            report += String.format(",  %d checked, %d wrong (%.2f %%), largest error %.2f iterations",
+                                    verified, wrong, 100.0 * wrong / verified, maxError);
+        }
+
+        return report;
+    }
+
+
+
+    /*
+     * Hands a finished tile to the window, only the part of the screen it covers is redrawn.
+     */
+    private static void presentFragment(final GUI window, final ImageFragment fragment, final MandelbrotSetComputingThread thread)
+    {
+        window.updateRegion(fragment.getFragment(), thread.getStartX(), thread.getStartY());
+    }
+
+
+
+    /*
+     * Presents the fragments of tasks in the order they are done, and counts them into the progress of
+     * the frame. The ID of a fragment is the index of its partition. If a task fails, the others are
+     * waited for before the failure is thrown, so that no pooled buffer is given back while a task
+     * still writes to it.
+     */
+    private static void presentAsDone(final GUI window, final CompletionService<ImageFragment> completion, final int numberOfTasks,
+            final List<MandelbrotSetComputingThread> threadCollection, final BufferPool buffers, final int done, final int total)
+            throws InterruptedException, ExecutionException
+    {
+        int    taken = 0;
+
+        try
+        {
+            for (; taken < numberOfTasks; taken++)
+            {
+                final ImageFragment    fragment = completion.take().get();
+
+                presentFragment(window, fragment, threadCollection.get(fragment.getID()));
+                buffers.give(fragment.getFragment());
+                window.setProgress(done + taken + 1, total);
+            }
+        }
+        catch (ExecutionException e)
+        {
+            for (taken++; taken < numberOfTasks; taken++)
+            {
+                try
+                {
+                    buffers.give(completion.take().get().getFragment());
+                }
+                catch (ExecutionException other)
+                {
+                    // Superseded or failed as well
+                }
+            }
+            throw e;
+        }
+    }
+
+
+
+    // Colors a partition into an image from the buffer pool, as the fragment of the partition with an index
+    private static ImageFragment toFragment(final int index, final MandelbrotSetComputingThread thread, final int[] colors, final BufferPool buffers)
+    {
+        final BufferedImage    image = buffers.takeImage(thread.getWidth(), thread.getHeight(), BufferedImage.TYPE_INT_RGB);
+
+        image.setRGB(0, 0, thread.getWidth(), thread.getHeight(), colors, 0, thread.getWidth());
+        buffers.give(colors);
+        return new ImageFragment(index, image);
+    }
+
+
+
+    /*
+     * Samples the Buddhabrot of the view on all working threads, showing the progress in the window.
+     */
+    private static void renderBuddhabrot(final GUI window, final Viewport viewport, final int maxNumberOfIterations,
+                                         final String samples, final ExecutionSettings execution)
+    {
+        long    numberOfSamples = DEFAULT_NUMBER_OF_SAMPLES;
+        try
+        {
+            numberOfSamples = (samples == null) ? numberOfSamples : Long.parseLong(samples);
+        }
+        catch (NumberFormatException e)
+        {
+            System.err.println("The number of samples must be an integer.");
+            System.exit(1);
+        }
+
+        final BuddhabrotRenderer    renderer = new BuddhabrotRenderer(window.getWidth(), window.getHeight(), viewport,
+                maxNumberOfIterations, BUDDHABROT_MIN_NUMBER_OF_ITERATIONS);
+        final ExecutorService       pool = execution.newPool();
+
+        try
+        {
+            final long    start = System.nanoTime();
+            renderer.render(numberOfSamples, pool, execution.getNumberOfThreads(), window::displayImage);
+            final double  seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println("Buddhabrot:  " + renderer.getSamplesTaken() + " samples in " + Math.round(seconds * 10) / 10.0
+                    + " s,  " + Math.round(renderer.getSamplesTaken() / seconds) + " samples/s");
+        }
+        catch (InterruptedException e)
+        {
+            ErrorMessage.show(ERROR_MESSAGE + "Cumputing threads did not execute correctly.");
+            System.exit(0);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+
+
+    /*
+     * Renders the Newton fractal of a polynomial, given by its real coefficients highest degree first, on
+     * the tile scheduler, presenting every tile as it is done.
+     */
+    private static void renderNewton(final GUI window, final Viewport viewport, final int maxNumberOfIterations,
+                                     final String polynomial, final ExecutionSettings execution)
+    {
+        final String[]           fields = polynomial.split(",");
+        final ComplexNumber[]    coefficients = new ComplexNumber[fields.length];
+        NewtonFractal            fractal = null;
+        try
+        {
+            for (int k = 0; k < fields.length; k++)
+            {
+                coefficients[k] = new ComplexNumber(Double.parseDouble(fields[k].trim()), 0);
+            }
+            fractal = new NewtonFractal(coefficients);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println("The polynomial must be given by its coefficients, highest degree first, e.g. "
+                    + DEFAULT_POLYNOMIAL + " for z^3 - 1, was \"" + polynomial + "\":  " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println(fractal);
+
+        final NewtonFractal    newton = fractal;
+        final int              width  = window.getWidth();
+        final int              height = window.getHeight();
+        final BufferPool       buffers = new BufferPool(MemoryBudget.getInstance());
+        final TileScheduler    scheduler = new TileScheduler(execution);
+        final AtomicLong       steps = new AtomicLong();
+        final long             start = System.nanoTime();
+
+        try
+        {
+            scheduler.submit(Tile.split(width, height, FOCUS_TILE_SIZE), tile ->
+            {
+                final int[]            rgb = buffers.takeInts(tile.getPixelCount());
+                final BufferedImage    image = buffers.takeImage(tile.getWidth(), tile.getHeight(), BufferedImage.TYPE_INT_RGB);
+
+                steps.addAndGet(newton.render(tile, width, height, viewport, maxNumberOfIterations, rgb));
+                image.setRGB(0, 0, tile.getWidth(), tile.getHeight(), rgb, 0, tile.getWidth());
+                window.updateRegion(image, tile.getStartX(), tile.getStartY());
+
+                buffers.give(rgb);
+                buffers.give(image);
+            }, 1).join();
+
+            System.out.println("Newton fractal:  " + steps.get() + " steps in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        catch (CompletionException e)
+        {
+            ErrorMessage.show(ERROR_MESSAGE + "Cumputing threads did not execute correctly.");
+            System.exit(0);
+        }
+        finally
+        {
+            scheduler.shutdown();
+        }
+    }
+
+
+
+    /*
+     * Renders the view tile by tile into a frame buffer mapped onto the output file. Every tile writes
+     * its colors into its own slice of the buffer, so no pixel is copied on the heap. A PNG file is
+     * rendered band by band instead, and compressed on all cores while the next band is rendered.
+     */
+    private static void exportFrame(final Path output, final String size, final Viewport requestedViewport, int maxNumberOfIterations,
+                                    final boolean autoTuneIterations, final boolean targetMinibrot, final ExecutionSettings execution)
+    {
+        final int    separator = size.indexOf('x');
+        int          width = 0;
+        int          height = 0;
+        try
+        {
+            width = Integer.parseInt(size.substring(0, separator));
+            height = Integer.parseInt(size.substring(separator + 1));
+        }
+        catch (NumberFormatException | IndexOutOfBoundsException e)
+        {
+            System.err.println("The size must be given as <width>x<height>, was \"" + size + "\".");
+            System.exit(1);
+        }
+
+        final Viewport            viewport = targetMinibrot ? nearestMinibrot(requestedViewport, maxNumberOfIterations, width, height) : requestedViewport;
+        final PrecisionManager    precisionManager = new PrecisionManager();
+        final PrecisionTier       tier = precisionManager.select(viewport, width, height, maxNumberOfIterations);
+        System.out.println(precisionManager.report());
+
+        if (autoTuneIterations)
+        {
+            maxNumberOfIterations = new IterationTuner(maxNumberOfIterations).tune(width, height, viewport, tier);
+            System.out.println("Auto-tuned iterations:  " + maxNumberOfIterations);
+        }
+
+        if (output.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".png"))
+        {
+            try
+            {
+                final long               start = System.nanoTime();
+                final ExecutorService    pool = execution.newPool();
+
+                try
+                {
+                    ImageExporter.renderPng(viewport, width, height, maxNumberOfIterations, output.toFile(), pool, execution.getNumberOfThreads());
+                }
+                finally
+                {
+                    pool.shutdownNow();
+                }
+                System.out.println("Exported " + width + " x " + height + " to " + output + " in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+            catch (IOException | RuntimeException e)
+            {
+                System.err.println("Export to " + output + " failed:  " + e);
+                System.exit(1);
+            }
+            return;
+        }
+
+        final int                maxIterations = maxNumberOfIterations;
+        final ExecutorService    pool = execution.newPool();
+        try
+        {
+            final long           start = System.nanoTime();
+            final FrameBuffer    frame = FrameBuffer.map(output, width, height);
+            final List<Callable<Void>>    tasks = new ArrayList<Callable<Void>>();
+
+            for (Tile tile : Tile.split(width, height, EXPORT_TILE_SIZE))
+            {
+                final MandelbrotSetComputingThread    thread = new MandelbrotSetComputingThread(tile.getID(),
+                        tile.getStartX(), tile.getStartY(), tile.getEndX(), tile.getEndY(), width, height, viewport, tier, maxIterations);
+
+                tasks.add(() ->
+                {
+                    thread.renderInto(frame.slice(tile));
+                    return null;
+                });
+            }
+
+            for (Future<Void> future : pool.invokeAll(tasks))
+            {
+                future.get();
+            }
+            frame.force();
+
+            System.out.println("Exported " + width + " x " + height + " to " + output + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        catch (Exception e)
+        {
+            System.err.println("Export to " + output + " failed:  " + e);
+            System.exit(1);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+
+
+    /*
+     * Computes the iteration values of all partitions while counting them into a histogram, and presents
+     * every partition as soon as it is computed, in the cyclic colors for now. Once all are counted, the
+     * histogram is merged and the partitions are colored from it and presented again, also as they are
+     * done. Both passes run on the pool, and the time of every partition is recorded into the costs; the
+     * images of the partitions are taken from the buffer pool, and given back once they are presented.
+     */
+    private static void computeWithHistogramColoring(final GUI window, final ExecutorService pool,
+            final List<MandelbrotSetComputingThread> threadCollection, final int maxNumberOfIterations, final BufferPool buffers,
+            final CostMap costs) throws Exception
+    {
+        final IterationHistogram                  histogram = new IterationHistogram(maxNumberOfIterations);
+        final CompletionService<ImageFragment>    kernels = new ExecutorCompletionService<ImageFragment>(pool);
+        final CompletionService<ImageFragment>    colorings = new ExecutorCompletionService<ImageFragment>(pool);
+        final int                                 numberOfPartitions = threadCollection.size();
+
+        for (int i = 0; i < numberOfPartitions; i++)
+        {
+            final int                             index = i;
+            final MandelbrotSetComputingThread    thread = threadCollection.get(i);
+
+            thread.setHistogram(histogram);
+            kernels.submit(() ->
+            {
+                final long       start = System.nanoTime();
+                final float[]    iterations = thread.computeIterations(buffers.takeFloats(thread.getWidth() * thread.getHeight()));
+
+                costs.record(new Tile(thread.getID(), thread.getStartX(), thread.getStartY(), thread.getStartX() + thread.getWidth(),
+                                      thread.getStartY() + thread.getHeight()), System.nanoTime() - start);
+                return toFragment(index, thread, Palette.toRGB(iterations, DEFAULT_COLOR_SCHEME, buffers.takeInts(iterations.length)), buffers);
+            });
+        }
+        presentAsDone(window, kernels, numberOfPartitions, threadCollection, buffers, 0, 2 * numberOfPartitions);
+
+        histogram.merge(pool);
+
+        for (int i = 0; i < numberOfPartitions; i++)
+        {
+            final int                             index = i;
+            final MandelbrotSetComputingThread    thread = threadCollection.get(i);
+            final float[]                         iterations = thread.getLastIterations();
+
+            colorings.submit(() -> toFragment(index, thread, Palette.toRGB(iterations, histogram, buffers.takeInts(iterations.length)), buffers));
+        }
+        presentAsDone(window, colorings, numberOfPartitions, threadCollection, buffers, numberOfPartitions, 2 * numberOfPartitions);
+    }
+}
@@ -0,0 +1,47 @@
+package startup;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/*
+ * Records the wall clock time of the milestones of a start, measured from the start of the JVM.
+ */
+final class StartupTimer
+{
+    private final long            jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final List<String>    milestones = new ArrayList<String>();
+    private final List<Long>      millis = new ArrayList<Long>();
+
+
+
+    void mark(final String milestone)
+    {
+        milestones.add(milestone);
+        millis.add(System.currentTimeMillis() - jvmStartMillis);
+    }
+
+
+
+    /*
+     * E.g. "JVM start -> main 85 ms -> window visible 240 ms (+155) -> ..."
+     */
+    String report()
+    {
+        final StringBuilder    report = new StringBuilder("Startup:  JVM start");
+        long                   previous = 0;
+
+        for (int i = 0; i < milestones.size(); i++)
+        {
+            report.append(" -> ").append(milestones.get(i)).append(' ').append(millis.get(i)).append(" ms");
+            if (i > 0)
+            {
+                report.append(" (+").append(millis.get(i) - previous).append(')');
+            }
+            previous = millis.get(i);
+        }
+
+        return report.toString();
+    }
+}
@@ -1,7 +1,7 @@
-package view;
-
-// TODO: Might not be needed as a separate class?
-public class About
-{
-
-}
\ No newline at end of file
+package view;
+
+// TODO: Might not be needed as a separate class?
+public class About
+{
+
+}
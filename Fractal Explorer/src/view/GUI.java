@@ -1,91 +1,352 @@
-package view;
-import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Toolkit;
-import java.awt.image.BufferedImage;
-
-import javax.swing.JFrame;
-
-import model.KeyboardListener;
-
-
-public final class GUI extends JFrame
-{
-    // Singleton instance
-    private static final GUI    INSTANCE = new GUI();
-
-    // Constants
-    private static final long      serialVersionUID     = 1180142671526360527L;
-    private static final String    WINDOW_TITLE         = "Mandelbrot Set Explorer";
-    private static final int       LOADING_SCREEN_COLOR = 0;
-    private static final int       START_X_COORDINATE   = 0;
-    private static final int       START_Y_COORDINATE   = 0;
-
-
-    // The image that will represent the Mandelbrot set
-    private BufferedImage    image;
-
-    // Loading-screen image
-    private BufferedImage    loadingScreenImage;
-
-
-    // Hidden constructor
-    private GUI()
-    {
-        super(WINDOW_TITLE);
-
-
-        // Get screen resolution
-        final Toolkit    toolkit  = Toolkit.getDefaultToolkit();
-        final int    screenWidth  = (int) toolkit.getScreenSize().getWidth();
-        final int    screenHeight = (int) toolkit.getScreenSize().getHeight();
-
-        loadingScreenImage = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_RGB);
-
-
-        // Create a black image, used as "loading screen"
-        for (int x = 0; x < screenWidth; x++)
-        {
-            for (int y = 0; y < screenHeight; y++)
-            {
-                loadingScreenImage.setRGB(x, y, LOADING_SCREEN_COLOR);
-            }
-        }
-        image = loadingScreenImage;
-
-
-        // Window properties
-        setBounds(START_X_COORDINATE, START_Y_COORDINATE, screenWidth, screenHeight);
-        getContentPane().setBackground(Color.BLACK);
-        setAlwaysOnTop(false);
-        setUndecorated(true);
-        setVisible(true);
-        setFocusable(true);
-
-        // Listeners
-        addKeyListener(new KeyboardListener());
-    }
-
-
-
-    // Thread-safe
-    public static GUI getInstance()
-    {
-        return INSTANCE;
-    }
-
-
-    public void displayImage(final BufferedImage image)
-    {
-        this.image = image;
-        this.repaint();
-    }
-
-
-
-    @Override
-    public void paint(final Graphics g)
-    {
-        g.drawImage(image, START_X_COORDINATE, START_Y_COORDINATE, this);
-    }
-}
\ No newline at end of file
+package view;
+import java.awt.BufferCapabilities;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.ImageCapabilities;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+
+import javax.swing.JFrame;
+
+import model.KeyboardListener;
+
+
+public final class GUI extends JFrame
+{
+    // Singleton instance
+    private static final GUI    INSTANCE = new GUI();
+
+    // Constants
+    private static final long      serialVersionUID     = 1180142671526360527L;
+    private static final String    WINDOW_TITLE         = "Mandelbrot Set Explorer";
+    private static final int       START_X_COORDINATE   = 0;
+    private static final int       START_Y_COORDINATE   = 0;
+    private static final int       DIRTY_TILE_SIZE      = 64;
+    private static final long      FRAME_INTERVAL_MS    = 16;
+    private static final int       NUMBER_OF_BUFFERS    = 2;
+    private static final int       PROGRESS_BAR_HEIGHT  = 4;
+    private static final Color     PROGRESS_BAR_COLOR   = Color.WHITE;
+
+
+    // Everything drawn so far (allocated on first use), the tiles that changed since the last present, and the strategy they are presented with
+    private final Object           lock = new Object();
+    private final int              screenWidth;
+    private final int              screenHeight;
+    private BufferedImage          canvas;
+    private final BitSet           dirtyTiles = new BitSet();
+    private final int              tileColumns;
+    private final int              tileRows;
+    private BufferStrategy         strategy;
+    private int                    lastPresentedTiles;
+    private int                    progressBarWidth;
+
+
+    // Hidden constructor
+    private GUI()
+    {
+        super(WINDOW_TITLE);
+
+
+        // Get screen resolution
+        final Toolkit    toolkit  = Toolkit.getDefaultToolkit();
+        screenWidth  = (int) toolkit.getScreenSize().getWidth();
+        screenHeight = (int) toolkit.getScreenSize().getHeight();
+
+        // The black background of the window is the loading screen, the canvas is only allocated once something is drawn
+        tileColumns = (screenWidth  + DIRTY_TILE_SIZE - 1) / DIRTY_TILE_SIZE;
+        tileRows    = (screenHeight + DIRTY_TILE_SIZE - 1) / DIRTY_TILE_SIZE;
+
+
+        // Window properties
+        setBounds(START_X_COORDINATE, START_Y_COORDINATE, screenWidth, screenHeight);
+        getContentPane().setBackground(Color.BLACK);
+        setAlwaysOnTop(false);
+        setUndecorated(true);
+        setVisible(true);
+        setFocusable(true);
+
+        // Listeners
+        addKeyListener(new KeyboardListener());
+
+
+        // Present from our own thread instead of waiting for repaint events
+        setIgnoreRepaint(true);
+        createStrategy();
+
+        final Thread    presenter = new Thread(this::presentLoop, "Presenter");
+        presenter.setDaemon(true);
+        presenter.start();
+    }
+
+
+
+    /*
+     * Prefers a strategy that keeps the back buffer after showing it, so that only the dirty tiles need
+     * to be drawn into it. Strategies that do not keep it get the whole canvas on every present.
+     */
+    private void createStrategy()
+    {
+        try
+        {
+            createBufferStrategy(NUMBER_OF_BUFFERS, new BufferCapabilities(new ImageCapabilities(true), new ImageCapabilities(true),
+                                                                           BufferCapabilities.FlipContents.COPIED));
+        }
+        catch (Exception e)
+        {
+            createBufferStrategy(NUMBER_OF_BUFFERS);
+        }
+        strategy = getBufferStrategy();
+    }
+
+
+
+    // Thread-safe
+    public static GUI getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Replaces everything on screen with an image.
+     *
+     * @param image - the image.
+     */
+    public void displayImage(final BufferedImage image)
+    {
+        updateRegion(image, START_X_COORDINATE, START_Y_COORDINATE);
+    }
+
+
+
+    /**
+     * Draws an image, e.g. a finished tile, onto the screen. Only the tiles of the screen it covers are
+     * presented again, so the cost of an update depends on its size and not on the size of the screen.
+     * May be called from any thread.
+     *
+     * @param region - the image.
+     * @param x - the column of its left edge on the screen.
+     * @param y - the row of its top edge on the screen.
+     */
+    public void updateRegion(final Image region, final int x, final int y)
+    {
+        updateRegion(region, x, y, region.getWidth(null), region.getHeight(null));
+    }
+
+
+
+    /**
+     * Draws an image scaled to a rectangle of the screen, e.g. a low resolution preview.
+     *
+     * @param region - the image.
+     * @param x - the column of the left edge of the rectangle.
+     * @param y - the row of the top edge of the rectangle.
+     * @param width - the width of the rectangle.
+     * @param height - the height of the rectangle.
+     */
+    public void updateRegion(final Image region, final int x, final int y, final int width, final int height)
+    {
+        synchronized (lock)
+        {
+            final Graphics    g = canvas().getGraphics();
+            g.drawImage(region, x, y, width, height, null);
+            g.dispose();
+
+            markDirty(x, y, width, height);
+            lock.notifyAll();
+        }
+    }
+
+
+
+    /**
+     * Shows the progress of a render as a bar along the bottom of the screen. The bar is drawn over
+     * what is presented, never onto the canvas, so a snapshot does not contain it. It is hidden once the
+     * render is done. May be called from any thread.
+     *
+     * @param done - the tiles that are done.
+     * @param total - the tiles of the render; 0 hides the bar.
+     */
+    public void setProgress(final int done, final int total)
+    {
+        final int    width = (done < 0  ||  done >= total) ? 0 : (int) ((long) screenWidth * done / total);
+
+        synchronized (lock)
+        {
+            // Only the part of the bar that grew or shrank is presented again; the bar is drawn over it
+            if (width != progressBarWidth)
+            {
+                markDirty(Math.min(width, progressBarWidth), screenHeight - PROGRESS_BAR_HEIGHT, Math.abs(width - progressBarWidth),
+                          PROGRESS_BAR_HEIGHT);
+                progressBarWidth = width;
+                lock.notifyAll();
+            }
+        }
+    }
+
+
+
+    /**
+     * Returns a copy of everything drawn so far, e.g. for an export.
+     *
+     * @return the copy.
+     */
+    public BufferedImage snapshot()
+    {
+        final BufferedImage    copy = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_RGB);
+
+        synchronized (lock)
+        {
+            if (canvas != null)
+            {
+                canvas.copyData(copy.getRaster());
+            }
+        }
+
+        return copy;
+    }
+
+
+
+    // Must hold the lock
+    private BufferedImage canvas()
+    {
+        if (canvas == null)
+        {
+            canvas = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_RGB);
+        }
+
+        return canvas;
+    }
+
+
+
+    // Must hold the lock
+    private void markDirty(final int x, final int y, final int width, final int height)
+    {
+        final int    firstColumn = Math.max(0, x / DIRTY_TILE_SIZE);
+        final int    lastColumn  = Math.min(tileColumns - 1, (x + width - 1) / DIRTY_TILE_SIZE);
+        final int    firstRow    = Math.max(0, y / DIRTY_TILE_SIZE);
+        final int    lastRow     = Math.min(tileRows - 1, (y + height - 1) / DIRTY_TILE_SIZE);
+
+        for (int row = firstRow; row <= lastRow; row++)
+        {
+            dirtyTiles.set(row * tileColumns + firstColumn, row * tileColumns + lastColumn + 1);
+        }
+    }
+
+
+
+    /*
+     * Waits for dirty tiles and presents them, at most once per frame interval, so that bursts of
+     * finished tiles are presented together.
+     */
+    private void presentLoop()
+    {
+        try
+        {
+            while (true)
+            {
+                synchronized (lock)
+                {
+                    while (dirtyTiles.isEmpty())
+                    {
+                        lock.wait();
+                    }
+                }
+
+                present();
+                Thread.sleep(FRAME_INTERVAL_MS);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+
+    /**
+     * Draws the dirty tiles into the back buffer and shows it. Everything is drawn again if the back
+     * buffer was lost or is not kept by the strategy.
+     */
+    public void present()
+    {
+        final BufferCapabilities    capabilities = strategy.getCapabilities();
+        final boolean               keepsBackBuffer = !capabilities.isPageFlipping()
+                || capabilities.getFlipContents() == BufferCapabilities.FlipContents.COPIED;
+
+        do
+        {
+            do
+            {
+                final Graphics2D    g = (Graphics2D) strategy.getDrawGraphics();
+
+                synchronized (lock)
+                {
+                    final BufferedImage    source = canvas();
+
+                    if (!keepsBackBuffer  ||  strategy.contentsRestored())
+                    {
+                        markDirty(0, 0, screenWidth, screenHeight);
+                    }
+
+                    lastPresentedTiles = dirtyTiles.cardinality();
+                    for (int i = dirtyTiles.nextSetBit(0); i >= 0; i = dirtyTiles.nextSetBit(i + 1))
+                    {
+                        final int    x = (i % tileColumns) * DIRTY_TILE_SIZE;
+                        final int    y = (i / tileColumns) * DIRTY_TILE_SIZE;
+                        final int    width  = Math.min(DIRTY_TILE_SIZE, source.getWidth() - x);
+                        final int    height = Math.min(DIRTY_TILE_SIZE, source.getHeight() - y);
+
+                        g.drawImage(source, x, y, x + width, y + height, x, y, x + width, y + height, null);
+                    }
+                    dirtyTiles.clear();
+
+                    if (progressBarWidth > 0)
+                    {
+                        g.setColor(PROGRESS_BAR_COLOR);
+                        g.fillRect(0, screenHeight - PROGRESS_BAR_HEIGHT, progressBarWidth, PROGRESS_BAR_HEIGHT);
+                    }
+                }
+                g.dispose();
+            }
+            while (strategy.contentsRestored());
+
+            strategy.show();
+        }
+        while (strategy.contentsLost());
+
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+
+
+    /**
+     * Returns the number of tiles drawn by the last present.
+     *
+     * @return the number of tiles.
+     */
+    public int getLastPresentedTiles()
+    {
+        return lastPresentedTiles;
+    }
+
+
+
+    // Repaint requests from the system, e.g. when the window is uncovered, present everything again
+    @Override
+    public void paint(final Graphics g)
+    {
+        synchronized (lock)
+        {
+            markDirty(0, 0, screenWidth, screenHeight);
+            lock.notifyAll();
+        }
+    }
+}